@@ -0,0 +1,303 @@
+package controller;
+
+import model.dao.IDAO;
+import model.entity.Person;
+import model.entity.PersonSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Asynchronous façade over an IDAO so that the storage is never accessed from
+ * the Swing event dispatch thread. Every operation runs on a worker thread
+ * (a virtual thread when the JVM offers them, JDK 21+, a platform thread
+ * otherwise) and returns a Task whose CompletableFuture completes with the
+ * result. At most maxConcurrent operations access the DAO at the same time.
+ *
+ * Cancellation is cooperative: a cancelled task completes at once with a
+ * CancellationException, an operation not started yet is never run and the
+ * batch operations stop between chunks. Worker threads are never
+ * interrupted, because an interrupt closes the FileChannel of the file
+ * storages.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class AsyncDAO {
+
+    //People written per call to the DAO by the batch operations
+    private static final int CHUNK_SIZE = 500;
+    private static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final IDAO dao;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * Progress of an operation, updated by the operation itself.
+     */
+    public interface Progress {
+
+        void update(int done, int total);
+
+        boolean isCancelled();
+    }
+
+    /**
+     * Operation over the DAO run by a worker thread.
+     */
+    public interface Operation<T> {
+
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Handle of an operation submitted: its result, its progress and its
+     * cancellation.
+     */
+    public static class Task<T> implements Progress {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile int done;
+        private volatile int total = -1;
+
+        @Override
+        public void update(int done, int total) {
+            this.done = done;
+            this.total = total;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        public boolean cancel() {
+            return future.cancel(false);
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public CompletableFuture<T> getFuture() {
+            return future;
+        }
+
+        public int getDone() {
+            return done;
+        }
+
+        /**
+         * @return number of steps of the operation, -1 if it is not known
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Runs the action on the event dispatch thread when the task ends,
+         * whether it succeeds, fails or is cancelled.
+         *
+         * @param action cleanup of the task
+         * @return this task
+         */
+        public Task<T> whenDoneOnEDT(Runnable action) {
+            future.whenCompleteAsync((result, ex) -> action.run(), EDT);
+            return this;
+        }
+
+        /**
+         * @see AsyncDAO#onEDT(CompletableFuture, Consumer, Consumer)
+         */
+        public Task<T> onEDT(Consumer<? super T> success, Consumer<Throwable> failure) {
+            AsyncDAO.onEDT(future, success, failure);
+            return this;
+        }
+    }
+
+    /**
+     * @param dao storage accessed by the operations
+     * @param maxConcurrent operations accessing the DAO at the same time. Use
+     * 1 for the DAOs that are not thread-safe.
+     */
+    public AsyncDAO(IDAO dao, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("At least one operation must be allowed.");
+        }
+        this.dao = dao;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.executor = createExecutor(maxConcurrent);
+    }
+
+    /**
+     * Runs the callbacks on the event dispatch thread when the future
+     * completes. A cancelled future runs none of them.
+     *
+     * @param future future of an operation
+     * @param success receives the result, may be null
+     * @param failure receives the exception thrown by the operation, may be
+     * null
+     */
+    public static <T> void onEDT(CompletableFuture<T> future, Consumer<? super T> success, Consumer<Throwable> failure) {
+        future.whenCompleteAsync((result, ex) -> {
+            if (ex == null) {
+                if (success != null) {
+                    success.accept(result);
+                }
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (!(cause instanceof CancellationException) && failure != null) {
+                failure.accept(cause);
+            }
+        }, EDT);
+    }
+
+    public IDAO getDAO() {
+        return dao;
+    }
+
+    /**
+     * Runs the operation on a worker thread.
+     *
+     * @param operation Operation
+     * @return Task of the operation
+     */
+    public <T> Task<T> submit(Operation<T> operation) {
+        Task<T> task = new Task<>();
+        executor.execute(() -> {
+            if (task.isCancelled()) {
+                return;
+            }
+            permits.acquireUninterruptibly();
+            try {
+                if (!task.isCancelled()) {
+                    task.future.complete(operation.run(task));
+                }
+            } catch (Throwable ex) {
+                task.future.completeExceptionally(ex);
+            } finally {
+                permits.release();
+            }
+        });
+        return task;
+    }
+
+    public Task<Person> read(Person p) {
+        return submit(progress -> dao.read(p));
+    }
+
+    public Task<ArrayList<Person>> readAll() {
+        return submit(progress -> dao.readAll());
+    }
+
+    public Task<ArrayList<Person>> readPage(int offset, int limit) {
+        return submit(progress -> dao.readPage(offset, limit));
+    }
+
+    public Task<ArrayList<PersonSummary>> readAllSummaries() {
+        return submit(progress -> dao.readAllSummaries());
+    }
+
+    public Task<ArrayList<PersonSummary>> readSummaryPage(int offset, int limit) {
+        return submit(progress -> dao.readSummaryPage(offset, limit));
+    }
+
+    public Task<Integer> count() {
+        return submit(progress -> dao.count());
+    }
+
+    public Task<Boolean> insertIfAbsent(Person p) {
+        return submit(progress -> dao.insertIfAbsent(p));
+    }
+
+    public Task<Void> update(Person p) {
+        return submit(progress -> {
+            dao.update(p);
+            return null;
+        });
+    }
+
+    public Task<Boolean> deleteIfPresent(Person p) {
+        return submit(progress -> dao.deleteIfPresent(p));
+    }
+
+    public Task<Void> deleteAll() {
+        return submit(progress -> {
+            dao.deleteAll();
+            return null;
+        });
+    }
+
+    public Task<Void> insertAll(Collection<Person> people) {
+        return submit(progress -> inChunks(people, progress, dao::insertAll));
+    }
+
+    public Task<Void> updateAll(Collection<Person> people) {
+        return submit(progress -> inChunks(people, progress, dao::updateAll));
+    }
+
+    public Task<Void> deleteAll(Collection<Person> people) {
+        return submit(progress -> inChunks(people, progress, dao::deleteAll));
+    }
+
+    /**
+     * Stops accepting operations. The operations already submitted are run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private interface Batch {
+
+        void apply(Collection<Person> people) throws Exception;
+    }
+
+    /**
+     * Calls the batch operation of the DAO CHUNK_SIZE people at a time,
+     * reporting the progress and stopping if the task is cancelled. The
+     * chunks already written are kept.
+     */
+    private static Void inChunks(Collection<Person> people, Progress progress, Batch batch) throws Exception {
+        List<Person> list = new ArrayList<>(people);
+        progress.update(0, list.size());
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            if (progress.isCancelled()) {
+                throw new CancellationException();
+            }
+            int to = Math.min(from + CHUNK_SIZE, list.size());
+            batch.apply(list.subList(from, to));
+            progress.update(to, list.size());
+        }
+        return null;
+    }
+
+    /**
+     * Virtual threads are created through reflection so that the application
+     * still compiles and runs on JDK 17, where a fixed pool of daemon
+     * platform threads is used instead.
+     */
+    private static ExecutorService createExecutor(int maxConcurrent) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(maxConcurrent, r -> {
+                Thread t = new Thread(r, "AsyncDAO-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+}
@@ -1,22 +1,39 @@
 package controller;
 
 import model.entity.Person;
-import model.entity.PersonException;
+import model.entity.Photo;
 import model.dao.DAOArrayList;
+import model.dao.DAOCache;
+import model.dao.DAOConcurrentHashMap;
+import model.dao.DAOCopyOnWriteList;
+import model.dao.DAOFileBinary;
 import model.dao.DAOFile;
 import model.dao.DAOFileSerializable;
 import model.dao.DAOHashMap;
+import model.dao.DAONifIndex;
+import model.dao.DAOOffHeap;
+import model.dao.DAOIndexedFile;
 import model.dao.DAOJPA;
+import model.dao.DAOMappedFile;
+import model.dao.DAONameSearch;
 import model.dao.DAOSQL;
+import model.dao.DAOWriteBehind;
 import model.dao.IDAO;
+import model.dao.NameSearchIndex;
 import start.Routes;
 import view.DataStorageSelection;
 import view.Delete;
+import view.DropPhotoListener;
 import view.Insert;
 import view.Menu;
+import view.PagedPersonTableModel;
 import view.ReadAll;
+import view.Search;
+import view.ThumbnailCache;
 import view.Update;
 
+import java.awt.Component;
+import java.awt.image.BufferedImage;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.BufferedReader;
@@ -26,6 +43,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.ParseException;
@@ -33,14 +51,23 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.persistence.*;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
 import javax.swing.JTextField;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import org.jdatepicker.DateModel;
 import utils.Constants;
 import view.Count;
@@ -57,7 +84,6 @@ import view.Read;
  */
 public class ControllerImplementation implements IController, ActionListener {
 
-    // Seguir aquí, usando el arraylist publico
     //Instance variables used so that both the visual and model parts can be 
     //accessed from the Controller.
     private final DataStorageSelection dSS;
@@ -70,7 +96,15 @@ public class ControllerImplementation implements IController, ActionListener {
     private ReadAll readAll;
     private Count count;
     private Login login;
-    public static ArrayList<Person> s;
+    private Search search;
+    private AsyncDAO async;
+    private DAONameSearch nameSearch;
+    //Search of the Search dialog not finished yet
+    private AsyncDAO.Task<ArrayList<NameSearchIndex.Match>> pendingSearch;
+    private final ThumbnailCache thumbnails = new ThumbnailCache();
+    //Operations shorter than this do not show a progress monitor
+    private static final int MONITOR_DELAY_MILLIS = 500;
+    private static final int SEARCH_RESULTS = 50;
 
     /**
      * This constructor allows the controller to know which data storage option
@@ -129,6 +163,8 @@ public class ControllerImplementation implements IController, ActionListener {
             handleDeleteAll();
         } else if (e.getSource() == menu.getCount()) {
             handleCount();
+        } else if (e.getSource() == menu.getSearch()) {
+            handleSearch();
         }
     }
 
@@ -142,12 +178,33 @@ public class ControllerImplementation implements IController, ActionListener {
             case Constants.hashMap:
                 dao = new DAOHashMap();
                 break;
+            case Constants.concurrentHashMap:
+                dao = new DAOConcurrentHashMap();
+                break;
+            case Constants.copyOnWriteList:
+                dao = new DAOCopyOnWriteList();
+                break;
+            case Constants.nifIndex:
+                dao = new DAONifIndex();
+                break;
+            case Constants.offHeap:
+                dao = new DAOOffHeap();
+                break;
             case Constants.file:
                 setupFileStorage();
                 break;
             case Constants.serialization:
                 setupFileSerialization();
                 break;
+            case Constants.indexedFile:
+                setupIndexedFileStorage();
+                break;
+            case Constants.mappedFile:
+                setupMappedFileStorage();
+                break;
+            case Constants.binaryFile:
+                setupBinaryFileStorage();
+                break;
             case Constants.SQL:
                 setupSQLDatabase();
                 break;
@@ -155,6 +212,25 @@ public class ControllerImplementation implements IController, ActionListener {
                 setupJPADatabase();
                 break;
         }
+        if (Constants.writeBehindStorages.contains(daoSelected)) {
+            DAOWriteBehind.Durability durability = Constants.writeBehindEveryCall
+                    ? DAOWriteBehind.Durability.EVERY_CALL : DAOWriteBehind.Durability.INTERVAL;
+            DAOWriteBehind writeBehind = new DAOWriteBehind(dao, durability,
+                    Constants.writeBehindIntervalMillis, DAOWriteBehind.DEFAULT_MAX_PENDING);
+            //A write confirmed to the user that could not be saved later
+            writeBehind.setFailureListener(ex -> SwingUtilities.invokeLater(
+                    () -> storageError(menu, "People v1.1.0").accept(ex)));
+            dao = writeBehind;
+        }
+        if (Constants.cachedStorages.contains(daoSelected)) {
+            dao = new DAOCache(dao);
+        }
+        //Every storage can be searched by name through the index in memory
+        nameSearch = new DAONameSearch(dao);
+        dao = nameSearch;
+        //Most DAOs are not thread-safe, so their operations run one at a time
+        async = new AsyncDAO(dao, Constants.concurrentStorages.contains(daoSelected)
+                ? Constants.concurrentOperations : 1);
         handleLoginAction();
     }
 
@@ -172,7 +248,12 @@ public class ControllerImplementation implements IController, ActionListener {
                 System.exit(0);
             }
         }
-        dao = new DAOFile();
+        try {
+            dao = new DAOFile();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(dSS, "File structure not readable. Closing application.", "File - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
     }
 
     private void setupFileSerialization() {
@@ -187,7 +268,51 @@ public class ControllerImplementation implements IController, ActionListener {
                 System.exit(0);
             }
         }
-        dao = new DAOFileSerializable();
+        try {
+            dao = new DAOFileSerializable();
+        } catch (IOException | ClassNotFoundException ex) {
+            JOptionPane.showMessageDialog(dSS, "File structure not readable. Closing application.", "FileSer - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
+    }
+
+    private void setupBinaryFileStorage() {
+        File folderPath = new File(Routes.FILEB.getFolderPath());
+        File folderPhotos = new File(Routes.FILEB.getFolderPhotos());
+        folderPath.mkdir();
+        folderPhotos.mkdir();
+        try {
+            dao = new DAOFileBinary();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(dSS, "File structure not readable. Closing application.", "FileBinary - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
+    }
+
+    private void setupIndexedFileStorage() {
+        File folderPath = new File(Routes.FILEI.getFolderPath());
+        File folderPhotos = new File(Routes.FILEI.getFolderPhotos());
+        folderPath.mkdir();
+        folderPhotos.mkdir();
+        try {
+            dao = new DAOIndexedFile();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(dSS, "File structure not created. Closing application.", "FileIndexed - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
+    }
+
+    private void setupMappedFileStorage() {
+        File folderPath = new File(Routes.FILEM.getFolderPath());
+        File folderPhotos = new File(Routes.FILEM.getFolderPhotos());
+        folderPath.mkdir();
+        folderPhotos.mkdir();
+        try {
+            dao = new DAOMappedFile();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(dSS, "File structure not created. Closing application.", "FileMapped - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
     }
 
     private void setupSQLDatabase() {
@@ -204,6 +329,19 @@ public class ControllerImplementation implements IController, ActionListener {
                         + "postalCode varchar(25),"
                         + "dateOfBirth DATE, "
                         + "photo varchar(200) );");
+                //Indexes of the searches, MySQL has no "create index if not exists"
+                for (String column : new String[]{"postalCode", "name", "dateOfBirth"}) {
+                    ResultSet rs = stmt.executeQuery("select count(*) from information_schema.statistics where table_schema = '"
+                            + Routes.DB.getDbServerDB() + "' and table_name = '" + Routes.DB.getDbServerTABLE()
+                            + "' and index_name = 'idx_" + column + "';");
+                    rs.next();
+                    boolean exists = rs.getInt(1) > 0;
+                    rs.close();
+                    if (!exists) {
+                        stmt.executeUpdate("create index idx_" + column + " on " + Routes.DB.getDbServerDB() + "."
+                                + Routes.DB.getDbServerTABLE() + "(" + column + ");");
+                    }
+                }
                 stmt.close();
                 conn.close();
             }
@@ -211,7 +349,12 @@ public class ControllerImplementation implements IController, ActionListener {
             JOptionPane.showMessageDialog(dSS, "SQL-DDBB structure not created. Closing application.", "SQL_DDBB - People v1.1.0", JOptionPane.ERROR_MESSAGE);
             System.exit(0);
         }
-        dao = new DAOSQL();
+        try {
+            dao = new DAOSQL();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(dSS, "Photo folder not readable. Closing application.", "SQL_DDBB - People v1.1.0", JOptionPane.ERROR_MESSAGE);
+            System.exit(0);
+        }
     }
 
     private void setupJPADatabase() {
@@ -237,6 +380,7 @@ public class ControllerImplementation implements IController, ActionListener {
         menu.getReadAll().addActionListener(this);
         menu.getDeleteAll().addActionListener(this);
         menu.getCount().addActionListener(this);
+        menu.getSearch().addActionListener(this);
     }
 
     private void handleLoginAction() {
@@ -337,9 +481,7 @@ public class ControllerImplementation implements IController, ActionListener {
         if (insert.getDateOfBirth().getModel().getValue() != null) {
             p.setDateOfBirth(((GregorianCalendar) insert.getDateOfBirth().getModel().getValue()).getTime());
         }
-        if (insert.getPhoto().getIcon() != null) {
-            p.setPhoto((ImageIcon) insert.getPhoto().getIcon());
-        }
+        p.setPhotoHandle(DropPhotoListener.getPhoto(insert.getPhoto()));
         insert(p);
         insert.getReset().doClick();
     }
@@ -355,7 +497,10 @@ public class ControllerImplementation implements IController, ActionListener {
     private void handleReadPerson() {
         
         Person p = new Person(read.getNif().getText());
-        Person pNew = read(p);
+        AsyncDAO.onEDT(read(p), pNew -> showRead(p, pNew), null);
+    }
+
+    private void showRead(Person p, Person pNew) {
         if (pNew != null) {
             read.getNam().setText(pNew.getName());
             read.getPhoneNumber().setText(pNew.getPhoneNumber());
@@ -366,10 +511,8 @@ public class ControllerImplementation implements IController, ActionListener {
                 DateModel<Calendar> dateModel = (DateModel<Calendar>) read.getDateOfBirth().getModel();
                 dateModel.setValue(calendar);
             }
-            //To avoid charging former images
-            if (pNew.getPhoto() != null) {
-                pNew.getPhoto().getImage().flush();
-                read.getPhoto().setIcon(pNew.getPhoto());
+            if (pNew.hasPhoto()) {
+                showPhoto(read.getPhoto(), pNew);
             }
         } else {
             JOptionPane.showMessageDialog(read, p.getNif() + " doesn't exist.", read.getTitle(), JOptionPane.WARNING_MESSAGE);
@@ -377,6 +520,32 @@ public class ControllerImplementation implements IController, ActionListener {
         }
     }
 
+    /**
+     * Shows the thumbnail of the photo of the person, kept in thumbnails after
+     * the first time. A thumbnail not kept yet is loaded by a worker, because
+     * it reads a file or the database, and a blank one is shown meanwhile, so
+     * the photo of the person is kept if the form is saved before.
+     */
+    private void showPhoto(JLabel label, Person p) {
+        Photo photo = p.getPhotoHandle();
+        ImageIcon kept = thumbnails.get(p.getNif(), Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT);
+        if (kept != null) {
+            DropPhotoListener.showPhoto(label, photo, kept);
+            return;
+        }
+        ImageIcon blank = new ImageIcon(new BufferedImage(Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT,
+                BufferedImage.TYPE_INT_ARGB));
+        DropPhotoListener.showPhoto(label, photo, blank);
+        long stamp = thumbnails.stamp();
+        async.submit(progress -> photo.getThumbnail(Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT)).onEDT(thumbnail -> {
+            thumbnails.put(p.getNif(), Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT, thumbnail, stamp);
+            //Unless the label shows another photo already
+            if (label.getIcon() == blank) {
+                DropPhotoListener.showPhoto(label, photo, thumbnail);
+            }
+        }, null);
+    }
+
     public void handleDeleteAction() {
         delete = new Delete(menu, true);
         delete.getDelete().addActionListener(this);
@@ -404,32 +573,34 @@ public class ControllerImplementation implements IController, ActionListener {
     public void handleReadForUpdate() {
         if (update != null) {
             Person p = new Person(update.getNif().getText());
-            Person pNew = read(p);
-            if (pNew != null) {
-                update.getNam().setEnabled(true);
-                update.getPhoneNumber().setEnabled(true);
-                update.getPostalCode().setEnabled(true);
-                update.getDateOfBirth().setEnabled(true);
-                update.getPhoto().setEnabled(true);
+            AsyncDAO.onEDT(read(p), pNew -> showReadForUpdate(p, pNew), null);
+        }
+    }
+
+    private void showReadForUpdate(Person p, Person pNew) {
+        if (pNew != null) {
+            update.getNam().setEnabled(true);
+            update.getPhoneNumber().setEnabled(true);
+            update.getPostalCode().setEnabled(true);
+            update.getDateOfBirth().setEnabled(true);
+            update.getPhoto().setEnabled(true);
+            update.getUpdate().setEnabled(true);
+            update.getNam().setText(pNew.getName());
+            update.getPhoneNumber().setText(pNew.getPhoneNumber());
+            update.getPostalCode().setText(pNew.getPostalCode());
+            if (pNew.getDateOfBirth() != null) {
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTime(pNew.getDateOfBirth());
+                DateModel<Calendar> dateModel = (DateModel<Calendar>) update.getDateOfBirth().getModel();
+                dateModel.setValue(calendar);
+            }
+            if (pNew.hasPhoto()) {
+                showPhoto(update.getPhoto(), pNew);
                 update.getUpdate().setEnabled(true);
-                update.getNam().setText(pNew.getName());
-                update.getPhoneNumber().setText(pNew.getPhoneNumber());
-                update.getPostalCode().setText(pNew.getPostalCode());
-                if (pNew.getDateOfBirth() != null) {
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(pNew.getDateOfBirth());
-                    DateModel<Calendar> dateModel = (DateModel<Calendar>) update.getDateOfBirth().getModel();
-                    dateModel.setValue(calendar);
-                }
-                if (pNew.getPhoto() != null) {
-                    pNew.getPhoto().getImage().flush();
-                    update.getPhoto().setIcon(pNew.getPhoto());
-                    update.getUpdate().setEnabled(true);
-                }
-            } else {
-                JOptionPane.showMessageDialog(update, p.getNif() + " doesn't exist.", update.getTitle(), JOptionPane.WARNING_MESSAGE);
-                update.getReset().doClick();
             }
+        } else {
+            JOptionPane.showMessageDialog(update, p.getNif() + " doesn't exist.", update.getTitle(), JOptionPane.WARNING_MESSAGE);
+            update.getReset().doClick();
         }
     }
 
@@ -455,38 +626,27 @@ public class ControllerImplementation implements IController, ActionListener {
             if ((update.getDateOfBirth().getModel().getValue()) != null) {
                 p.setDateOfBirth(((GregorianCalendar) update.getDateOfBirth().getModel().getValue()).getTime());
             }
-            if ((ImageIcon) (update.getPhoto().getIcon()) != null) {
-                p.setPhoto((ImageIcon) update.getPhoto().getIcon());
-            }
+            p.setPhotoHandle(DropPhotoListener.getPhoto(update.getPhoto()));
             update(p);
             update.getReset().doClick();
         }
     }
 
     public void handleReadAll() {
-        s = readAll();
-        if (s.isEmpty()) {
+        AsyncDAO.onEDT(count(), this::showReadAll, null);
+    }
+
+    /**
+     * The table reads the summaries of the people page by page while the
+     * user scrolls, so they are never all in memory.
+     */
+    private void showReadAll(int number) {
+        if (number == 0) {
             JOptionPane.showMessageDialog(menu, "There are not people registered yet.", "Read All - People v1.1.0", JOptionPane.WARNING_MESSAGE);
         } else {
             readAll = new ReadAll(menu, true);
-            DefaultTableModel model = (DefaultTableModel) readAll.getTable().getModel();
-            for (int i = 0; i < s.size(); i++) {
-                model.addRow(new Object[i]);
-                model.setValueAt(s.get(i).getNif(), i, 0);
-                model.setValueAt(s.get(i).getName(), i, 1);
-                model.setValueAt(s.get(i).getPhoneNumber(), i, 2);
-                model.setValueAt(s.get(i).getPostalCode(), i, 3);
-                if (s.get(i).getDateOfBirth() != null) {
-                    model.setValueAt(s.get(i).getDateOfBirth().toString(), i, 4);
-                } else {
-                    model.setValueAt("", i, 4);
-                }
-                if (s.get(i).getPhoto() != null) {
-                    model.setValueAt("yes", i, 5);
-                } else {
-                    model.setValueAt("no", i, 5);
-                }
-            }
+            readAll.setModel(new PagedPersonTableModel(number, (offset, limit)
+                    -> async.readSummaryPage(offset, limit).onEDT(null, storageError(readAll, readAll.getTitle())).getFuture()));
             readAll.setVisible(true);
         }
     }
@@ -511,7 +671,10 @@ public class ControllerImplementation implements IController, ActionListener {
     }
 
     public void handleCount() {
-        int number = count();
+        AsyncDAO.onEDT(count(), this::showCount, null);
+    }
+
+    private void showCount(int number) {
         if (number == 0) {
             JOptionPane.showMessageDialog(menu, "There are not people registered yet.", "Count - People v1.1.0", JOptionPane.WARNING_MESSAGE);
         } else {
@@ -522,37 +685,71 @@ public class ControllerImplementation implements IController, ActionListener {
         }
     }
 
+    public void handleSearch() {
+        search = new Search(menu, true);
+        search.getQuery().getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchName();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchName();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchName();
+            }
+        });
+        search.setVisible(true);
+    }
+
+    /**
+     * Searches the name typed on a worker thread every time it changes. The
+     * search not started yet for the former name is cancelled, and the
+     * results are only shown if the name has not changed since. The first
+     * search builds the index, reading all the names of the storage.
+     */
+    private void searchName() {
+        String text = search.getQuery().getText();
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+        }
+        long[] nanos = new long[1];
+        pendingSearch = async.submit(progress -> {
+            long start = System.nanoTime();
+            ArrayList<NameSearchIndex.Match> matches = nameSearch.search(text, SEARCH_RESULTS);
+            nanos[0] = System.nanoTime() - start;
+            return matches;
+        });
+        pendingSearch.onEDT(matches -> {
+            if (text.equals(search.getQuery().getText())) {
+                search.showResults(matches);
+                search.getStatus().setText(matches.size() + " people found in " + String.format("%.1f", nanos[0] / 1e6) + " ms");
+            }
+        }, storageError(search, search.getTitle()));
+    }
+
     /**
      * This function inserts the Person object with the requested NIF, if it
-     * doesn't exist. If there is any access problem with the storage device,
-     * the program stops.
+     * doesn't exist. The insertion runs on a worker thread and its outcome is
+     * shown when it finishes. If there is any access problem with the storage
+     * device, the program stops.
      *
      * @param p Person to insert
      */
     @Override
     public void insert(Person p) {
-        //averiguar porque el file no funciona correctamente
-        try {
-            if (dao.read(p) == null) {
-                dao.insert(p);
+        async.insertIfAbsent(p).onEDT(inserted -> {
+            if (inserted) {
                 JOptionPane.showMessageDialog(insert, "Person inserted successfully! ", insert.getTitle(), JOptionPane.INFORMATION_MESSAGE);
             } else {
-                throw new PersonException(p.getNif() + " is registered and can not "
-                        + "be INSERTED.");
-            }
-        } catch (Exception ex) {
-            //Exceptions generated by file read/write access. If something goes 
-            // wrong the application closes.
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(insert, ex.getMessage() + ex.getClass() + " Closing application.", insert.getTitle(), JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-            if (ex instanceof PersonException) {
-                JOptionPane.showMessageDialog(insert, ex.getMessage(), insert.getTitle(), JOptionPane.WARNING_MESSAGE);
+                JOptionPane.showMessageDialog(insert, p.getNif() + " is registered and can not "
+                        + "be INSERTED.", insert.getTitle(), JOptionPane.WARNING_MESSAGE);
             }
-        }
+        }, storageError(insert, insert.getTitle()));
     }
 
     /**
@@ -564,19 +761,10 @@ public class ControllerImplementation implements IController, ActionListener {
      */
     @Override
     public void update(Person p) {
-        try {
-            dao.update(p);
+        async.update(p).onEDT(done -> {
+            thumbnails.invalidate(p.getNif());
             JOptionPane.showMessageDialog(update, "Person updated successfully!", update.getTitle(), JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            //Exceptions generated by file read/write access. If something goes 
-            // wrong the application closes.
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(update, ex.getMessage() + ex.getClass() + " Closing application.", update.getTitle(), JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-        }
+        }, storageError(update, update.getTitle()));
     }
 
     /**
@@ -588,78 +776,41 @@ public class ControllerImplementation implements IController, ActionListener {
      */
     @Override
     public void delete(Person p) {
-        try {
-            if (dao.read(p) != null) {
-                dao.delete(p);
+        async.deleteIfPresent(p).onEDT(deleted -> {
+            thumbnails.invalidate(p.getNif());
+            if (deleted) {
                 JOptionPane.showMessageDialog(delete, "Person deleted successfully!", delete.getTitle(), JOptionPane.INFORMATION_MESSAGE);
             } else {
-                throw new PersonException(p.getNif() + " is not registered and can not "
-                        + "be DELETED");
-            }
-        } catch (Exception ex) {
-            //Exceptions generated by file, DDBB read/write access. If something  
-            //goes wrong the application closes.
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(delete, ex.getMessage() + ex.getClass() + " Closing application.", delete.getTitle(), JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-            if (ex instanceof PersonException) {
-                JOptionPane.showMessageDialog(delete, ex.getMessage(), delete.getTitle(), JOptionPane.WARNING_MESSAGE);
+                JOptionPane.showMessageDialog(delete, p.getNif() + " is not registered and can not "
+                        + "be DELETED", delete.getTitle(), JOptionPane.WARNING_MESSAGE);
             }
-        }
+        }, storageError(delete, delete.getTitle()));
     }
 
     /**
      * This function returns the Person object with the requested NIF, if it
-     * exists. Otherwise it returns null. If there is any access problem with
-     * the storage device, the program stops.
+     * exists. Otherwise the future completes with null. If there is any
+     * access problem with the storage device, the program stops.
      *
      * @param p Person to read
-     * @return Person or null
+     * @return CompletableFuture of the Person or null
      */
     @Override
-    public Person read(Person p) {
-        try {
-            Person pTR = dao.read(p);
-            if (pTR != null) {
-                return pTR;
-            }
-        } catch (Exception ex) {
-            //Exceptions generated by file read access. If something goes wrong 
-            //reading the file, the application closes.
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(read, ex.getMessage() + " Closing application.", read.getTitle(), JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-        }
-        return null;
+    public CompletableFuture<Person> read(Person p) {
+        return async.read(p).onEDT(null, storageError(menu, "Read - People v1.1.0")).getFuture();
     }
 
     /**
      * This function returns the people registered. If there is any access
      * problem with the storage device, the program stops.
      *
-     * @return ArrayList
+     * @return CompletableFuture of the ArrayList
      */
     @Override
-    public ArrayList<Person> readAll() {
-        ArrayList<Person> people = new ArrayList<>();
-        try {
-            people = dao.readAll();
-
-        } catch (Exception ex) {
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(readAll, ex.getMessage() + " Closing application.", readAll.getTitle(), JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-        }
-        return people;
+    public CompletableFuture<ArrayList<Person>> readAll() {
+        AsyncDAO.Task<ArrayList<Person>> task = async.readAll();
+        monitor(task, menu, "Reading all people...");
+        return task.onEDT(null, storageError(menu, "Read All - People v1.1.0")).getFuture();
     }
 
     /**
@@ -668,33 +819,72 @@ public class ControllerImplementation implements IController, ActionListener {
      */
     @Override
     public void deleteAll() {
-        try {
-            dao.deleteAll();
-        } catch (Exception ex) {
-            if (ex instanceof FileNotFoundException || ex instanceof IOException
-                    || ex instanceof ParseException || ex instanceof ClassNotFoundException
-                    || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(menu, ex.getMessage() + " Closing application.", "Delete All - People v1.1.0", JOptionPane.ERROR_MESSAGE);
-                System.exit(0);
-            }
-        }
+        AsyncDAO.Task<Void> task = async.deleteAll();
+        monitor(task, menu, "Deleting all people...");
+        task.whenDoneOnEDT(thumbnails::clear).onEDT(null, storageError(menu, "Delete All - People v1.1.0"));
     }
 
+    /**
+     * This function returns the number of people registered. If there is any
+     * access problem with the storage device, the program stops.
+     *
+     * @return CompletableFuture of the number of people
+     */
     @Override
-    public int count() {
-        ArrayList<Person> people = new ArrayList<>();
-        try {
-            people = dao.readAll();
-        } catch (Exception ex) {
+    public CompletableFuture<Integer> count() {
+        AsyncDAO.Task<Integer> task = async.count();
+        monitor(task, menu, "Counting people...");
+        return task.onEDT(null, storageError(menu, "Count - People v1.1.0")).getFuture();
+    }
+
+    /**
+     * Exceptions generated by file, DDBB read/write access. If something goes
+     * wrong the application closes.
+     */
+    private Consumer<Throwable> storageError(Component parent, String title) {
+        return ex -> {
             if (ex instanceof FileNotFoundException || ex instanceof IOException
                     || ex instanceof ParseException || ex instanceof ClassNotFoundException
                     || ex instanceof SQLException || ex instanceof PersistenceException) {
-                JOptionPane.showMessageDialog(readAll, ex.getMessage() + " Closing application.", count.getTitle(), JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(parent, ex.getMessage() + " Closing application.", title, JOptionPane.ERROR_MESSAGE);
                 System.exit(0);
             }
-        }
-        int number = people.size();
-        return number;
+        };
+    }
+
+    /**
+     * Shows a progress dialog when the task lasts longer than
+     * MONITOR_DELAY_MILLIS. The bar is indeterminate until the task reports
+     * its progress. The dialog has no Cancel button: readAll, count and
+     * deleteAll are a single call to the DAO, which can not be stopped once
+     * started. A Swing timer polls the task, so the event dispatch thread is
+     * never blocked while waiting.
+     */
+    private void monitor(AsyncDAO.Task<?> task, Component parent, String message) {
+        JProgressBar bar = new JProgressBar(0, 100);
+        bar.setIndeterminate(true);
+        JOptionPane pane = new JOptionPane(new Object[]{message, bar}, JOptionPane.INFORMATION_MESSAGE,
+                JOptionPane.DEFAULT_OPTION, null, new Object[]{});
+        JDialog dialog = pane.createDialog(parent, "People v1.1.0");
+        dialog.setModal(false);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        long start = System.currentTimeMillis();
+        Timer timer = new Timer(100, null);
+        timer.addActionListener(e -> {
+            if (task.isDone()) {
+                timer.stop();
+                dialog.dispose();
+                return;
+            }
+            if (task.getTotal() > 0) {
+                bar.setIndeterminate(false);
+                bar.setValue((int) ((long) task.getDone() * 100 / task.getTotal()));
+            }
+            if (!dialog.isVisible() && System.currentTimeMillis() - start >= MONITOR_DELAY_MILLIS) {
+                dialog.setVisible(true);
+            }
+        });
+        timer.start();
     }
 
 }
@@ -2,20 +2,23 @@ package controller;
 
 import model.entity.Person;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface that defines the type of operations that the controller and 
- * therefore the application can perform.
+ * therefore the application can perform. The storage is accessed 
+ * asynchronously, so the operations that return data return a 
+ * CompletableFuture.
  * @author Francesc Perez
  * @version 1.1.0
  */
 public interface IController {
-    public abstract Person read(Person p);
-    public abstract ArrayList<Person> readAll();
+    public abstract CompletableFuture<Person> read(Person p);
+    public abstract CompletableFuture<ArrayList<Person>> readAll();
     public abstract void insert(Person p) throws Exception;
     public abstract void update(Person p);
     public abstract void delete(Person p);
     public abstract void start();
     public abstract void deleteAll();
-    public abstract int count();
+    public abstract CompletableFuture<Integer> count();
 }
@@ -0,0 +1,277 @@
+package model.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of JDBC connections used by DAOSQL so that opening a connection (TCP
+ * and authentication) is not paid on every operation. Connections are opened
+ * on demand up to maxSize; a connection that has been idle longer than
+ * idleTimeout is closed while there are more than minSize open. Every
+ * connection is validated before it is lent and keeps its own cache of
+ * prepared statements.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final Semaphore available;
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private int open;
+    private boolean closed;
+
+    /**
+     * A connection of the pool together with its prepared statements.
+     */
+    public static class PooledConnection {
+
+        private final Connection connection;
+        private final HashMap<String, PreparedStatement> statements = new HashMap<>();
+        private long lastUsed;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the prepared statement of this connection for the given SQL,
+         * preparing it only the first time.
+         *
+         * @param sql SQL sentence
+         * @return PreparedStatement with its parameters cleared
+         * @throws SQLException
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        private void close() {
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                //The connection is discarded anyway
+            }
+        }
+    }
+
+    /**
+     * @param url JDBC URL
+     * @param user user of the database
+     * @param password password of the user
+     * @param minSize connections kept open even when idle
+     * @param maxSize maximum connections open at the same time
+     * @param idleTimeoutMillis idle time after which a connection is closed
+     * @param borrowTimeoutMillis maximum wait for a connection when all are
+     * in use
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+            long idleTimeoutMillis, long borrowTimeoutMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool sizes must satisfy 0 <= min <= max and max >= 1.");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.available = new Semaphore(maxSize, true);
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lends a valid connection, reusing an idle one if there is any. Waits up
+     * to borrowTimeout if maxSize connections are already in use.
+     *
+     * @return PooledConnection that must be given back with release()
+     * @throws SQLException if no connection can be obtained
+     */
+    public PooledConnection borrow() throws SQLException {
+        try {
+            if (!available.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("No connection available after " + borrowTimeoutMillis + " ms.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", ex);
+        }
+        try {
+            PooledConnection pc;
+            while ((pc = pollIdle()) != null) {
+                if (isValid(pc)) {
+                    return pc;
+                }
+                discard(pc);
+            }
+            return openConnection();
+        } catch (SQLException | RuntimeException ex) {
+            available.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gives back a connection lent by borrow().
+     *
+     * @param pc PooledConnection
+     */
+    public void release(PooledConnection pc) {
+        if (pc == null) {
+            return;
+        }
+        pc.lastUsed = System.currentTimeMillis();
+        boolean keep;
+        synchronized (this) {
+            keep = !closed;
+            if (keep) {
+                idle.push(pc);
+            }
+        }
+        if (!keep) {
+            discard(pc);
+        }
+        available.release();
+    }
+
+    /**
+     * Closes a connection lent by borrow() that can not be lent again, for
+     * instance one whose state could not be restored, and gives back its
+     * place in the pool.
+     *
+     * @param pc PooledConnection
+     */
+    public void invalidate(PooledConnection pc) {
+        if (pc == null) {
+            return;
+        }
+        discard(pc);
+        available.release();
+    }
+
+    /**
+     * Closes the connections idle for longer than idleTimeout, keeping at
+     * least minSize open.
+     */
+    public void evictIdle() {
+        long limit = System.currentTimeMillis() - idleTimeoutMillis;
+        ArrayDeque<PooledConnection> expired = new ArrayDeque<>();
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && open - expired.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (pc.lastUsed < limit) {
+                    it.remove();
+                    expired.add(pc);
+                }
+            }
+        }
+        for (PooledConnection pc : expired) {
+            discard(pc);
+        }
+    }
+
+    /**
+     * @return connections currently open, idle or in use
+     */
+    public synchronized int getOpenConnections() {
+        return open;
+    }
+
+    /**
+     * @return connections currently idle in the pool
+     */
+    public synchronized int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Closes every idle connection. Connections in use are closed when they
+     * are given back.
+     */
+    public void close() {
+        evictor.shutdownNow();
+        ArrayDeque<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pc : toClose) {
+            discard(pc);
+        }
+    }
+
+    private synchronized PooledConnection pollIdle() {
+        return idle.poll();
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("The connection pool is closed.");
+            }
+            open++;
+        }
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, user, password));
+        } catch (SQLException ex) {
+            synchronized (this) {
+                open--;
+            }
+            throw ex;
+        }
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        pc.close();
+        synchronized (this) {
+            open--;
+        }
+    }
+
+}
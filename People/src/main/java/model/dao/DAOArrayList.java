@@ -1,19 +1,26 @@
 package model.dao;
 
 import model.entity.Person;
+import model.entity.PersonSummary;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * This class implements the IDAO interface and completes the code blocks of 
  * the functions so that they can operate with an ArrayList structure. Thanks 
  * to the overriding of the "equals" method in the Person class, the ArrayList 
- * will not be able to contain objects with the same NIF.
+ * will not be able to contain objects with the same NIF. A SecondaryIndex of
+ * the people is kept for the searches.
  * @author Francesc Perez 
  * @version 1.1.0
  */
 public class DAOArrayList implements IDAO{
     
     ArrayList <Person> people = new ArrayList<>();
+    private final SecondaryIndex<Person> index = new SecondaryIndex<>();
 
     @Override
     public Person read(Person p){
@@ -23,26 +30,124 @@ public class DAOArrayList implements IDAO{
     @Override
     public void insert(Person p) {
         people.add(p);
+        index.put(p, p);
     }
     
     @Override
     public void delete(Person p){
-        people.remove(p);
+        if (people.remove(p)) {
+            index.remove(p);
+        }
+    }
+    
+    @Override
+    public boolean insertIfAbsent(Person p) {
+        if (people.contains(p)) {
+            return false;
+        }
+        index.put(p, p);
+        return people.add(p);
+    }
+    
+    @Override
+    public boolean deleteIfPresent(Person p) {
+        if (!people.remove(p)) {
+            return false;
+        }
+        index.remove(p);
+        return true;
     }
     
     @Override
     public void deleteAll(){
         people.clear();
+        index.clear();
     }
     
     @Override
     public void update(Person p){
         people.set(people.indexOf(p), p);
+        index.put(p, p);
     }
     
     @Override
     public ArrayList<Person> readAll(){
         return people;
     }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) {
+        int from = Math.min(offset, people.size());
+        return new ArrayList<>(people.subList(from, Math.min(from + limit, people.size())));
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) {
+        return index.findByPostalCode(postalCode);
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) {
+        return index.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return index.findByBirthDateRange(from, to);
+    }
+
+    @Override
+    public int count() {
+        return people.size();
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) {
+        this.people.addAll(people);
+        for (Person p : people) {
+            index.put(p, p);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) {
+        HashMap<String, Person> updated = new HashMap<>();
+        for (Person p : people) {
+            updated.put(p.getNif(), p);
+        }
+        this.people.replaceAll(p -> {
+            Person replacement = updated.get(p.getNif());
+            if (replacement == null) {
+                return p;
+            }
+            index.put(replacement, replacement);
+            return replacement;
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) {
+        HashSet<String> nifs = new HashSet<>();
+        for (Person p : people) {
+            nifs.add(p.getNif());
+        }
+        this.people.removeIf(p -> {
+            if (!nifs.contains(p.getNif())) {
+                return false;
+            }
+            index.remove(p);
+            return true;
+        });
+    }
    
 }
@@ -0,0 +1,328 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class implements the IDAO interface as a decorator of another IDAO
+ * that keeps the people read last, by NIF, so that reading them again does
+ * not access the storage. The cache holds at most maxEntries people and at
+ * most maxWeight bytes, estimated from the texts and the photo of every
+ * person; the least recently used people are evicted first.
+ *
+ * Every write goes to the storage and then removes the people written from
+ * the cache (write-through invalidation), so the cache never returns data
+ * older than the storage when all the writes go through it. The cache
+ * returns copies, so the people it holds can not be changed from outside.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOCache implements IDAO {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+    //Estimated bytes of a Person and its fields besides texts and photo
+    private static final int PERSON_WEIGHT = 160;
+
+    private final IDAO dao;
+    private final int maxEntries;
+    private final long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    //Writes seen, so that a person read while it was written is not cached
+    private long invalidations;
+    //Access order, so the first entry is the person least recently used
+    private final LinkedHashMap<String, Entry> people = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Entry {
+
+        final Person person;
+        final long weight;
+
+        Entry(Person person, long weight) {
+            this.person = person;
+            this.weight = weight;
+        }
+    }
+
+    public DAOCache(IDAO dao) {
+        this(dao, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param dao storage whose people are cached
+     * @param maxEntries maximum number of people kept
+     * @param maxWeight maximum estimated bytes kept
+     */
+    public DAOCache(IDAO dao, int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("The cache must be able to hold a person.");
+        }
+        this.dao = dao;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public Person read(Person p) throws Exception {
+        long seen;
+        synchronized (this) {
+            Entry entry = people.get(p.getNif());
+            if (entry != null) {
+                hits++;
+                return copy(entry.person);
+            }
+            misses++;
+            seen = invalidations;
+        }
+        Person pRead = dao.read(p);
+        if (pRead != null) {
+            put(copy(pRead), seen);
+        }
+        return pRead;
+    }
+
+    @Override
+    public ArrayList<Person> readAll() throws Exception {
+        return dao.readAll();
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) throws Exception {
+        return dao.readPage(offset, limit);
+    }
+
+    /**
+     * The summaries are not cached: they are read from the storage.
+     */
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws Exception {
+        return dao.readAllSummaries();
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws Exception {
+        return dao.readSummaryPage(offset, limit);
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) throws Exception {
+        return dao.findByPostalCode(postalCode);
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) throws Exception {
+        return dao.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) throws Exception {
+        return dao.findByBirthDateRange(from, to);
+    }
+
+    @Override
+    public int count() throws Exception {
+        return dao.count();
+    }
+
+    @Override
+    public void insert(Person p) throws Exception {
+        try {
+            dao.insert(p);
+        } finally {
+            invalidate(p);
+        }
+    }
+
+    @Override
+    public void update(Person p) throws Exception {
+        try {
+            dao.update(p);
+        } finally {
+            invalidate(p);
+        }
+    }
+
+    @Override
+    public void delete(Person p) throws Exception {
+        try {
+            dao.delete(p);
+        } finally {
+            invalidate(p);
+        }
+    }
+
+    @Override
+    public boolean insertIfAbsent(Person p) throws Exception {
+        try {
+            return dao.insertIfAbsent(p);
+        } finally {
+            invalidate(p);
+        }
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) throws Exception {
+        try {
+            return dao.deleteIfPresent(p);
+        } finally {
+            invalidate(p);
+        }
+    }
+
+    @Override
+    public void deleteAll() throws Exception {
+        try {
+            dao.deleteAll();
+        } finally {
+            clear();
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) throws Exception {
+        try {
+            dao.insertAll(people);
+        } finally {
+            invalidate(people);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) throws Exception {
+        try {
+            dao.updateAll(people);
+        } finally {
+            invalidate(people);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) throws Exception {
+        try {
+            dao.deleteAll(people);
+        } finally {
+            invalidate(people);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return people.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DAOCache[hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", size=" + people.size() + ", weight=" + weight + "]";
+    }
+
+    private synchronized void put(Person p, long seen) {
+        if (seen != invalidations) {
+            return;
+        }
+        Entry entry = new Entry(p, weigh(p));
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        Entry former = people.put(p.getNif(), entry);
+        if (former != null) {
+            weight -= former.weight;
+        }
+        weight += entry.weight;
+        Iterator<Entry> eldest = people.values().iterator();
+        while (people.size() > maxEntries || weight > maxWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private synchronized void invalidate(Person p) {
+        invalidations++;
+        Entry entry = people.remove(p.getNif());
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    private synchronized void invalidate(Collection<Person> people) {
+        for (Person p : people) {
+            invalidate(p);
+        }
+    }
+
+    private synchronized void clear() {
+        invalidations++;
+        people.clear();
+        weight = 0;
+    }
+
+    /**
+     * Estimates the bytes used by the person: its texts and its photo as it
+     * is held, a path, the encoded bytes or the decoded image. A photo not
+     * loaded yet is not loaded to weigh it.
+     */
+    private static long weigh(Person p) {
+        long bytes = PERSON_WEIGHT + 2L * (length(p.getNif()) + length(p.getName())
+                + length(p.getPhoneNumber()) + length(p.getPostalCode()));
+        Photo photo = p.getPhotoHandle();
+        if (photo != null) {
+            if (photo.isDecoded()) {
+                bytes += 4L * photo.getIcon().getIconWidth() * photo.getIcon().getIconHeight();
+            } else if (!photo.isLoaded()) {
+                bytes += PERSON_WEIGHT;
+            } else if (photo.getBytes() != null) {
+                bytes += photo.getBytes().length;
+            } else {
+                bytes += 2L * length(photo.getPath());
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    /**
+     * Every copy gets its own undecoded photo handle, so that decoding the
+     * photo of a person returned does not grow the person cached beyond the
+     * weight it was put with.
+     */
+    private static Person copy(Person p) {
+        Person copy = new Person(p.getName(), p.getNif(), p.getPhoneNumber(), p.getPostalCode());
+        if (p.getDateOfBirth() != null) {
+            copy.setDateOfBirth(new Date(p.getDateOfBirth().getTime()));
+        }
+        if (p.getPhotoHandle() != null) {
+            copy.setPhotoHandle(p.getPhotoHandle().undecoded());
+        }
+        return copy;
+    }
+
+}
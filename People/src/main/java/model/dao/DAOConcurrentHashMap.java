@@ -0,0 +1,189 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class implements the IDAO interface and completes the function code
+ * blocks so that they can operate with a ConcurrentHashMap structure, so that
+ * several threads can use it at the same time. The NIF is used as the key.
+ *
+ * Every operation on a person is atomic: update only replaces a person that
+ * is registered (computeIfPresent), so it never inserts a person deleted at
+ * the same time, and update(nif, change) reads and changes a person as a
+ * single operation. The batch operations are atomic person by person, not as
+ * a whole, and readAll, readPage and count see the people as they are while
+ * they are read.
+ *
+ * A SecondaryIndex of the NIFs is kept for the searches. It is changed
+ * inside the atomic operation of the map on the NIF, so both always agree on
+ * every person.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOConcurrentHashMap implements IDAO {
+
+    private final ConcurrentHashMap<String, Person> people = new ConcurrentHashMap<>();
+    private final SecondaryIndex<String> index = new SecondaryIndex<>();
+
+    @Override
+    public Person read(Person p) {
+        return people.get(p.getNif());
+    }
+
+    @Override
+    public ArrayList<Person> readAll() {
+        return new ArrayList<>(people.values());
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) {
+        ArrayList<Person> page = new ArrayList<>();
+        people.values().stream().skip(offset).limit(limit).forEach(page::add);
+        return page;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) {
+        return people(index.findByPostalCode(postalCode));
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) {
+        return people(index.findByNamePrefix(prefix));
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return people(index.findByBirthDateRange(from, to));
+    }
+
+    /**
+     * A person deleted after the search is left out.
+     */
+    private ArrayList<Person> people(ArrayList<String> nifs) {
+        ArrayList<Person> found = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            Person p = people.get(nif);
+            if (p != null) {
+                found.add(p);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int count() {
+        return people.size();
+    }
+
+    @Override
+    public void insert(Person p) {
+        people.compute(p.getNif(), (nif, former) -> {
+            index.put(nif, p);
+            return p;
+        });
+    }
+
+    @Override
+    public void update(Person p) {
+        people.computeIfPresent(p.getNif(), (nif, former) -> {
+            index.put(nif, p);
+            return p;
+        });
+    }
+
+    /**
+     * Changes the registered person in a single operation: no other write to
+     * the same NIF can happen between reading and writing it.
+     *
+     * @param nif NIF of the person
+     * @param change function from the registered person to the updated one,
+     * that must not change the NIF; returning null deletes the person
+     * @return updated person, null if the NIF was not registered or the
+     * person has been deleted
+     */
+    public Person update(String nif, UnaryOperator<Person> change) {
+        return people.computeIfPresent(nif, (key, former) -> {
+            Person changed = change.apply(former);
+            if (changed != null) {
+                index.put(key, changed);
+            } else {
+                index.remove(key);
+            }
+            return changed;
+        });
+    }
+
+    @Override
+    public void delete(Person p) {
+        deleteIfPresent(p);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Person p) {
+        boolean[] inserted = {false};
+        people.computeIfAbsent(p.getNif(), nif -> {
+            index.put(nif, p);
+            inserted[0] = true;
+            return p;
+        });
+        return inserted[0];
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) {
+        boolean[] deleted = {false};
+        people.computeIfPresent(p.getNif(), (nif, former) -> {
+            index.remove(nif);
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public void deleteAll() {
+        for (Person p : people.values()) {
+            delete(p);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) {
+        for (Person p : people) {
+            insert(p);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) {
+        for (Person p : people) {
+            update(p);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) {
+        for (Person p : people) {
+            delete(p);
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class implements the IDAO interface and completes the function code
+ * blocks so that they can operate with a CopyOnWriteArrayList structure, so
+ * that several threads can use it at the same time. Every write copies the
+ * list, so reads never wait and always see a whole list, never one being
+ * changed. Writes wait for each other, so checking a NIF and writing it is a
+ * single operation. Suited to lists read much more often than written; the
+ * batch operations copy the list once or twice instead of once per person.
+ * A SecondaryIndex of the NIFs and a map from the NIFs to the people, both
+ * changed by the writes, serve the searches and the reads of a NIF.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOCopyOnWriteList implements IDAO {
+
+    private final CopyOnWriteArrayList<Person> people = new CopyOnWriteArrayList<>();
+    private final SecondaryIndex<String> index = new SecondaryIndex<>();
+    private final ConcurrentHashMap<String, Person> indexed = new ConcurrentHashMap<>();
+
+    @Override
+    public Person read(Person p) {
+        return indexed.get(p.getNif());
+    }
+
+    @Override
+    public ArrayList<Person> readAll() {
+        return new ArrayList<>(people);
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) {
+        Object[] snapshot = people.toArray();
+        int from = Math.min(offset, snapshot.length);
+        int to = (int) Math.min((long) from + limit, snapshot.length);
+        ArrayList<Person> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add((Person) snapshot[i]);
+        }
+        return page;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) {
+        return people(index.findByPostalCode(postalCode));
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) {
+        return people(index.findByNamePrefix(prefix));
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return people(index.findByBirthDateRange(from, to));
+    }
+
+    /**
+     * A person deleted after the search is left out.
+     */
+    private ArrayList<Person> people(ArrayList<String> nifs) {
+        ArrayList<Person> found = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            Person p = indexed.get(nif);
+            if (p != null) {
+                found.add(p);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int count() {
+        return people.size();
+    }
+
+    @Override
+    public synchronized void insert(Person p) {
+        int index = people.indexOf(p);
+        if (index < 0) {
+            people.add(p);
+        } else {
+            people.set(index, p);
+        }
+        index(p);
+    }
+
+    @Override
+    public synchronized void update(Person p) {
+        int index = people.indexOf(p);
+        if (index >= 0) {
+            people.set(index, p);
+            index(p);
+        }
+    }
+
+    @Override
+    public synchronized void delete(Person p) {
+        deleteIfPresent(p);
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(Person p) {
+        if (!people.addIfAbsent(p)) {
+            return false;
+        }
+        index(p);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfPresent(Person p) {
+        if (!people.remove(p)) {
+            return false;
+        }
+        unindex(p);
+        return true;
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        people.clear();
+        index.clear();
+        indexed.clear();
+    }
+
+    @Override
+    public synchronized void insertAll(Collection<Person> people) {
+        HashMap<String, Person> inserted = new HashMap<>();
+        for (Person p : people) {
+            inserted.put(p.getNif(), p);
+        }
+        this.people.replaceAll(p -> {
+            Person replacement = inserted.remove(p.getNif());
+            return replacement != null ? replacement : p;
+        });
+        this.people.addAll(inserted.values());
+        for (Person p : people) {
+            index(p);
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Person> people) {
+        HashMap<String, Person> updated = new HashMap<>();
+        for (Person p : people) {
+            updated.put(p.getNif(), p);
+        }
+        this.people.replaceAll(p -> {
+            Person replacement = updated.get(p.getNif());
+            if (replacement == null) {
+                return p;
+            }
+            index(replacement);
+            return replacement;
+        });
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<Person> people) {
+        HashSet<String> nifs = new HashSet<>();
+        for (Person p : people) {
+            nifs.add(p.getNif());
+        }
+        this.people.removeIf(p -> {
+            if (!nifs.contains(p.getNif())) {
+                return false;
+            }
+            unindex(p);
+            return true;
+        });
+    }
+
+    private void index(Person p) {
+        index.put(p.getNif(), p);
+        indexed.put(p.getNif(), p);
+    }
+
+    private void unindex(Person p) {
+        index.remove(p.getNif());
+        indexed.remove(p.getNif());
+    }
+
+}
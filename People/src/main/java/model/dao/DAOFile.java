@@ -1,60 +1,123 @@
 package model.dao;
 
 import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
 import start.Routes;
 
-import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * This class implements the IDAO interface and completes the code of the
  * functions so that they can work with files. User data is saved in the
- * "dataFile.txt" file and the associated photos, if any, are saved with the
- * name NIF.png in the "Photos" folder.
+ * "dataFile.txt" file and the associated photos, if any, are saved in the 
+ * PhotoRepository of the "Photos" folder.
+ * 
+ * Every change is first written to the WriteAheadLog "dataFile.txt.wal".
+ * Inserts are appended to the data file at once, but updates and deletes are
+ * only kept in memory and read over the data file, which is rewritten with
+ * all of them at the next checkpoint: when the log grows past
+ * CHECKPOINT_BYTES, on deleteAll and on start after the log is replayed.
+ * Nothing of the data file is overwritten or dropped before the log is on
+ * disk, so if the application crashes the next start does again the changes
+ * of the log.
+ *
+ * The change is done holding the lock of the storage but the wait for the
+ * log is not, so the threads that write at the same time share a single
+ * force of the log (group commit).
+ *
+ * The first search reads the people of the data file into a map by NIF and
+ * a SecondaryIndex of their NIFs, which the writes keep up to date
+ * afterwards.
  * @author Francesc Perez
  * @version 1.1.0
  */
 public class DAOFile implements IDAO {
 
+    //Operations of the records of the log
+    private static final char LOG_INSERT = '+';
+    private static final char LOG_UPDATE = '~';
+    private static final char LOG_DELETE = '-';
+    private static final char LOG_DELETE_ALL = '*';
+    private static final char LOG_CHECKPOINT = '#';
+    //Size of the log that makes the data file be rewritten and forced to disk
+    private static final long CHECKPOINT_BYTES = 1024 * 1024;
+
+    private final String dataFile;
+    private final PhotoRepository photos;
+    private final WriteAheadLog log;
+    //Changes of the log that are not in the data file yet, by NIF. Both only
+    //hold NIFs of lines of the data file.
+    private final HashMap<String, String> updated = new HashMap<>();
+    private final HashSet<String> deleted = new HashSet<>();
+    //Built by the first search, both null until then
+    private SecondaryIndex<String> index;
+    private HashMap<String, Person> indexed;
+
+    public DAOFile() throws IOException {
+        this(Routes.FILE.getDataFile(), Routes.FILE.getFolderPhotos());
+    }
+
+    /**
+     * @param dataFile path of the data file, that must exist
+     * @param folderPhotos folder where the photos are saved
+     * @throws IOException
+     */
+    public DAOFile(String dataFile, String folderPhotos) throws IOException {
+        this.dataFile = dataFile;
+        photos = new PhotoRepository(folderPhotos);
+        log = new WriteAheadLog(dataFile + ".wal");
+        recover();
+    }
+
     @Override
-    public Person read(Person p) throws Exception {
+    public synchronized Person read(Person p) throws Exception {
+        if (deleted.contains(p.getNif())) {
+            return null;
+        }
+        if (updated.containsKey(p.getNif())) {
+            return parsePerson(updated.get(p.getNif()).split("\t"));
+        }
         Person personToRead = null;
         FileReader fr;
         BufferedReader br;
-        fr = new FileReader(Routes.FILE.getDataFile());
+        fr = new FileReader(dataFile);
         br = new BufferedReader(fr);
         String line;
         line = br.readLine();
         while (line != null) {
             String data[] = line.split("\t");
             if (data[1].equals(p.getNif())) {
-                Date date = null;
-                if (!data[4].equals("null")) {
-                    DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd");
-                    date = dateFormat.parse(data[4]);
-                }
-                ImageIcon photo = null;
-                if (!data[5].equals("null")) {
-                    photo = new ImageIcon(data[5]);
-                }
-                personToRead = new Person(data[0], data[1], data[2], data[3] ,date,photo );
+                personToRead = parsePerson(data);
                 break;
             }
             line = br.readLine();
@@ -64,113 +127,593 @@ public class DAOFile implements IDAO {
     }
     
     @Override
-    public ArrayList<Person> readAll() throws FileNotFoundException, IOException, ParseException {
+    public synchronized ArrayList<Person> readAll() throws FileNotFoundException, IOException, ParseException {
         ArrayList<Person> people = new ArrayList<>();
         FileReader fr;
         BufferedReader br;
-        fr = new FileReader(Routes.FILE.getDataFile());
+        fr = new FileReader(dataFile);
         br = new BufferedReader(fr);
         String line;
         line = br.readLine();
         while (line != null) {
-            String data[] = line.split("\t");
-            Date date = null;
-            if (!data[4].equals("null")) {
-                DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd");
-                date = dateFormat.parse(data[4]);
+            String data[] = current(line);
+            if (data != null) {
+                people.add(parsePerson(data));
             }
-            ImageIcon photo = null;
-            if (!data[5].equals("null")) {
-                photo = new ImageIcon(data[5]);
+            line = br.readLine();
+        }
+        br.close();
+        return people;
+    }
+
+    /**
+     * Skips the first offset lines without splitting them and parses only the
+     * lines of the page.
+     */
+    @Override
+    public synchronized ArrayList<Person> readPage(int offset, int limit) throws IOException, ParseException {
+        ArrayList<Person> people = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new FileReader(dataFile));
+        String line = br.readLine();
+        for (int skipped = 0; line != null && skipped < offset; line = br.readLine()) {
+            if (deleted.isEmpty() || !deleted.contains(nif(line))) {
+                skipped++;
+            }
+        }
+        while (line != null && people.size() < limit) {
+            String data[] = current(line);
+            if (data != null) {
+                people.add(parsePerson(data));
             }
-            people.add(new Person(data[0], data[1], data[2], data[3] ,date,photo ));
             line = br.readLine();
         }
         br.close();
         return people;
     }
 
+    /**
+     * Returns the fields of the person of the line with the changes not in
+     * the data file yet, or null if the person is deleted.
+     */
+    private String[] current(String line) {
+        if (updated.isEmpty() && deleted.isEmpty()) {
+            return line.split("\t");
+        }
+        String nif = nif(line);
+        if (deleted.contains(nif)) {
+            return null;
+        }
+        return updated.getOrDefault(nif, line).split("\t");
+    }
+
+    private static String nif(String line) {
+        int start = line.indexOf('\t') + 1;
+        return line.substring(start, line.indexOf('\t', start));
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws FileNotFoundException, IOException, ParseException {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws IOException, ParseException {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByPostalCode(String postalCode) throws IOException, ParseException {
+        return people(index().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByNamePrefix(String prefix) throws IOException, ParseException {
+        return people(index().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByBirthDateRange(Date from, Date to) throws IOException, ParseException {
+        return people(index().findByBirthDateRange(from, to));
+    }
+
+    private SecondaryIndex<String> index() throws IOException, ParseException {
+        if (index == null) {
+            SecondaryIndex<String> built = new SecondaryIndex<>();
+            indexed = new HashMap<>();
+            for (Person p : readAll()) {
+                built.put(p.getNif(), p);
+                indexed.put(p.getNif(), p);
+            }
+            index = built;
+        }
+        return index;
+    }
+
+    private ArrayList<Person> people(ArrayList<String> nifs) {
+        ArrayList<Person> people = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            people.add(indexed.get(nif));
+        }
+        return people;
+    }
+
+    /**
+     * Indexes the people of the lines written, as read() would read them.
+     */
+    private void index(Collection<String> lines) throws IOException {
+        if (index == null) {
+            return;
+        }
+        for (String line : lines) {
+            try {
+                Person p = parsePerson(line.split("\t"));
+                index.put(p.getNif(), p);
+                indexed.put(p.getNif(), p);
+            } catch (ParseException ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    private void unindex(Collection<String> nifs) {
+        if (index == null) {
+            return;
+        }
+        for (String nif : nifs) {
+            index.remove(nif);
+            indexed.remove(nif);
+        }
+    }
+
+    private Person parsePerson(String data[]) throws ParseException {
+        Date date = null;
+        if (!data[4].equals("null")) {
+            DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd");
+            date = dateFormat.parse(data[4]);
+        }
+        Person p = new Person(data[0], data[1], data[2], data[3], date, null);
+        if (!data[5].equals("null")) {
+            p.setPhotoHandle(Photo.ofPath(data[5]));
+        }
+        return p;
+    }
+
+    /**
+     * Every person takes one line of the data file, so the lines are counted
+     * scanning the bytes, without decoding nor splitting them.
+     */
+    @Override
+    public synchronized int count() throws IOException {
+        int lines = 0;
+        try ( FileChannel channel = FileChannel.open(Paths.get(dataFile), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() == '\n') {
+                        lines++;
+                    }
+                }
+                buffer.clear();
+            }
+        }
+        return lines - deleted.size();
+    }
+
     @Override
     public void insert(Person p) throws IOException {
-        String sep = File.separator;
-        FileWriter fw;
-        BufferedWriter bw;
-        fw = new FileWriter(Routes.FILE.getDataFile(), true);
-        bw = new BufferedWriter(fw);
+        insertAll(Collections.singletonList(p));
+    }
+
+    /**
+     * Looks for the NIF scanning only the second column of every line and
+     * appends the person when it is not found.
+     */
+    @Override
+    public boolean insertIfAbsent(Person p) throws IOException {
+        long position;
+        synchronized (this) {
+            if (!deleted.contains(p.getNif()) && !inFile(Collections.singleton(p.getNif())).isEmpty()) {
+                return false;
+            }
+            position = logInsert(Collections.singletonList(p));
+        }
+        log.sync(position);
+        return true;
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) throws IOException {
+        return delete(Collections.singleton(p.getNif()));
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) throws IOException {
+        if (people.isEmpty()) {
+            return;
+        }
+        log.sync(logInsert(people));
+    }
+
+    /**
+     * @return position of the log to wait for
+     */
+    private synchronized long logInsert(Collection<Person> people) throws IOException {
+        ArrayList<String> lines = new ArrayList<>(people.size());
+        for (Person p : people) {
+            lines.add(format(p));
+        }
+        long position = log.append(record(LOG_INSERT, lines));
+        applyInsert(lines, false);
+        index(lines);
+        checkpointIfNeeded();
+        return position;
+    }
+
+    /**
+     * The photos are saved before the people are known to be registered, so
+     * the photos of the people that are not are released at the end.
+     */
+    @Override
+    public void updateAll(Collection<Person> people) throws IOException {
+        if (people.isEmpty()) {
+            return;
+        }
+        ArrayList<String> released = new ArrayList<>();
+        long position;
+        synchronized (this) {
+            LinkedHashMap<String, String> lines = new LinkedHashMap<>();
+            for (Person p : people) {
+                String previous = lines.put(p.getNif(), format(p));
+                if (previous != null) {
+                    photos.release(photoPath(previous));
+                }
+            }
+            position = log.append(record(LOG_UPDATE, lines.values()));
+            index(applyUpdate(lines.values(), released));
+            checkpointIfNeeded();
+        }
+        log.sync(position);
+        release(released);
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) throws IOException {
+        if (people.isEmpty()) {
+            return;
+        }
+        HashSet<String> nifs = new HashSet<>();
+        for (Person p : people) {
+            nifs.add(p.getNif());
+        }
+        delete(nifs);
+    }
+
+    /**
+     * @return whether any of the people was registered
+     */
+    private boolean delete(Collection<String> nifs) throws IOException {
+        ArrayList<String> released = new ArrayList<>();
+        long position;
+        boolean changed;
+        synchronized (this) {
+            position = log.append(record(LOG_DELETE, nifs));
+            HashSet<String> removed = applyDelete(nifs, released);
+            unindex(removed);
+            checkpointIfNeeded();
+            changed = !removed.isEmpty();
+        }
+        log.sync(position);
+        release(released);
+        return changed;
+    }
+
+    /**
+     * Appends the inserted lines to the data file. The line of a person
+     * deleted since the last checkpoint is still in the data file, so it is
+     * replaced at the next checkpoint instead.
+     *
+     * @param replayed whether the lines come from the log after a crash, when
+     * the lines already appended before it are skipped
+     */
+    private void applyInsert(Collection<String> lines, boolean replayed) throws IOException {
+        HashSet<String> registered = new HashSet<>();
+        if (replayed) {
+            ArrayList<String> nifs = new ArrayList<>();
+            for (String line : lines) {
+                nifs.add(nif(line));
+            }
+            registered = inFile(nifs);
+        }
+        ArrayList<String> appended = new ArrayList<>();
+        for (String line : lines) {
+            String nif = nif(line);
+            if (deleted.remove(nif)) {
+                updated.put(nif, line);
+            } else if (!replayed || registered.add(nif)) {
+                appended.add(line);
+            }
+        }
+        append(appended);
+    }
+
+    /**
+     * Keeps the lines of the registered people until the next checkpoint.
+     *
+     * @param released where the photos to release once the log is on disk
+     * are added, or null when the log is replayed: they were released before
+     * the crash
+     * @return lines of the registered people
+     */
+    private ArrayList<String> applyUpdate(Collection<String> lines, ArrayList<String> released) throws IOException {
+        ArrayList<String> nifs = new ArrayList<>();
+        for (String line : lines) {
+            nifs.add(nif(line));
+        }
+        HashSet<String> registered = inFile(nifs);
+        ArrayList<String> changed = new ArrayList<>();
+        for (String line : lines) {
+            String nif = nif(line);
+            if (registered.contains(nif) && !deleted.contains(nif)) {
+                String previous = updated.put(nif, line);
+                if (previous != null && released != null) {
+                    released.add(photoPath(previous));
+                }
+                changed.add(line);
+            } else if (released != null) {
+                released.add(photoPath(line));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Keeps the NIFs of the registered people until the next checkpoint.
+     *
+     * @param released as in applyUpdate()
+     * @return NIFs of the registered people
+     */
+    private HashSet<String> applyDelete(Collection<String> nifs, ArrayList<String> released) throws IOException {
+        HashSet<String> registered = inFile(nifs);
+        HashSet<String> changed = new HashSet<>();
+        for (String nif : nifs) {
+            if (registered.contains(nif) && deleted.add(nif)) {
+                String previous = updated.remove(nif);
+                if (previous != null && released != null) {
+                    released.add(photoPath(previous));
+                }
+                changed.add(nif);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the line of the person and, if it has photo, saves it in the
+     * "Photos" folder.
+     */
+    private String format(Person p) throws IOException {
+        String line;
         if (p.getDateOfBirth() != null) {
             DateFormat dateFormat = new SimpleDateFormat("yyy/MM/dd");
             String dateAsString = dateFormat.format(p.getDateOfBirth());
-            bw.write(p.getName() + "\t" + p.getNif() + "\t" + p.getPhoneNumber() +"\t"+ p.getPostalCode()+"\t" + dateAsString + "\t");
+            line = p.getName() + "\t" + p.getNif() + "\t" + p.getPhoneNumber() + "\t" + p.getPostalCode() + "\t" + dateAsString + "\t";
         } else {
-            bw.write(p.getName() + "\t" + p.getNif() + "\t" + p.getPhoneNumber() +"\t"+ p.getPostalCode()+ "\t" + "null" + "\t");
-        }
-        if (p.getPhoto() != null) {
-            FileOutputStream out;
-            BufferedOutputStream outB;
-            String fileName = Routes.FILE.getFolderPhotos() + sep + p.getNif() + ".png";         
-            out = new FileOutputStream(fileName);
-            outB = new BufferedOutputStream(out);
-            BufferedImage bi = new BufferedImage(p.getPhoto().getImage().getWidth(null),
-                    p.getPhoto().getImage().getHeight(null),
-                    BufferedImage.TYPE_INT_ARGB);
-            bi.getGraphics().drawImage(p.getPhoto().getImage(), 0, 0, null);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(bi, "png", baos);
-            baos.flush();
-            byte[] img = baos.toByteArray();
-            baos.close();
-            for (int i = 0; i < img.length; i++) {
-                outB.write(img[i]);
-            }
-            outB.flush();
-            outB.close();
-            bw.write(fileName + "\n");
-        } else {
-            bw.write("null" + "\n");
+            line = p.getName() + "\t" + p.getNif() + "\t" + p.getPhoneNumber() + "\t" + p.getPostalCode() + "\t" + "null" + "\t";
+        }
+        if (p.hasPhoto()) {
+            return line + photos.store(p.getPhotoHandle());
+        }
+        return line + "null";
+    }
+
+    private static String photoPath(String line) {
+        return line.split("\t")[5];
+    }
+
+    private void release(Collection<String> paths) throws IOException {
+        for (String path : paths) {
+            photos.release(path);
+        }
+    }
+
+    /**
+     * Returns the given NIFs that have a line in the data file, scanning only
+     * the second column of every line.
+     */
+    private HashSet<String> inFile(Collection<String> nifs) throws IOException {
+        HashSet<String> found = new HashSet<>();
+        BufferedReader br = new BufferedReader(new FileReader(dataFile));
+        String line = br.readLine();
+        while (line != null && found.size() < nifs.size()) {
+            String nif = nif(line);
+            if (nifs.contains(nif)) {
+                found.add(nif);
+            }
+            line = br.readLine();
+        }
+        br.close();
+        return found;
+    }
+
+    /**
+     * Appends the lines at the end of the data file.
+     */
+    private void append(Collection<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        BufferedWriter bw = new BufferedWriter(new FileWriter(dataFile, true));
+        for (String line : lines) {
+            bw.write(line + "\n");
         }
         bw.flush();
         bw.close();
     }
 
-    @Override
-    public void delete(Person p) throws IOException {
-        String sep = File.separator;
-        RandomAccessFile rafRW;
-        rafRW = new RandomAccessFile(Routes.FILE.getDataFile(), "rw");
-        String textoNuevo = "";
-        while (rafRW.getFilePointer() < rafRW.length()) {
-            String l = rafRW.readLine();
-            String d[] = l.split("\t");
-            if (p.getNif().equals(d[1])) {
-                if (!d[5].equals("null")) {
-                    File photoFile = new File(Routes.FILE.getFolderPhotos() + sep + p.getNif()
-                            + ".png");
-                    photoFile.delete();
-                }
+    /**
+     * Writes aside, in a single pass, the data file with the updated and
+     * deleted people of the memory, and forces it to disk.
+     *
+     * @return photos of the lines replaced or dropped
+     */
+    private ArrayList<String> rewrite() throws IOException {
+        ArrayList<String> released = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new FileReader(dataFile));
+        FileOutputStream fos = new FileOutputStream(dataFile + ".tmp");
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos));
+        String line = br.readLine();
+        while (line != null) {
+            String nif = nif(line);
+            String newLine = updated.get(nif);
+            if (newLine != null) {
+                bw.write(newLine + "\n");
+                released.add(photoPath(line));
+            } else if (!deleted.contains(nif)) {
+                bw.write(line + "\n");
             } else {
-                textoNuevo += d[0] + "\t" + d[1] + "\t" + d[2] + "\t" + d[3] + "\t" + d[4] + d[5]
-                        + "\n";
+                released.add(photoPath(line));
             }
+            line = br.readLine();
         }
-        rafRW.setLength(0);
-        rafRW.writeBytes(textoNuevo);
-        rafRW.close();
+        br.close();
+        bw.flush();
+        fos.getChannel().force(true);
+        bw.close();
+        released.removeIf("null"::equals);
+        return released;
     }
 
     @Override
-    public void deleteAll() throws IOException {
-        File file = new File(Routes.FILE.getDataFile());
-        file.delete();
-        file.createNewFile();
-        file = new File(Routes.FILE.getFolderPhotos());
-        for(File f : file.listFiles())
-            f.delete();
+    public void delete(Person p) throws IOException {
+        deleteIfPresent(p);
+    }
+
+    @Override
+    public synchronized void deleteAll() throws IOException {
+        log.commit(record(LOG_DELETE_ALL, Collections.emptyList()));
+        clear();
+        index = null;
+        indexed = null;
+        checkpoint();
     }
     
     @Override
     public void update(Person p) throws IOException {
-        delete(p);
-        insert(p);
+        updateAll(Collections.singletonList(p));
+    }
+
+    private void clear() throws IOException {
+        File file = new File(dataFile);
+        file.delete();
+        file.createNewFile();
+        updated.clear();
+        deleted.clear();
+        photos.clear();
+    }
+
+    /**
+     * Record of the log: the operation in the first line and a line of the
+     * data file, a NIF or the path of a photo in every other line.
+     */
+    private static byte[] record(char operation, Collection<String> items) {
+        StringBuilder record = new StringBuilder().append(operation);
+        for (String item : items) {
+            record.append('\n').append(item);
+        }
+        return record.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Brings the storage up to date after a crash: drops the line cut in the
+     * middle of an append and does again the operations of the log. The
+     * inserts already appended are skipped and the updates and deletes are
+     * kept in memory again, so every operation can be done twice. A
+     * checkpoint whose record is in the log was cut after its new data file
+     * was on disk, so it is completed.
+     */
+    private void recover() throws IOException {
+        dropIncompleteLine();
+        for (byte[] record : log.replay()) {
+            String[] items = new String(record, StandardCharsets.UTF_8).split("\n");
+            List<String> lines = Arrays.asList(items).subList(1, items.length);
+            switch (items[0].charAt(0)) {
+                case LOG_INSERT:
+                    applyInsert(lines, true);
+                    break;
+                case LOG_UPDATE:
+                    applyUpdate(lines, null);
+                    break;
+                case LOG_DELETE:
+                    applyDelete(lines, null);
+                    break;
+                case LOG_CHECKPOINT:
+                    completeCheckpoint(lines);
+                    break;
+                default:
+                    clear();
+            }
+        }
+        Files.deleteIfExists(Paths.get(dataFile + ".tmp"));
+        checkpoint();
+    }
+
+    private void dropIncompleteLine() throws IOException {
+        try ( RandomAccessFile raf = new RandomAccessFile(dataFile, "rw")) {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.readByte() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            raf.setLength(end);
+        }
+    }
+
+    private void checkpointIfNeeded() throws IOException {
+        if (log.size() >= CHECKPOINT_BYTES) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes the updates and deletes of the memory to the data file, forces
+     * it to disk and empties the log, whose operations are all in the data
+     * file now. The new data file is written aside and a record with the
+     * photos to release is logged before it replaces the data file, so that
+     * a crash never leaves the data file incomplete nor releases a photo
+     * twice.
+     */
+    private void checkpoint() throws IOException {
+        if (updated.isEmpty() && deleted.isEmpty()) {
+            try ( FileChannel channel = FileChannel.open(Paths.get(dataFile), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            log.reset();
+            return;
+        }
+        ArrayList<String> released = rewrite();
+        log.commit(record(LOG_CHECKPOINT, released));
+        completeCheckpoint(released);
+    }
+
+    /**
+     * Replaces the data file with the one written aside, if it is not
+     * replaced yet, empties the log and releases the photos of the lines
+     * replaced or dropped. A crash before all of them are released leaves
+     * some photo unused, never one released twice.
+     */
+    private void completeCheckpoint(Collection<String> released) throws IOException {
+        Path tmp = Paths.get(dataFile + ".tmp");
+        if (Files.exists(tmp)) {
+            Files.move(tmp, Paths.get(dataFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        updated.clear();
+        deleted.clear();
+        log.reset();
+        release(released);
     }
 
 }
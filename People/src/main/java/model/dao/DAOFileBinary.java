@@ -0,0 +1,78 @@
+package model.dao;
+
+import model.entity.Person;
+import start.Routes;
+
+import java.io.IOException;
+
+/**
+ * This class implements the IDAO interface and completes the code of the
+ * functions so that they can work with a binary file. User data is saved in
+ * the "dataFile.bin" file as the log of DAOLogFile whose records hold the
+ * person encoded by PersonCodec, and the photos are saved in the
+ * PhotoRepository of the "Photos" folder.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOFileBinary extends DAOLogFile {
+
+    private static final int MAGIC = 0x5042494E;
+
+    private final PhotoRepository photos;
+
+    public DAOFileBinary() throws IOException {
+        this(Routes.FILEB.getDataFile(), Routes.FILEB.getFolderPhotos());
+    }
+
+    /**
+     * @param dataFile path of the data file
+     * @param folderPhotos folder of the photos
+     * @throws IOException
+     */
+    public DAOFileBinary(String dataFile, String folderPhotos) throws IOException {
+        super(dataFile, MAGIC);
+        photos = new PhotoRepository(folderPhotos);
+        try {
+            open();
+        } catch (ClassNotFoundException ex) {
+            //Only the conversion of serialized formats loads classes
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    protected byte[] encode(Person p) throws IOException {
+        return PersonCodec.encode(p, p.hasPhoto() ? photos.store(p.getPhotoHandle()) : null);
+    }
+
+    @Override
+    protected Person decode(byte[] payload) throws IOException {
+        return PersonCodec.decode(payload);
+    }
+
+    @Override
+    protected String nif(byte[] payload) throws IOException {
+        return PersonCodec.nif(payload);
+    }
+
+    @Override
+    protected boolean discards() {
+        return true;
+    }
+
+    /**
+     * The photo of a person replaced or deleted is released.
+     */
+    @Override
+    protected void discarded(byte[] payload) throws IOException {
+        photos.release(PersonCodec.photo(payload));
+    }
+
+    @Override
+    public synchronized void deleteAll() throws IOException {
+        super.deleteAll();
+        photos.clear();
+    }
+
+}
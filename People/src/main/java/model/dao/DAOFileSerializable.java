@@ -3,10 +3,13 @@ package model.dao;
 import model.entity.Person;
 import start.Routes;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -15,161 +18,76 @@ import java.util.ArrayList;
 /**
  * This class implements the IDAO interface and completes the code of the
  * functions so that they can work with files to store objects. User data is
- * saved in the "dataFileS.ser" file and the associated photos, if any, are
- * saved with the name NIF.png in the "Photos" folder.
+ * saved in the "dataFile.ser" file, photos included, as the log of DAOLogFile
+ * whose records hold the NIF and the serialized person.
  *
  * @author Francesc Perez
  * @version 1.1.0
  */
-public class DAOFileSerializable implements IDAO {
+public class DAOFileSerializable extends DAOLogFile {
 
-    @Override
-    public Person read(Person p) throws IOException, ClassNotFoundException {
-        Person personToRead = null;
-        FileInputStream fIS = null;
-        ObjectInputStream o = null;
-        try {
-            fIS = new FileInputStream(Routes.FILES.getDataFile());
-            o = new ObjectInputStream(fIS);
-            Person pr;
-            while ((pr = (Person) o.readObject()) != null) {
-                if (pr.getNif().equals(p.getNif())) {
-                    personToRead = pr;
-                    break;
-                }
-            }
-            o.close();
-        } catch (java.io.EOFException ex) {
-            //Do nothing
-//            System.out.println("El archivo está vacío y no se puede crear"
-//                    + "el objeto ObjectInputStream");
-        } finally {
-            if (o != null) {
-                o.close();
-            }
-            if (fIS != null) {
-                fIS.close();
-            }
-        }
-        return personToRead;
+    private static final int MAGIC = 0x50534552;
+
+    public DAOFileSerializable() throws IOException, ClassNotFoundException {
+        this(Routes.FILES.getDataFile());
     }
 
-    @Override
-    public ArrayList<Person> readAll() throws IOException, ClassNotFoundException {
-        ArrayList<Person> people = new ArrayList<>();
-        ObjectInputStream ois = null;
-        FileInputStream fIS = null;
-        try {
-            
-            fIS = new FileInputStream(Routes.FILES.getDataFile());
-            ois = new ObjectInputStream(fIS);
-            Person pr;
-            while ((pr = (Person) ois.readObject()) != null) {
-                people.add(pr);
-            }
-            ois.close();
-        } catch (java.io.EOFException ex) {
-            //Do nothing
-//            System.out.println("El archivo está vacío y no se puede crear"
-//                    + "el objeto ObjectInputStream");
-        } finally {
-            if (ois != null) {
-                ois.close();
-            }
-            if (fIS != null) {
-                fIS.close();
-            }
-        }
-        
-        return people;
+    /**
+     * Opens the given file. A file written with the former format, a single
+     * ObjectOutputStream, is converted.
+     *
+     * @param dataFile path of the data file
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public DAOFileSerializable(String dataFile) throws IOException, ClassNotFoundException {
+        super(dataFile, MAGIC);
+        open();
     }
 
+    /**
+     * Payload of a person record: the NIF followed by the serialized person.
+     */
     @Override
-    public void delete(Person p) throws IOException, ClassNotFoundException {
-        ArrayList<Person> peopleRead = new ArrayList<>();
-        FileInputStream fIS = null;
-        ObjectInputStream ois = null;
-        try {
-            fIS = new FileInputStream(Routes.FILES.getDataFile());
-            ois = new ObjectInputStream(fIS);
-            Person pr;
-            while ((pr = (Person) ois.readObject()) != null) {
-                if (!pr.getNif().equals(p.getNif())) {
-                    peopleRead.add(pr);
-                }
-            }
-        } catch (java.io.EOFException ex) {
-            //Do nothing
-//            System.out.println("El archivo está vacío y no se puede crear"
-//                    + "el objeto ObjectInputStream");
-        }finally {
-            if (ois != null) {
-                ois.close();
-            }
-            if (fIS != null) {
-                fIS.close();
-            }
-        }
-        ObjectOutputStream oos;
-        FileOutputStream fOS;
-        fOS = new FileOutputStream(Routes.FILES.getDataFile());
-        oos = new ObjectOutputStream(fOS);
-        for (Person pf : peopleRead) {
-            oos.writeObject(pf);
-        }
+    protected byte[] encode(Person p) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeUTF(p.getNif());
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(p);
         oos.flush();
-        oos.close();
+        return baos.toByteArray();
     }
 
     @Override
-    public void deleteAll() throws IOException, ClassNotFoundException {
-        File file = new File(Routes.FILES.getDataFile());
-        file.delete();
-        file.createNewFile();
+    protected Person decode(byte[] payload) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        return (Person) new ObjectInputStream(in).readObject();
     }
 
     @Override
-    public void insert(Person p) throws IOException, ClassNotFoundException {
-        ArrayList<Person> personRead = new ArrayList<>();
-        FileInputStream fIS = null;
-        ObjectInputStream ois = null;
-        try {
-            fIS = new FileInputStream(Routes.FILES.getDataFile());
-            ois = new ObjectInputStream(fIS);
+    protected String nif(byte[] payload) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+    }
+
+    /**
+     * Reads the people saved with the former format, one ObjectOutputStream
+     * for the whole file, and writes them again with the current one. The
+     * former file is only replaced once the new one is on disk.
+     */
+    @Override
+    protected void convertFormerFormat() throws IOException, ClassNotFoundException {
+        ArrayList<Person> people = new ArrayList<>();
+        try ( ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(getDataFile())))) {
             Person pr;
             while ((pr = (Person) ois.readObject()) != null) {
-                personRead.add(pr);
-            }
-        } catch (java.io.EOFException ex) {
-            //Do nothing
-//            System.out.println("El archivo está vacío y no se puede crear"
-//                   + "el objeto ObjectInputStream");
-        } finally {
-            if (ois != null) {
-                ois.close();
-            }
-            if (fIS != null) {
-                fIS.close();
+                people.add(pr);
             }
+        } catch (EOFException ex) {
+            //End of the former file
         }
-        ObjectOutputStream oos;
-        FileOutputStream fOS;
-        fOS = new FileOutputStream(Routes.FILES.getDataFile());
-        oos = new ObjectOutputStream(fOS);
-        personRead.add(p);
-        for (Person pf : personRead) {
-            oos.writeObject(pf);
-        }
-        fOS.flush();
-        oos.flush();
-        oos.close();
-        fOS.close();
-    }
-
-    @Override
-    public void update(Person p) throws FileNotFoundException, IOException, ClassNotFoundException{
-        delete(p);
-        insert(p);
+        replaceFile(people);
     }
 
 }
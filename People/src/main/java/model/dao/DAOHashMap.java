@@ -1,13 +1,16 @@
 package model.dao;
 
 import model.entity.Person;
+import model.entity.PersonSummary;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 
 /**
  * This class implements the IDAO interface and completes the function code
  * blocks so that they can operate with a HashMap structure. The NIF is used as
- * the key.
+ * the key. A SecondaryIndex of the people is kept for the searches.
  *
  * @author Francesc Perez
  * @version 1.1.0
@@ -15,6 +18,7 @@ import java.util.HashMap;
 public class DAOHashMap implements IDAO {
 
     HashMap<String, Person> people = new HashMap();
+    private final SecondaryIndex<Person> index = new SecondaryIndex<>();
 
     @Override
     public Person read(Person p){
@@ -24,21 +28,45 @@ public class DAOHashMap implements IDAO {
     @Override
     public void insert(Person p) {
         people.put(p.getNif(), p);
+        index.put(p, p);
     }
     
     @Override
     public void delete(Person p){
-        people.remove(p.getNif());
+        if (people.remove(p.getNif()) != null) {
+            index.remove(p);
+        }
+    }
+    
+    @Override
+    public boolean insertIfAbsent(Person p) {
+        if (people.putIfAbsent(p.getNif(), p) != null) {
+            return false;
+        }
+        index.put(p, p);
+        return true;
+    }
+    
+    @Override
+    public boolean deleteIfPresent(Person p) {
+        if (people.remove(p.getNif()) == null) {
+            return false;
+        }
+        index.remove(p);
+        return true;
     }
     
     @Override
     public void deleteAll(){
         people.clear();
+        index.clear();
     }
     
     @Override
     public void update(Person p) {
-        people.replace(p.getNif(), p);
+        if (people.replace(p.getNif(), p) != null) {
+            index.put(p, p);
+        }
     }
 
     @Override
@@ -46,4 +74,62 @@ public class DAOHashMap implements IDAO {
         return new ArrayList<>(people.values());
     }
 
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) {
+        ArrayList<Person> page = new ArrayList<>(Math.min(limit, people.size()));
+        people.values().stream().skip(offset).limit(limit).forEach(page::add);
+        return page;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) {
+        return index.findByPostalCode(postalCode);
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) {
+        return index.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return index.findByBirthDateRange(from, to);
+    }
+
+    @Override
+    public int count() {
+        return people.size();
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) {
+        for (Person p : people) {
+            insert(p);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) {
+        for (Person p : people) {
+            update(p);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) {
+        for (Person p : people) {
+            delete(p);
+        }
+    }
+
 }
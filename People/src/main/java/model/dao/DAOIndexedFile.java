@@ -0,0 +1,588 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import start.Routes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * This class implements the IDAO interface over an append-only record file.
+ * Every insert or update appends a new record at the end of "dataFile.log"
+ * and every delete appends a tombstone, so no write ever rewrites the file.
+ * Every record carries a CRC32 of its payload, so the replay stops at a
+ * record torn or corrupted by a crash.
+ * An index NIF -> byte offset is kept in memory and saved in "dataFile.idx",
+ * which makes a read cost a single seek. The log begins with a generation
+ * number that changes whenever the log is rewritten, and the index file
+ * remembers the generation and up to which length of the log it is valid, so
+ * on start-up only the tail of the log has to be replayed and an index of
+ * another log is never used. Superseded records and tombstones are removed by
+ * a background compaction. Photos are saved, as in DAOFile, in the
+ * PhotoRepository of the "Photos" folder. The first search decodes the live
+ * records into a SecondaryIndex, which the writes keep up to date.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOIndexedFile implements IDAO {
+
+    private static final byte RECORD_PERSON = 1;
+    private static final byte RECORD_TOMBSTONE = 2;
+    private static final int INDEX_MAGIC = 0x50494459;
+    private static final int LOG_MAGIC = 0x504C4743;
+    //Logs of the former format, whose records had no CRC32
+    private static final int LOG_MAGIC_WITHOUT_CRC = 0x504C4F47;
+    //Header of the log: magic (4 bytes) + generation (8 bytes)
+    private static final int LOG_HEADER = 12;
+    //Header of every record: type (1 byte) + payload length (4 bytes) +
+    //CRC32 of the payload (4 bytes)
+    private static final int RECORD_HEADER = 9;
+    private static final int RECORD_HEADER_WITHOUT_CRC = 5;
+    //Compaction runs when the dead bytes exceed both thresholds
+    private static final long COMPACTION_MIN_DEAD_BYTES = 1024 * 1024;
+    private static final long COMPACTION_CHECK_SECONDS = 30;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final PhotoRepository photos;
+    private final HashMap<String, Long> index = new HashMap<>();
+    private final ScheduledExecutorService compactor;
+    private final Thread shutdownHook;
+    private RandomAccessFile log;
+    private long generation;
+    private long deadBytes;
+    private int recordHeader = RECORD_HEADER;
+    //Offsets of the live records in file order, sorted again after a write
+    private long[] positions;
+    //Built by the first search
+    private SecondaryIndex<String> secondary;
+
+    public DAOIndexedFile() throws IOException {
+        this(Routes.FILEI.getDataFile(), Routes.FILEI.getFolderPath() + File.separator + "dataFile.idx",
+                Routes.FILEI.getFolderPhotos());
+    }
+
+    /**
+     * Opens (or creates) the store located in the given paths. If the saved
+     * index is missing or belongs to another generation of the log, the whole
+     * log is replayed, otherwise only the records written after it. A log of
+     * the former format is compacted into the current one.
+     *
+     * @param dataFile path of the append-only log
+     * @param indexFile path of the NIF -> offset index
+     * @param folderPhotos folder where the photos are saved
+     * @throws IOException
+     */
+    public DAOIndexedFile(String dataFile, String indexFile, String folderPhotos) throws IOException {
+        this.dataFile = new File(dataFile);
+        this.indexFile = new File(indexFile);
+        this.photos = new PhotoRepository(folderPhotos);
+        this.log = new RandomAccessFile(this.dataFile, "rw");
+        if (log.length() < LOG_HEADER) {
+            Files.deleteIfExists(this.indexFile.toPath());
+            log.setLength(0);
+            log.writeInt(LOG_MAGIC);
+            log.writeLong(0);
+        }
+        log.seek(0);
+        int magic = log.readInt();
+        if (magic == LOG_MAGIC_WITHOUT_CRC) {
+            recordHeader = RECORD_HEADER_WITHOUT_CRC;
+        } else if (magic != LOG_MAGIC) {
+            log.close();
+            throw new IOException(dataFile + " is not a log of people");
+        }
+        generation = log.readLong();
+        replay(loadIndex());
+        if (recordHeader != RECORD_HEADER) {
+            compact();
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DAOIndexedFile-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, COMPACTION_CHECK_SECONDS,
+                COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+        shutdownHook = new Thread(this::close, "DAOIndexedFile-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public synchronized Person read(Person p) throws IOException {
+        Long offset = index.get(p.getNif());
+        if (offset == null) {
+            return null;
+        }
+        return decodePerson(readRecord(offset));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readAll() throws IOException {
+        ArrayList<Person> people = new ArrayList<>(index.size());
+        //Offsets are read in file order so the disk is walked forward only
+        for (long offset : positions()) {
+            people.add(decodePerson(readRecord(offset)));
+        }
+        return people;
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readPage(int offset, int limit) throws IOException {
+        ArrayList<Person> people = new ArrayList<>();
+        long[] offsets = positions();
+        long end = Math.min(offsets.length, (long) offset + limit);
+        for (int i = offset; i < end; i++) {
+            people.add(decodePerson(readRecord(offsets[i])));
+        }
+        return people;
+    }
+
+    /**
+     * The offsets are only sorted by the first read after a write, so paging
+     * through an unchanged store costs a seek per person.
+     */
+    private long[] positions() {
+        if (positions == null) {
+            positions = index.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        return positions;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws IOException {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws IOException {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByPostalCode(String postalCode) throws IOException {
+        return people(secondary().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByNamePrefix(String prefix) throws IOException {
+        return people(secondary().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByBirthDateRange(Date from, Date to) throws IOException {
+        return people(secondary().findByBirthDateRange(from, to));
+    }
+
+    private SecondaryIndex<String> secondary() throws IOException {
+        if (secondary == null) {
+            SecondaryIndex<String> built = new SecondaryIndex<>();
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                built.put(entry.getKey(), decodePerson(readRecord(entry.getValue())));
+            }
+            secondary = built;
+        }
+        return secondary;
+    }
+
+    private ArrayList<Person> people(ArrayList<String> nifs) throws IOException {
+        ArrayList<Person> people = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            people.add(decodePerson(readRecord(index.get(nif))));
+        }
+        return people;
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(Person p) throws IOException {
+        if (index.containsKey(p.getNif())) {
+            return false;
+        }
+        insert(p);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfPresent(Person p) throws IOException {
+        if (!index.containsKey(p.getNif())) {
+            return false;
+        }
+        delete(p);
+        return true;
+    }
+
+    @Override
+    public synchronized int count() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void insert(Person p) throws IOException {
+        insertAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void update(Person p) throws IOException {
+        updateAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void delete(Person p) throws IOException {
+        deleteAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void insertAll(Collection<Person> people) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        long base = log.length();
+        LinkedHashMap<String, Long> offsets = new LinkedHashMap<>();
+        HashMap<String, String> stored = new HashMap<>();
+        long replacedBytes = 0;
+        for (Person p : people) {
+            String photoPath = null;
+            if (p.hasPhoto()) {
+                photoPath = photos.store(p.getPhotoHandle());
+            }
+            long position = base + batch.size();
+            Long replaced = offsets.put(p.getNif(), position);
+            if (replaced != null) {
+                //A NIF repeated in the batch: its former record is dead once written
+                replacedBytes += position - replaced;
+                photos.release(stored.get(p.getNif()));
+            }
+            stored.put(p.getNif(), photoPath);
+            frame(out, RECORD_PERSON, encode(p, photoPath));
+        }
+        writeRecords(batch);
+        deadBytes += replacedBytes;
+        positions = null;
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            Long previous = index.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                deadBytes += recordLength(previous);
+                photos.release(photoPath(previous));
+            }
+        }
+        if (secondary != null) {
+            for (Person p : people) {
+                secondary.put(p.getNif(), p);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Person> people) throws IOException {
+        ArrayList<Person> registered = new ArrayList<>();
+        for (Person p : people) {
+            if (index.containsKey(p.getNif())) {
+                registered.add(p);
+            }
+        }
+        insertAll(registered);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<Person> people) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        for (Person p : people) {
+            Long offset = index.remove(p.getNif());
+            if (offset != null) {
+                positions = null;
+                if (secondary != null) {
+                    secondary.remove(p.getNif());
+                }
+                deadBytes += recordLength(offset);
+                ByteArrayOutputStream nif = new ByteArrayOutputStream();
+                new DataOutputStream(nif).writeUTF(p.getNif());
+                frame(out, RECORD_TOMBSTONE, nif.toByteArray());
+                photos.release(photoPath(offset));
+            }
+        }
+        deadBytes += batch.size();
+        writeRecords(batch);
+    }
+
+    @Override
+    public synchronized void deleteAll() throws IOException {
+        Files.deleteIfExists(indexFile.toPath());
+        index.clear();
+        positions = null;
+        secondary = null;
+        deadBytes = 0;
+        recordHeader = RECORD_HEADER;
+        log.setLength(0);
+        log.writeInt(LOG_MAGIC);
+        log.writeLong(++generation);
+        saveIndex();
+        photos.clear();
+    }
+
+    /**
+     * Rewrites the log keeping only the live records and saves the new index.
+     * The new log, of the next generation, is written into a temporary file
+     * and forced to disk. Then the saved index is deleted and the temporary
+     * file replaces the log, so a compaction interrupted at any step leaves
+     * either the old log or the new one, and never an index of the other.
+     *
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+        File tmp = new File(dataFile.getPath() + ".tmp");
+        HashMap<String, Long> newIndex = new HashMap<>();
+        long[] offsets = positions();
+        FileOutputStream file = new FileOutputStream(tmp);
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(LOG_MAGIC);
+            out.writeLong(generation + 1);
+            long position = LOG_HEADER;
+            for (long offset : offsets) {
+                byte[] payload = readRecord(offset);
+                String nif = new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+                frame(out, RECORD_PERSON, payload);
+                newIndex.put(nif, position);
+                position += RECORD_HEADER + payload.length;
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.deleteIfExists(indexFile.toPath());
+        log.close();
+        try {
+            Files.move(tmp.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            log = new RandomAccessFile(dataFile, "rw");
+        }
+        generation++;
+        index.clear();
+        index.putAll(newIndex);
+        positions = null;
+        deadBytes = 0;
+        recordHeader = RECORD_HEADER;
+        saveIndex();
+    }
+
+    /**
+     * Saves the index and releases the log file. Called automatically when the
+     * application closes.
+     */
+    public synchronized void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            //The JVM is already shutting down and the hook closes
+        }
+        compactor.shutdownNow();
+        try {
+            if (log.getChannel().isOpen()) {
+                saveIndex();
+                log.close();
+            }
+        } catch (IOException ex) {
+            //The log is always the source of truth, the index is rebuilt
+        }
+    }
+
+    private void compactIfNeeded() {
+        synchronized (this) {
+            try {
+                if (deadBytes > COMPACTION_MIN_DEAD_BYTES && deadBytes > log.length() / 2) {
+                    compact();
+                }
+            } catch (IOException ex) {
+                //The next check will try again
+            }
+        }
+    }
+
+    private byte[] encode(Person p, String photoPath) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeUTF(p.getNif());
+        out.writeUTF(p.getName() != null ? p.getName() : "");
+        out.writeUTF(p.getPhoneNumber() != null ? p.getPhoneNumber() : "");
+        out.writeUTF(p.getPostalCode() != null ? p.getPostalCode() : "");
+        out.writeLong(p.getDateOfBirth() != null ? p.getDateOfBirth().getTime() : Long.MIN_VALUE);
+        out.writeUTF(photoPath != null ? photoPath : "");
+        return baos.toByteArray();
+    }
+
+    private void frame(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.writeInt(crc(payload));
+        out.write(payload);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends the given records at the end of the log with a single write.
+     */
+    private void writeRecords(ByteArrayOutputStream records) throws IOException {
+        if (records.size() == 0) {
+            return;
+        }
+        log.seek(log.length());
+        log.write(records.toByteArray());
+    }
+
+    private byte[] readRecord(long offset) throws IOException {
+        log.seek(offset + 1);
+        byte[] payload = new byte[log.readInt()];
+        log.seek(offset + recordHeader);
+        log.readFully(payload);
+        return payload;
+    }
+
+    private long recordLength(long offset) throws IOException {
+        log.seek(offset + 1);
+        return recordHeader + log.readInt();
+    }
+
+    private Person decodePerson(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String nif = in.readUTF();
+        String name = in.readUTF();
+        String phoneNumber = in.readUTF();
+        String postalCode = in.readUTF();
+        long time = in.readLong();
+        String photoPath = in.readUTF();
+        Date date = time != Long.MIN_VALUE ? new Date(time) : null;
+        Person p = new Person(name, nif, phoneNumber, postalCode, date, null);
+        if (!photoPath.isEmpty()) {
+            p.setPhotoHandle(Photo.ofPath(photoPath));
+        }
+        return p;
+    }
+
+    private String photoPath(long offset) throws IOException {
+        Photo photo = decodePerson(readRecord(offset)).getPhotoHandle();
+        return photo != null ? photo.getPath() : null;
+    }
+
+    /**
+     * Loads the saved index, if it exists and is consistent with the log: of
+     * the same generation and not longer than it.
+     *
+     * @return length of the log covered by the loaded index
+     */
+    private long loadIndex() {
+        if (!indexFile.exists()) {
+            return LOG_HEADER;
+        }
+        try ( DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readLong() != generation) {
+                return LOG_HEADER;
+            }
+            long covered = in.readLong();
+            long dead = in.readLong();
+            int size = in.readInt();
+            if (covered < LOG_HEADER || covered > log.length()) {
+                return LOG_HEADER;
+            }
+            for (int i = 0; i < size; i++) {
+                index.put(in.readUTF(), in.readLong());
+            }
+            deadBytes = dead;
+            return covered;
+        } catch (IOException ex) {
+            index.clear();
+            deadBytes = 0;
+            return LOG_HEADER;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream file = new FileOutputStream(tmp);
+        try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(generation);
+            out.writeLong(log.length());
+            out.writeLong(deadBytes);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Applies to the index every record written after the given position. The
+     * log is cut at the first record that is incomplete or whose CRC32 does
+     * not match, the one being written when the application crashed.
+     */
+    private void replay(long from) throws IOException {
+        long position = from;
+        long length = log.length();
+        log.seek(position);
+        try {
+            while (position + recordHeader <= length) {
+                byte type = log.readByte();
+                int size = log.readInt();
+                int checksum = recordHeader == RECORD_HEADER ? log.readInt() : 0;
+                if ((type != RECORD_PERSON && type != RECORD_TOMBSTONE) || size < 0
+                        || position + recordHeader + size > length) {
+                    break;
+                }
+                byte[] payload = new byte[size];
+                log.readFully(payload);
+                if (recordHeader == RECORD_HEADER && crc(payload) != checksum) {
+                    break;
+                }
+                String nif = new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+                Long previous = type == RECORD_PERSON ? index.put(nif, position) : index.remove(nif);
+                if (previous != null) {
+                    deadBytes += recordLength(previous);
+                    log.seek(position + recordHeader + size);
+                }
+                if (type == RECORD_TOMBSTONE) {
+                    deadBytes += recordHeader + size;
+                }
+                position += recordHeader + size;
+            }
+        } catch (EOFException ex) {
+            //Truncated record at the end of the log
+        }
+        if (position < length) {
+            log.setLength(position);
+        }
+    }
+
+}
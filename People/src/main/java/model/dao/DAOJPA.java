@@ -1,147 +1,390 @@
 package model.dao;
 
+import model.entity.Migration;
 import model.entity.Person;
+import model.entity.PersonPhoto;
+import model.entity.PersonSummary;
+import model.entity.Photo;
 import start.Routes;
 
-import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
-import javax.persistence.TypedQuery;
-import javax.swing.ImageIcon;
+import javax.persistence.PersistenceException;
 
 /**
  * This class implements the IDAO interface and completes the function code
  * blocks so that they can operate with object DDBB. The NIF is used as the key.
+ * The EntityManagers are reused from one operation to the next, people are
+ * read by primary key with find() and deleted with DELETE statements, without
+ * loading them.
+ *
+ * The photos are PersonPhoto entities apart from the people. read() returns
+ * the person with its photo; readAll() and readPage() return the people
+ * without reading their photos, each one is read by its own query the first
+ * time it is shown. readAllSummaries() and readSummaryPage() do not read the
+ * people as entities: a constructor expression selects only the fields of
+ * the lists. The photos of the former version of the database, inside
+ * the people, are moved to PersonPhoto the first time the database is
+ * opened, and a Migration records that they have been.
  *
  * @author Francesc Perez
  * @version 1.1.0
  */
 public class DAOJPA implements IDAO {
 
-    private EntityManagerFactory emf = Persistence.createEntityManagerFactory(Routes.DBO.getDbServerAddress());
-
-    private byte[] imageIconToBytes(ImageIcon icon) {
-        Image image = icon.getImage();
-        BufferedImage bufferedImage = new BufferedImage(
-                image.getWidth(null),
-                image.getHeight(null),
-                BufferedImage.TYPE_INT_ARGB
-        );
-        bufferedImage.getGraphics().drawImage(image, 0, 0, null);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    //People deleted by every statement of deleteAll(Collection)
+    private static final int DELETE_CHUNK = 1000;
+    private static final String JPQL_DELETE = "DELETE FROM Person p WHERE p.nif = :nif";
+    private static final String JPQL_DELETE_IN = "DELETE FROM Person p WHERE p.nif IN :nifs";
+    private static final String JPQL_DELETE_ALL = "DELETE FROM Person p";
+    //DELETE statements do not cascade, so the photos are deleted apart
+    private static final String JPQL_DELETE_PHOTO = "DELETE FROM PersonPhoto ph WHERE ph.nif = :nif";
+    private static final String JPQL_DELETE_PHOTO_IN = "DELETE FROM PersonPhoto ph WHERE ph.nif IN :nifs";
+    private static final String JPQL_DELETE_PHOTO_ALL = "DELETE FROM PersonPhoto ph";
+    //Only the fields of the lists, the photos are not even referenced
+    private static final String JPQL_SUMMARIES = "SELECT NEW model.entity.PersonSummary(p.nif, p.name, p.phoneNumber, p.postalCode, p.dateOfBirth, "
+            + "CASE WHEN p.photoJPA IS NOT NULL THEN TRUE ELSE FALSE END) FROM Person p ORDER BY p.nif";
+    private static final String JPQL_BY_POSTAL_CODE = "SELECT p FROM Person p WHERE p.postalCode = :postalCode ORDER BY p.nif";
+    private static final String JPQL_BY_NAME_PREFIX = "SELECT p FROM Person p WHERE p.name LIKE :prefix ESCAPE '!' ORDER BY p.name";
+    private static final String JPQL_BY_BIRTH_DATE = "SELECT p FROM Person p WHERE p.dateOfBirth BETWEEN :from AND :to ORDER BY p.dateOfBirth";
+    private static final String JPQL_FORMER_PHOTOS = "SELECT p FROM Person p WHERE p.photoOnlyJPA IS NOT NULL";
+    private static final String MIGRATION_FORMER_PHOTOS = "PersonPhoto";
+
+    private final EntityManagerFactory emf;
+    //EntityManagers not in use, the last one used first
+    private final ConcurrentLinkedDeque<EntityManager> idle = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Operation run with an EntityManager.
+     */
+    private interface Work<T> {
+
+        T run(EntityManager em) throws Exception;
+    }
+
+    public DAOJPA() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param properties properties that replace those of the persistence
+     * unit, for instance javax.persistence.jdbc.url with the path of an
+     * embedded database
+     */
+    public DAOJPA(Map<String, String> properties) {
+        emf = Persistence.createEntityManagerFactory(Routes.DBO.getDbServerAddress(), properties);
         try {
-            ImageIO.write(bufferedImage, "png", baos);
-        } catch (IOException e) {
-            return null;
+            moveFormerPhotos();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new PersistenceException("The photos of the database could not be moved.", ex);
         }
-        return baos.toByteArray();
     }
 
-    private ImageIcon bytesToImageIcon(byte[] imageBytes) {
-        ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes);
-        BufferedImage bufferedImage = null;
-        try {
-            bufferedImage = ImageIO.read(bais);
-        } catch (IOException e) {
+    /**
+     * Moves the photos kept inside the people by the former version of the
+     * database to PersonPhoto, in one transaction that also records the
+     * Migration. Once it is recorded the people are not queried again.
+     */
+    private void moveFormerPhotos() throws Exception {
+        transaction(em -> {
+            if (em.find(Migration.class, MIGRATION_FORMER_PHOTOS) != null) {
+                return null;
+            }
+            for (Person p : em.createQuery(JPQL_FORMER_PHOTOS, Person.class).getResultList()) {
+                p.moveFormerPhotoOnlyJPA();
+            }
+            em.persist(new Migration(MIGRATION_FORMER_PHOTOS));
             return null;
+        });
+    }
+
+    /**
+     * A photo that is already PNG or JPEG (read from the database or dropped
+     * from a file) is stored as it is, without decoding and encoding it again.
+     */
+    private byte[] photoBytes(Person p) throws IOException {
+        return PhotoRepository.encoded(p.getPhotoHandle());
+    }
+
+    @Override
+    public Person read(Person p) throws Exception {
+        return query(em -> withPhoto(em.find(Person.class, p.getNif())));
+    }
+
+    @Override
+    public ArrayList<Person> readAll() throws Exception {
+        return query(em -> withLazyPhotos(em.createQuery("SELECT p FROM Person p", Person.class).getResultList()));
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) throws Exception {
+        return query(em -> withLazyPhotos(em.createQuery("SELECT p FROM Person p ORDER BY p.nif", Person.class)
+                .setFirstResult(offset).setMaxResults(limit).getResultList()));
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws Exception {
+        return query(em -> new ArrayList<>(em.createQuery(JPQL_SUMMARIES, PersonSummary.class).getResultList()));
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws Exception {
+        return query(em -> new ArrayList<>(em.createQuery(JPQL_SUMMARIES, PersonSummary.class)
+                .setFirstResult(offset).setMaxResults(limit).getResultList()));
+    }
+
+    /**
+     * The searches use the indexes of the fields declared in Person, and do
+     * not read the photos.
+     */
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) throws Exception {
+        return query(em -> withLazyPhotos(em.createQuery(JPQL_BY_POSTAL_CODE, Person.class)
+                .setParameter("postalCode", postalCode).getResultList()));
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) throws Exception {
+        String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return query(em -> withLazyPhotos(em.createQuery(JPQL_BY_NAME_PREFIX, Person.class)
+                .setParameter("prefix", pattern).getResultList()));
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) throws Exception {
+        return query(em -> withLazyPhotos(em.createQuery(JPQL_BY_BIRTH_DATE, Person.class)
+                .setParameter("from", from).setParameter("to", to).getResultList()));
+    }
+
+    @Override
+    public int count() throws Exception {
+        return query(em -> em.createQuery("SELECT COUNT(p) FROM Person p", Long.class).getSingleResult().intValue());
+    }
+
+    @Override
+    public void insert(Person p) throws Exception {
+        if (p.hasPhoto()) {
+            p.setPhotoJPA(photoBytes(p));
         }
-        if (bufferedImage != null) {
-            return new ImageIcon(bufferedImage);
-        } else {
+        transaction(em -> {
+            em.persist(p);
             return null;
-        }
+        });
     }
 
+    /**
+     * The lookup and the persist run in the same transaction.
+     */
     @Override
-    public Person read(Person p) throws Exception {
-        Person personToReturn = null;
-        EntityManager em = emf.createEntityManager();
-        String query = "SELECT p FROM Person p WHERE p.nif = :value";
-        List<Person> people = em.createQuery(query, Person.class).setParameter("value", p.getNif()).getResultList();
-        if (!people.isEmpty()) {
-            personToReturn = people.get(0);
-            if (personToReturn.getPhotoOnlyJPA() != null) {
-                personToReturn.setPhoto(bytesToImageIcon(personToReturn.getPhotoOnlyJPA()));
+    public boolean insertIfAbsent(Person p) throws Exception {
+        return transaction(em -> {
+            if (em.find(Person.class, p.getNif()) != null) {
+                return false;
             }
-        }
-        em.close();
-        return personToReturn;
+            if (p.hasPhoto()) {
+                p.setPhotoJPA(photoBytes(p));
+            }
+            em.persist(p);
+            return true;
+        });
     }
 
     @Override
-    public ArrayList<Person> readAll() throws Exception {
-        EntityManager em = emf.createEntityManager();
-        String query = "SELECT p FROM Person p";
-        List<Person> people = em.createQuery(query, Person.class).getResultList();
+    public boolean deleteIfPresent(Person p) throws Exception {
+        return transaction(em -> {
+            em.createQuery(JPQL_DELETE_PHOTO).setParameter("nif", p.getNif()).executeUpdate();
+            return em.createQuery(JPQL_DELETE).setParameter("nif", p.getNif()).executeUpdate() > 0;
+        });
+    }
+
+    @Override
+    public void update(Person p) throws Exception {
+        transaction(em -> {
+            Person pC = em.find(Person.class, p.getNif());
+            if (pC != null) {
+                copyData(p, pC);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) throws Exception {
         for (Person p : people) {
-            if (p.getPhotoOnlyJPA() != null) {
-                p.setPhoto(bytesToImageIcon(p.getPhotoOnlyJPA()));
+            if (p.hasPhoto()) {
+                p.setPhotoJPA(photoBytes(p));
             }
         }
-        em.close();
-        return (ArrayList) people;
+        transaction(em -> {
+            for (Person p : people) {
+                em.persist(p);
+            }
+            return null;
+        });
     }
 
     @Override
-    public void insert(Person p) throws Exception {
-        EntityManager em = emf.createEntityManager();
-        if (p.getPhoto() != null) {
-            p.setPhotoOnlyJPA(imageIconToBytes(p.getPhoto()));
-        }
-        em.getTransaction().begin();
-        em.persist(p);
-        em.getTransaction().commit();
-        em.close();
+    public void updateAll(Collection<Person> people) throws Exception {
+        transaction(em -> {
+            for (Person p : people) {
+                Person pC = em.find(Person.class, p.getNif());
+                if (pC != null) {
+                    copyData(p, pC);
+                }
+            }
+            return null;
+        });
     }
 
+    /**
+     * One DELETE statement per DELETE_CHUNK people, all in one transaction.
+     */
     @Override
-    public void update(Person p) throws Exception {
-        EntityManager em = emf.createEntityManager();
-        em.getTransaction().begin();
-        Person pC = em.find(Person.class, p.getNif());
-        if (pC != null) {
-            pC.setName(p.getName());
-            pC.setDateOfBirth(p.getDateOfBirth());
-            if(p.getPhoto() != null)
-                pC.setPhotoOnlyJPA(imageIconToBytes(p.getPhoto()));
-            else
-                pC.setPhotoOnlyJPA(null);
-            em.getTransaction().commit();
+    public void deleteAll(Collection<Person> people) throws Exception {
+        ArrayList<String> nifs = new ArrayList<>(people.size());
+        for (Person p : people) {
+            nifs.add(p.getNif());
+        }
+        transaction(em -> {
+            for (int from = 0; from < nifs.size(); from += DELETE_CHUNK) {
+                List<String> chunk = nifs.subList(from, Math.min(from + DELETE_CHUNK, nifs.size()));
+                em.createQuery(JPQL_DELETE_PHOTO_IN).setParameter("nifs", chunk).executeUpdate();
+                em.createQuery(JPQL_DELETE_IN).setParameter("nifs", chunk).executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Copies the updatable data (everything but the NIF) into the managed
+     * entity.
+     */
+    private void copyData(Person p, Person pC) throws IOException {
+        pC.setName(p.getName());
+        pC.setPhoneNumber(p.getPhoneNumber());
+        pC.setPostalCode(p.getPostalCode());
+        pC.setDateOfBirth(p.getDateOfBirth());
+        if (p.hasPhoto()) {
+            pC.setPhotoJPA(photoBytes(p));
+        } else {
+            pC.setPhotoJPA(null);
         }
-        em.close();
     }
 
     @Override
     public void delete(Person p) throws Exception {
-        EntityManager em = emf.createEntityManager();
-        TypedQuery<Person> query = em.createQuery("SELECT p FROM Person p WHERE nif=: nifP", Person.class);
-        query.setParameter("nifP", p.getNif());
-        List<Person> personas = query.getResultList();
-        em.getTransaction().begin();
-        for (Person pR : personas) {
-            em.remove(pR);
-        }
-        em.getTransaction().commit();
+        transaction(em -> {
+            em.createQuery(JPQL_DELETE_PHOTO).setParameter("nif", p.getNif()).executeUpdate();
+            return em.createQuery(JPQL_DELETE).setParameter("nif", p.getNif()).executeUpdate();
+        });
     }
 
+    /**
+     * A single DELETE statement: the people are not loaded.
+     */
     @Override
     public void deleteAll() throws Exception {
-        EntityManager em = emf.createEntityManager();
-        TypedQuery<Person> query = em.createQuery("SELECT p FROM Person p", Person.class);
-        List<Person> personas = query.getResultList();
-        em.getTransaction().begin();
-        for (Person pR : personas) {
-            em.remove(pR);
+        transaction(em -> {
+            em.createQuery(JPQL_DELETE_PHOTO_ALL).executeUpdate();
+            return em.createQuery(JPQL_DELETE_ALL).executeUpdate();
+        });
+    }
+
+    /**
+     * Reads the photo while the person is managed.
+     */
+    private static Person withPhoto(Person p) {
+        if (p != null && p.hasPhotoJPA()) {
+            p.setPhotoHandle(Photo.ofBytes(p.getPhotoJPA()));
+        }
+        return p;
+    }
+
+    /**
+     * The photos are not read: each one is read by loadPhoto() the first
+     * time it is used.
+     */
+    private ArrayList<Person> withLazyPhotos(List<Person> people) {
+        for (Person p : people) {
+            if (p.hasPhotoJPA()) {
+                String nif = p.getNif();
+                p.setPhotoHandle(Photo.ofLoader(() -> loadPhoto(nif)));
+            }
+        }
+        return new ArrayList<>(people);
+    }
+
+    private byte[] loadPhoto(String nif) throws Exception {
+        return query(em -> {
+            PersonPhoto photo = em.find(PersonPhoto.class, nif);
+            return photo != null ? photo.getBytes() : null;
+        });
+    }
+
+    /**
+     * Runs the work with an EntityManager that is not being used by any other
+     * thread, reusing one of the idle ones if possible. Afterwards its
+     * persistence context is cleared, so the people returned are detached and
+     * the next operation reads them again from the database. An
+     * EntityManager that failed is closed instead of reused.
+     */
+    private <T> T query(Work<T> work) throws Exception {
+        EntityManager em = idle.pollFirst();
+        if (em == null) {
+            em = emf.createEntityManager();
+        }
+        boolean failed = true;
+        try {
+            T result = work.run(em);
+            failed = false;
+            return result;
+        } finally {
+            if (failed) {
+                em.close();
+            } else {
+                em.clear();
+                idle.offerFirst(em);
+            }
+        }
+    }
+
+    /**
+     * Runs the work in a transaction, that is rolled back if the work fails.
+     */
+    private <T> T transaction(Work<T> work) throws Exception {
+        return query(em -> {
+            em.getTransaction().begin();
+            try {
+                T result = work.run(em);
+                em.getTransaction().commit();
+                return result;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            }
+        });
+    }
+
+    /**
+     * Closes the EntityManagers and the connection to the database.
+     */
+    public void close() {
+        for (EntityManager em = idle.pollFirst(); em != null; em = idle.pollFirst()) {
+            em.close();
         }
-        em.getTransaction().commit();
+        emf.close();
     }
 
 }
@@ -0,0 +1,630 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Base of the storages that save the people in a single file as an
+ * appendable log: a header followed by length-prefixed records, each one
+ * holding a person encoded by the subclass, and a CRC32 of it. Inserts and
+ * updates append a new record and deletes append a tombstone, so no
+ * operation rewrites the file. The file is its own write-ahead log: every
+ * call forces its records to disk once, and after a crash the records are
+ * read up to the first one that is incomplete or whose CRC32 does not match.
+ * When the file is closed a trailing index block NIF -> offset is written,
+ * with a CRC32 of its own, so the next start loads the index instead of
+ * scanning the records. The next append first cuts the index block and forces
+ * the cut to disk, so no crash leaves a footer over records. The file is only
+ * rewritten, aside and then renamed, by compact() and by the conversion of a
+ * former format. The first search decodes
+ * the live records into a SecondaryIndex, which the writes keep up to date.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public abstract class DAOLogFile implements IDAO {
+
+    private static final short VERSION = 2;
+    //Version 1 records had no CRC32
+    private static final short VERSION_WITHOUT_CRC = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final byte RECORD_PERSON = 1;
+    private static final byte RECORD_TOMBSTONE = 2;
+    //Header of every record: type (1 byte) + payload length (4 bytes) +
+    //CRC32 of the payload (4 bytes)
+    private static final int RECORD_HEADER = 9;
+    private static final int RECORD_HEADER_WITHOUT_CRC = 5;
+    private static final int FOOTER_MAGIC = 0x50534959;
+    //Footer: index block offset (8) + dead bytes (8) + CRC32 of the index
+    //block (4) + magic (4)
+    private static final int FOOTER_SIZE = 24;
+
+    private final int magic;
+    private final File dataFile;
+    private final HashMap<String, Long> index = new HashMap<>();
+    private RandomAccessFile raf;
+    private long appendPosition;
+    private long deadBytes;
+    private boolean indexWritten;
+    private int recordHeader = RECORD_HEADER;
+    private Thread shutdownHook;
+    //Offsets of the live records in file order, sorted again after a write
+    private long[] positions;
+    //Built by the first search
+    private SecondaryIndex<String> secondary;
+
+    /**
+     * @param dataFile path of the data file
+     * @param magic first four bytes of the file, different for every format
+     * of the records
+     */
+    protected DAOLogFile(String dataFile, int magic) {
+        this.dataFile = new File(dataFile);
+        this.magic = magic;
+    }
+
+    /**
+     * Encodes the person as the payload of a record.
+     *
+     * @param p Person
+     * @return payload
+     * @throws IOException
+     */
+    protected abstract byte[] encode(Person p) throws IOException;
+
+    /**
+     * @param payload payload written by encode()
+     * @return Person
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    protected abstract Person decode(byte[] payload) throws IOException, ClassNotFoundException;
+
+    /**
+     * @param payload payload written by encode()
+     * @return NIF of the person, read without decoding the rest
+     * @throws IOException
+     */
+    protected abstract String nif(byte[] payload) throws IOException;
+
+    /**
+     * Called with the payload of every record that is replaced or deleted,
+     * once the change is on disk, when discards() is true.
+     *
+     * @param payload payload written by encode()
+     * @throws IOException
+     */
+    protected void discarded(byte[] payload) throws IOException {
+    }
+
+    /**
+     * @return true if discarded() has to be called, which reads the records
+     * replaced or deleted
+     */
+    protected boolean discards() {
+        return false;
+    }
+
+    /**
+     * Called when the file does not start with the magic number of the
+     * subclass. A conversion reads the file and hands the people to
+     * replaceFile().
+     *
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    protected void convertFormerFormat() throws IOException, ClassNotFoundException {
+        throw new IOException(dataFile.getName() + " is not a data file of this storage.");
+    }
+
+    /**
+     * Opens the file, to be called at the end of the constructor of the
+     * subclass. An empty file gets the header, a file written with a former
+     * format is converted, and a file without a valid trailing index, because
+     * the application was not closed properly, is scanned to rebuild it.
+     *
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    protected void open() throws IOException, ClassNotFoundException {
+        raf = new RandomAccessFile(dataFile, "rw");
+        if (raf.length() == 0) {
+            writeHeader();
+        } else if (raf.length() < HEADER_SIZE || raf.readInt() != magic) {
+            convertFormerFormat();
+        } else {
+            if (raf.readShort() == VERSION_WITHOUT_CRC) {
+                recordHeader = RECORD_HEADER_WITHOUT_CRC;
+            }
+            if (!loadIndex()) {
+                rebuildIndex();
+            }
+            if (recordHeader != RECORD_HEADER) {
+                compact();
+            }
+        }
+        shutdownHook = new Thread(this::close, "DAOLogFile-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    protected File getDataFile() {
+        return dataFile;
+    }
+
+    /**
+     * Replaces the whole file with a log of the given people. The new file is
+     * written aside, forced to disk and then renamed over the old one, so the
+     * old file is kept until the new one is complete.
+     *
+     * @param people people of the new file
+     * @throws IOException
+     */
+    protected void replaceFile(Collection<Person> people) throws IOException {
+        LinkedHashMap<String, Person> byNif = new LinkedHashMap<>();
+        for (Person p : people) {
+            byNif.put(p.getNif(), p);
+        }
+        rewrite(byNif.keySet(), nif -> encode(byNif.get(nif)));
+        secondary = null;
+    }
+
+    /**
+     * Empties the file and writes the header.
+     *
+     * @throws IOException
+     */
+    protected void clearFile() throws IOException {
+        index.clear();
+        positions = null;
+        secondary = null;
+        deadBytes = 0;
+        raf.setLength(0);
+        writeHeader();
+        raf.getChannel().force(false);
+    }
+
+    @Override
+    public synchronized Person read(Person p) throws IOException, ClassNotFoundException {
+        Long offset = index.get(p.getNif());
+        return offset != null ? decode(readPayload(offset)) : null;
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readAll() throws IOException, ClassNotFoundException {
+        ArrayList<Person> people = new ArrayList<>(index.size());
+        for (long offset : positions()) {
+            people.add(decode(readPayload(offset)));
+        }
+        return people;
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readPage(int offset, int limit) throws IOException, ClassNotFoundException {
+        ArrayList<Person> people = new ArrayList<>();
+        long[] offsets = positions();
+        long end = Math.min(offsets.length, (long) offset + limit);
+        for (int i = offset; i < end; i++) {
+            people.add(decode(readPayload(offsets[i])));
+        }
+        return people;
+    }
+
+    /**
+     * Sorted again only when a write has changed the index, so every page of
+     * an unchanged file just seeks to its records.
+     */
+    private long[] positions() {
+        if (positions == null) {
+            positions = index.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        return positions;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws IOException, ClassNotFoundException {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws IOException, ClassNotFoundException {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByPostalCode(String postalCode) throws IOException, ClassNotFoundException {
+        return people(secondary().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByNamePrefix(String prefix) throws IOException, ClassNotFoundException {
+        return people(secondary().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByBirthDateRange(Date from, Date to) throws IOException, ClassNotFoundException {
+        return people(secondary().findByBirthDateRange(from, to));
+    }
+
+    private SecondaryIndex<String> secondary() throws IOException, ClassNotFoundException {
+        if (secondary == null) {
+            SecondaryIndex<String> built = new SecondaryIndex<>();
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                built.put(entry.getKey(), decode(readPayload(entry.getValue())));
+            }
+            secondary = built;
+        }
+        return secondary;
+    }
+
+    private ArrayList<Person> people(ArrayList<String> nifs) throws IOException, ClassNotFoundException {
+        ArrayList<Person> people = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            people.add(decode(readPayload(index.get(nif))));
+        }
+        return people;
+    }
+
+    @Override
+    public synchronized void delete(Person p) throws IOException {
+        deleteAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void deleteAll() throws IOException {
+        clearFile();
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(Person p) throws IOException {
+        if (index.containsKey(p.getNif())) {
+            return false;
+        }
+        insert(p);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfPresent(Person p) throws IOException {
+        if (!index.containsKey(p.getNif())) {
+            return false;
+        }
+        delete(p);
+        return true;
+    }
+
+    @Override
+    public synchronized int count() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void insert(Person p) throws IOException {
+        insertAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void update(Person p) throws IOException {
+        updateAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public synchronized void insertAll(Collection<Person> people) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        LinkedHashMap<String, Long> offsets = new LinkedHashMap<>();
+        for (Person p : people) {
+            offsets.put(p.getNif(), appendPosition + batch.size());
+            frame(out, RECORD_PERSON, encode(p));
+        }
+        append(batch);
+        positions = null;
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            Long previous = index.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                discard(previous);
+            }
+        }
+        if (secondary != null) {
+            for (Person p : people) {
+                secondary.put(p.getNif(), p);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Person> people) throws IOException {
+        ArrayList<Person> registered = new ArrayList<>();
+        for (Person p : people) {
+            if (index.containsKey(p.getNif())) {
+                registered.add(p);
+            }
+        }
+        insertAll(registered);
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<Person> people) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(batch);
+        ArrayList<Long> deleted = new ArrayList<>();
+        for (Person p : people) {
+            Long offset = index.remove(p.getNif());
+            if (offset != null) {
+                positions = null;
+                deleted.add(offset);
+                if (secondary != null) {
+                    secondary.remove(p.getNif());
+                }
+                ByteArrayOutputStream nif = new ByteArrayOutputStream();
+                new DataOutputStream(nif).writeUTF(p.getNif());
+                frame(out, RECORD_TOMBSTONE, nif.toByteArray());
+            }
+        }
+        deadBytes += batch.size();
+        append(batch);
+        for (long offset : deleted) {
+            discard(offset);
+        }
+    }
+
+    /**
+     * Rewrites the file keeping only the live records. The new file is
+     * written aside, forced to disk and then replaces the old one.
+     *
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+        rewrite(new ArrayList<>(index.keySet()), nif -> readPayload(index.get(nif)));
+    }
+
+    /**
+     * Payload of the record of a NIF.
+     */
+    private interface Payload {
+
+        byte[] of(String nif) throws IOException;
+    }
+
+    private void rewrite(Collection<String> nifs, Payload payloads) throws IOException {
+        File tmp = new File(dataFile.getPath() + ".tmp");
+        HashMap<String, Long> newIndex = new HashMap<>();
+        long position = HEADER_SIZE;
+        try ( FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(magic);
+            out.writeShort(VERSION);
+            for (String nif : nifs) {
+                byte[] payload = payloads.of(nif);
+                frame(out, RECORD_PERSON, payload);
+                newIndex.put(nif, position);
+                position += RECORD_HEADER + payload.length;
+            }
+            out.flush();
+            fos.getChannel().force(true);
+        }
+        raf.close();
+        try {
+            Files.move(tmp.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            raf = new RandomAccessFile(dataFile, "rw");
+        }
+        index.clear();
+        index.putAll(newIndex);
+        positions = null;
+        appendPosition = position;
+        deadBytes = 0;
+        indexWritten = false;
+        recordHeader = RECORD_HEADER;
+    }
+
+    /**
+     * Writes the trailing index block and releases the file. Called
+     * automatically when the application closes.
+     */
+    public synchronized void close() {
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ex) {
+                //The JVM is already shutting down and the hook closes
+            }
+            shutdownHook = null;
+        }
+        try {
+            if (raf.getChannel().isOpen()) {
+                writeIndex();
+                raf.getChannel().force(false);
+                raf.close();
+            }
+        } catch (IOException ex) {
+            //Without index block the next start rebuilds it from the records
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        raf.seek(0);
+        raf.writeInt(magic);
+        raf.writeShort(VERSION);
+        appendPosition = HEADER_SIZE;
+        indexWritten = false;
+    }
+
+    private void frame(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        out.writeByte(type);
+        out.writeInt(payload.length);
+        out.writeInt(crc(payload));
+        out.write(payload);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends the given records with a single write where the index block
+     * starts. The index block is cut, and the cut forced to disk, before the
+     * records are written over it: until close() the file ends with the last
+     * record. The records are forced to disk before returning.
+     */
+    private void append(ByteArrayOutputStream records) throws IOException {
+        if (records.size() == 0) {
+            return;
+        }
+        if (indexWritten) {
+            raf.setLength(appendPosition);
+            raf.getChannel().force(true);
+            indexWritten = false;
+        }
+        raf.seek(appendPosition);
+        raf.write(records.toByteArray());
+        appendPosition += records.size();
+        raf.getChannel().force(false);
+    }
+
+    private void discard(long offset) throws IOException {
+        deadBytes += recordLength(offset);
+        if (discards()) {
+            discarded(readPayload(offset));
+        }
+    }
+
+    private byte[] readPayload(long offset) throws IOException {
+        raf.seek(offset + 1);
+        byte[] payload = new byte[raf.readInt()];
+        int checksum = recordHeader == RECORD_HEADER ? raf.readInt() : 0;
+        raf.readFully(payload);
+        if (recordHeader == RECORD_HEADER && crc(payload) != checksum) {
+            throw new IOException("Corrupted record at " + offset + " of " + dataFile.getName() + ".");
+        }
+        return payload;
+    }
+
+    private long recordLength(long offset) throws IOException {
+        raf.seek(offset + 1);
+        return recordHeader + raf.readInt();
+    }
+
+    private void writeIndex() throws IOException {
+        if (indexWritten) {
+            return;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(index.size());
+        for (Map.Entry<String, Long> entry : index.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        int checksum = crc(baos.toByteArray());
+        out.writeLong(appendPosition);
+        out.writeLong(deadBytes);
+        out.writeInt(checksum);
+        out.writeInt(FOOTER_MAGIC);
+        raf.seek(appendPosition);
+        raf.write(baos.toByteArray());
+        raf.setLength(appendPosition + baos.size());
+        indexWritten = true;
+    }
+
+    /**
+     * Loads the trailing index block, if the file was closed properly and the
+     * block matches its CRC32.
+     *
+     * @return true if the index has been loaded
+     */
+    private boolean loadIndex() throws IOException {
+        long length = raf.length();
+        if (length < HEADER_SIZE + FOOTER_SIZE) {
+            return false;
+        }
+        raf.seek(length - FOOTER_SIZE);
+        long indexStart = raf.readLong();
+        long dead = raf.readLong();
+        int checksum = raf.readInt();
+        if (raf.readInt() != FOOTER_MAGIC || indexStart < HEADER_SIZE || indexStart > length - FOOTER_SIZE
+                || length - FOOTER_SIZE - indexStart > Integer.MAX_VALUE) {
+            return false;
+        }
+        raf.seek(indexStart);
+        byte[] block = new byte[(int) (length - FOOTER_SIZE - indexStart)];
+        raf.readFully(block);
+        if (crc(block) != checksum) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        try {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                index.put(in.readUTF(), in.readLong());
+            }
+        } catch (IOException ex) {
+            index.clear();
+            return false;
+        }
+        appendPosition = indexStart;
+        deadBytes = dead;
+        indexWritten = true;
+        return true;
+    }
+
+    /**
+     * Scans every record to rebuild the index. The file is cut at the first
+     * record that is incomplete or whose CRC32 does not match, the one being
+     * written when the application crashed.
+     */
+    private void rebuildIndex() throws IOException {
+        long length = raf.length();
+        long position = HEADER_SIZE;
+        raf.seek(position);
+        while (position + recordHeader <= length) {
+            byte type = raf.readByte();
+            int size = raf.readInt();
+            int checksum = recordHeader == RECORD_HEADER ? raf.readInt() : 0;
+            if ((type != RECORD_PERSON && type != RECORD_TOMBSTONE) || size < 0
+                    || position + recordHeader + size > length) {
+                break;
+            }
+            byte[] payload = new byte[size];
+            raf.readFully(payload);
+            if (recordHeader == RECORD_HEADER && crc(payload) != checksum) {
+                break;
+            }
+            String nif = type == RECORD_PERSON ? nif(payload) : new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+            Long previous = type == RECORD_PERSON ? index.put(nif, position) : index.remove(nif);
+            if (previous != null) {
+                deadBytes += recordLength(previous);
+            }
+            if (type == RECORD_TOMBSTONE) {
+                deadBytes += recordHeader + size;
+            }
+            position += recordHeader + size;
+            raf.seek(position);
+        }
+        raf.setLength(position);
+        appendPosition = position;
+        indexWritten = false;
+    }
+
+}
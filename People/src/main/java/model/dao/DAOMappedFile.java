@@ -0,0 +1,396 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import start.Routes;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * This class implements the IDAO interface over a memory-mapped file of
+ * fixed-width records. Every person takes exactly RECORD_SIZE bytes: a slot
+ * for each text field (one length byte followed by the UTF-8 bytes), the date
+ * of birth as an epoch day and the path of the photo. Records are decoded
+ * straight from the mapping, so reading does not go through a Reader nor a
+ * date parser. Records are kept contiguous: a delete moves the last record
+ * into the freed slot. A text longer than its slot is rejected. The file is
+ * mapped as a single buffer, whose positions are ints, so it holds at most
+ * MAX_RECORDS people (almost 2 GB). The associated photos, if any, are saved
+ * in the PhotoRepository of the "Photos" folder. The first search decodes the
+ * records into a SecondaryIndex, which the writes keep up to date.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOMappedFile implements IDAO {
+
+    private static final int MAGIC = 0x504d4150;
+    private static final int HEADER_SIZE = 16;
+    //Width in bytes of every slot of the record, length byte excluded
+    private static final int NIF_SIZE = 12;
+    private static final int NAME_SIZE = 100;
+    private static final int PHONE_SIZE = 25;
+    private static final int POSTAL_SIZE = 16;
+    private static final int PHOTO_SIZE = 200;
+    private static final int NIF_POS = 0;
+    private static final int NAME_POS = NIF_POS + 1 + NIF_SIZE;
+    private static final int PHONE_POS = NAME_POS + 1 + NAME_SIZE;
+    private static final int POSTAL_POS = PHONE_POS + 1 + PHONE_SIZE;
+    private static final int DATE_POS = POSTAL_POS + 1 + POSTAL_SIZE;
+    private static final int PHOTO_POS = DATE_POS + Long.BYTES;
+    private static final int RECORD_SIZE = PHOTO_POS + 1 + PHOTO_SIZE;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+    public static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final PhotoRepository photos;
+    private final Thread shutdownHook;
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    //Built by the first search
+    private SecondaryIndex<String> secondary;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    public DAOMappedFile() throws IOException {
+        this(Routes.FILEM.getDataFile(), Routes.FILEM.getFolderPhotos());
+    }
+
+    /**
+     * Maps the given data file, creating it if it does not exist, and builds
+     * the NIF -> slot index reading only the NIF slot of every record.
+     *
+     * @param dataFile path of the data file
+     * @param folderPhotos folder where the photos are saved
+     * @throws IOException
+     */
+    public DAOMappedFile(String dataFile, String folderPhotos) throws IOException {
+        this.photos = new PhotoRepository(folderPhotos);
+        file = new RandomAccessFile(dataFile, "rw");
+        channel = file.getChannel();
+        if (file.length() < HEADER_SIZE) {
+            map(INITIAL_CAPACITY);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, RECORD_SIZE);
+            buffer.putInt(8, 0);
+        } else {
+            map((file.length() - HEADER_SIZE) / RECORD_SIZE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+                throw new IOException(dataFile + " is not a People mapped file.");
+            }
+            count = buffer.getInt(8);
+        }
+        for (int slot = 0; slot < count; slot++) {
+            slots.put(getString(slot, NIF_POS), slot);
+        }
+        shutdownHook = new Thread(this::close, "DAOMappedFile-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public synchronized Person read(Person p) {
+        Integer slot = slots.get(p.getNif());
+        return slot != null ? decode(slot) : null;
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readAll() {
+        ArrayList<Person> people = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            people.add(decode(slot));
+        }
+        return people;
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(Person p) throws IOException {
+        if (slots.containsKey(p.getNif())) {
+            return false;
+        }
+        insert(p);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfPresent(Person p) throws IOException {
+        if (!slots.containsKey(p.getNif())) {
+            return false;
+        }
+        delete(p);
+        return true;
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readPage(int offset, int limit) {
+        int to = (int) Math.min((long) offset + limit, count);
+        ArrayList<Person> people = new ArrayList<>(Math.max(to - offset, 0));
+        for (int slot = offset; slot < to; slot++) {
+            people.add(decode(slot));
+        }
+        return people;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return PersonSummary.ofAll(readAll());
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        return PersonSummary.ofAll(readPage(offset, limit));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByPostalCode(String postalCode) {
+        return people(secondary().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByNamePrefix(String prefix) {
+        return people(secondary().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return people(secondary().findByBirthDateRange(from, to));
+    }
+
+    /**
+     * The people are indexed as they are decoded, with the date of birth at
+     * the start of the day.
+     */
+    private SecondaryIndex<String> secondary() {
+        if (secondary == null) {
+            SecondaryIndex<String> built = new SecondaryIndex<>();
+            for (int slot = 0; slot < count; slot++) {
+                Person p = decode(slot);
+                built.put(p.getNif(), p);
+            }
+            secondary = built;
+        }
+        return secondary;
+    }
+
+    private ArrayList<Person> people(ArrayList<String> nifs) {
+        ArrayList<Person> people = new ArrayList<>(nifs.size());
+        for (String nif : nifs) {
+            people.add(decode(slots.get(nif)));
+        }
+        return people;
+    }
+
+    private void index(int slot) {
+        if (secondary != null) {
+            Person p = decode(slot);
+            secondary.put(p.getNif(), p);
+        }
+    }
+
+    @Override
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * A person already registered is updated instead, so that a NIF never
+     * takes two slots.
+     */
+    @Override
+    public synchronized void insert(Person p) throws IOException {
+        if (slots.containsKey(p.getNif())) {
+            update(p);
+            return;
+        }
+        if (count == capacity) {
+            map(2L * capacity);
+        }
+        byte[] record = record(p);
+        buffer.put(offset(count), record);
+        slots.put(p.getNif(), count);
+        index(count);
+        setCount(count + 1);
+    }
+
+    @Override
+    public synchronized void update(Person p) throws IOException {
+        Integer slot = slots.get(p.getNif());
+        if (slot == null) {
+            return;
+        }
+        byte[] record = record(p);
+        photos.release(getString(slot, PHOTO_POS));
+        buffer.put(offset(slot), record);
+        index(slot);
+    }
+
+    @Override
+    public synchronized void delete(Person p) throws IOException {
+        Integer slot = slots.remove(p.getNif());
+        if (slot == null) {
+            return;
+        }
+        if (secondary != null) {
+            secondary.remove(p.getNif());
+        }
+        photos.release(getString(slot, PHOTO_POS));
+        int last = count - 1;
+        if (slot != last) {
+            byte[] record = new byte[RECORD_SIZE];
+            buffer.get(offset(last), record);
+            buffer.put(offset(slot), record);
+            slots.put(getString(slot, NIF_POS), slot);
+        }
+        setCount(last);
+    }
+
+    @Override
+    public synchronized void insertAll(Collection<Person> people) throws IOException {
+        long needed = (long) count + people.size();
+        if (needed > capacity) {
+            map(Math.max(needed, 2L * capacity));
+        }
+        for (Person p : people) {
+            insert(p);
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Person> people) throws IOException {
+        for (Person p : people) {
+            update(p);
+        }
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<Person> people) throws IOException {
+        for (Person p : people) {
+            delete(p);
+        }
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        slots.clear();
+        secondary = null;
+        setCount(0);
+        photos.clear();
+    }
+
+    /**
+     * Writes the mapped pages to disk and releases the file. Called
+     * automatically when the application closes.
+     */
+    public synchronized void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            //The JVM is already shutting down and the hook closes
+        }
+        try {
+            if (channel.isOpen()) {
+                buffer.force();
+                file.close();
+            }
+        } catch (IOException ex) {
+            //Pages not forced are written back by the operating system
+        }
+    }
+
+    /**
+     * Maps room for the given records, at most MAX_RECORDS, so that every
+     * position of the buffer fits in an int.
+     */
+    private void map(long records) throws IOException {
+        if (records > MAX_RECORDS && count >= MAX_RECORDS) {
+            throw new IOException("The mapped file can not hold more than " + MAX_RECORDS + " people.");
+        }
+        capacity = (int) Math.min(Math.max(records, INITIAL_CAPACITY), MAX_RECORDS);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private void setCount(int count) {
+        this.count = count;
+        buffer.putInt(8, count);
+    }
+
+    //Never overflows, the slot is less than MAX_RECORDS
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private Person decode(int slot) {
+        long epochDay = buffer.getLong(offset(slot) + DATE_POS);
+        Date date = null;
+        if (epochDay != NO_DATE) {
+            date = Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+        String photoPath = getString(slot, PHOTO_POS);
+        Person p = new Person(getString(slot, NAME_POS), getString(slot, NIF_POS), getString(slot, PHONE_POS),
+                getString(slot, POSTAL_POS), date, null);
+        if (!photoPath.isEmpty()) {
+            p.setPhotoHandle(Photo.ofPath(photoPath));
+        }
+        return p;
+    }
+
+    /**
+     * Encodes the person and stores its photo, which is released again if the
+     * person does not fit in a record.
+     *
+     * @throws IOException if a text is longer than its slot
+     */
+    private byte[] record(Person p) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        putString(record, NIF_POS, NIF_SIZE, p.getNif());
+        putString(record, NAME_POS, NAME_SIZE, p.getName());
+        putString(record, PHONE_POS, PHONE_SIZE, p.getPhoneNumber());
+        putString(record, POSTAL_POS, POSTAL_SIZE, p.getPostalCode());
+        long epochDay = NO_DATE;
+        if (p.getDateOfBirth() != null) {
+            epochDay = p.getDateOfBirth().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        }
+        record.putLong(DATE_POS, epochDay);
+        if (p.hasPhoto()) {
+            String photoPath = photos.store(p.getPhotoHandle());
+            try {
+                putString(record, PHOTO_POS, PHOTO_SIZE, photoPath);
+            } catch (IOException ex) {
+                photos.release(photoPath);
+                throw ex;
+            }
+        }
+        return record.array();
+    }
+
+    private String getString(int slot, int position) {
+        int start = offset(slot) + position;
+        int length = buffer.get(start) & 0xff;
+        byte[] bytes = new byte[length];
+        buffer.get(start + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer record, int position, int size, String value) throws IOException {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (bytes.length > size) {
+            throw new IOException("\"" + value + "\" is longer than the " + size + " bytes of its field.");
+        }
+        record.put(position, (byte) bytes.length);
+        record.put(position + 1, bytes);
+    }
+
+}
@@ -0,0 +1,296 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class implements the IDAO interface as a decorator of another IDAO
+ * that keeps a NameSearchIndex of the names of its people, so that any
+ * storage can be searched by a part of the name, even misspelled, without
+ * reading it. The index is built from the summaries of the storage, page by
+ * page, by the first search, and every write that goes through the
+ * decorator updates it afterwards. A write that fails discards the index,
+ * because it is not known which people were written, and the next search
+ * builds it again.
+ *
+ * The writes hold a shared lock while they write the storage and the index,
+ * and the building of the index holds it exclusively, so no write is missed
+ * by the index while it is being built. Besides, every write holds the locks
+ * of the stripes of its NIFs, taken in ascending order, so two writes of the
+ * same NIF change the storage and the index in the same order.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAONameSearch implements IDAO {
+
+    //Summaries read per call while the index is built
+    private static final int BUILD_PAGE = 10000;
+    //Locks shared by the NIFs with the same hash modulo STRIPES
+    private static final int STRIPES = 64;
+
+    private final IDAO dao;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    //Null until the first search
+    private volatile NameSearchIndex index;
+
+    /**
+     * Operation of the storage that changes some people.
+     */
+    private interface Write<T> {
+
+        T run() throws Exception;
+    }
+
+    /**
+     * Changes of the index after a write.
+     */
+    private interface Indexing<T> {
+
+        void update(NameSearchIndex index, T result) throws Exception;
+    }
+
+    public DAONameSearch(IDAO dao) {
+        this.dao = dao;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param query part of the name, with or without accents and misspelled
+     * @param limit maximum number of people returned
+     * @return the people found, the most similar first
+     * @throws Exception if the index has to be built and the storage can not
+     * be read
+     */
+    public ArrayList<NameSearchIndex.Match> search(String query, int limit) throws Exception {
+        return index().search(query, limit);
+    }
+
+    @Override
+    public Person read(Person p) throws Exception {
+        return dao.read(p);
+    }
+
+    @Override
+    public ArrayList<Person> readAll() throws Exception {
+        return dao.readAll();
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) throws Exception {
+        return dao.readPage(offset, limit);
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws Exception {
+        return dao.readAllSummaries();
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws Exception {
+        return dao.readSummaryPage(offset, limit);
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) throws Exception {
+        return dao.findByPostalCode(postalCode);
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) throws Exception {
+        return dao.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) throws Exception {
+        return dao.findByBirthDateRange(from, to);
+    }
+
+    @Override
+    public int count() throws Exception {
+        return dao.count();
+    }
+
+    @Override
+    public void insert(Person p) throws Exception {
+        write(Collections.singletonList(p), () -> {
+            dao.insert(p);
+            return null;
+        }, (index, result) -> index.put(p.getNif(), p.getName()));
+    }
+
+    @Override
+    public void update(Person p) throws Exception {
+        write(Collections.singletonList(p), () -> {
+            dao.update(p);
+            return null;
+        }, (index, result) -> reindex(index, p));
+    }
+
+    @Override
+    public void delete(Person p) throws Exception {
+        write(Collections.singletonList(p), () -> {
+            dao.delete(p);
+            return null;
+        }, (index, result) -> index.remove(p.getNif()));
+    }
+
+    @Override
+    public boolean insertIfAbsent(Person p) throws Exception {
+        return write(Collections.singletonList(p), () -> dao.insertIfAbsent(p), (index, inserted) -> {
+            if (inserted) {
+                index.put(p.getNif(), p.getName());
+            }
+        });
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) throws Exception {
+        return write(Collections.singletonList(p), () -> dao.deleteIfPresent(p), (index, deleted) -> index.remove(p.getNif()));
+    }
+
+    @Override
+    public void deleteAll() throws Exception {
+        write(null, () -> {
+            dao.deleteAll();
+            return null;
+        }, (index, result) -> index.clear());
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) throws Exception {
+        write(people, () -> {
+            dao.insertAll(people);
+            return null;
+        }, (index, result) -> {
+            for (Person p : people) {
+                index.put(p.getNif(), p.getName());
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) throws Exception {
+        write(people, () -> {
+            dao.updateAll(people);
+            return null;
+        }, (index, result) -> {
+            for (Person p : people) {
+                reindex(index, p);
+            }
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) throws Exception {
+        write(people, () -> {
+            dao.deleteAll(people);
+            return null;
+        }, (index, result) -> {
+            for (Person p : people) {
+                index.remove(p.getNif());
+            }
+        });
+    }
+
+    /**
+     * @return people indexed, -1 if the index is not built
+     */
+    public int indexed() {
+        NameSearchIndex built = index;
+        return built != null ? built.size() : -1;
+    }
+
+    /**
+     * Some storages register the person updated if it was not registered and
+     * others do not, so a person that was not indexed is read to know it.
+     */
+    private void reindex(NameSearchIndex index, Person p) throws Exception {
+        if (index.contains(p.getNif()) || dao.read(p) != null) {
+            index.put(p.getNif(), p.getName());
+        }
+    }
+
+    /**
+     * @param people people written, null if the write changes all of them
+     */
+    private <T> T write(Collection<Person> people, Write<T> write, Indexing<T> indexing) throws Exception {
+        boolean[] held = new boolean[STRIPES];
+        if (people == null) {
+            Arrays.fill(held, true);
+        } else {
+            for (Person p : people) {
+                held[Math.floorMod(p.getNif().hashCode(), STRIPES)] = true;
+            }
+        }
+        lock.readLock().lock();
+        for (int i = 0; i < STRIPES; i++) {
+            if (held[i]) {
+                stripes[i].lock();
+            }
+        }
+        try {
+            T result;
+            try {
+                result = write.run();
+            } catch (Exception ex) {
+                index = null;
+                throw ex;
+            }
+            NameSearchIndex built = index;
+            if (built != null) {
+                try {
+                    indexing.update(built, result);
+                } catch (Exception ex) {
+                    index = null;
+                    throw ex;
+                }
+            }
+            return result;
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                if (held[i]) {
+                    stripes[i].unlock();
+                }
+            }
+            lock.readLock().unlock();
+        }
+    }
+
+    private NameSearchIndex index() throws Exception {
+        NameSearchIndex built = index;
+        if (built != null) {
+            return built;
+        }
+        lock.writeLock().lock();
+        try {
+            if (index == null) {
+                NameSearchIndex building = new NameSearchIndex();
+                for (int offset = 0;; offset += BUILD_PAGE) {
+                    ArrayList<PersonSummary> page = dao.readSummaryPage(offset, BUILD_PAGE);
+                    for (PersonSummary p : page) {
+                        building.put(p.getNif(), p.getName());
+                    }
+                    if (page.size() < BUILD_PAGE) {
+                        break;
+                    }
+                }
+                index = building;
+            }
+            return index;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
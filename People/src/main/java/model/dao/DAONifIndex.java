@@ -0,0 +1,319 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonException;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import utils.DataValidation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * This class implements the IDAO interface and completes the function code
+ * blocks so that they can operate in memory with one array per field
+ * (columns) instead of one Person object per person. The letter of a NIF is
+ * derived from its number, so the NIF is kept as the number, which fits in 27
+ * bits, and a NifIntMap gives the row of every number. People are created
+ * from the columns when they are read.
+ *
+ * Rows have no gaps: deleting a person moves the last row to its place. Only
+ * valid NIFs (eight digits and the letter of the number) can be stored. The
+ * first search builds a SecondaryIndex of the numbers, which the writes keep
+ * up to date afterwards; until then a person costs no more objects than its
+ * fields.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAONifIndex implements IDAO {
+
+    private static final int INITIAL_ROWS = 16;
+    //Date of birth not entered
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final NifIntMap rows = new NifIntMap(INITIAL_ROWS);
+    private int[] numbers = new int[INITIAL_ROWS];
+    private String[] names = new String[INITIAL_ROWS];
+    private String[] phoneNumbers = new String[INITIAL_ROWS];
+    private String[] postalCodes = new String[INITIAL_ROWS];
+    private long[] datesOfBirth = new long[INITIAL_ROWS];
+    private Photo[] photos = new Photo[INITIAL_ROWS];
+    private int size;
+    //Built by the first search
+    private SecondaryIndex<Integer> index;
+
+    @Override
+    public Person read(Person p) {
+        int row = rowOf(p);
+        return row != NifIntMap.NO_VALUE ? person(row, p.getNif()) : null;
+    }
+
+    @Override
+    public ArrayList<Person> readAll() {
+        return readPage(0, size);
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        ArrayList<Person> people = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            people.add(person(row, nif(numbers[row])));
+        }
+        return people;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() {
+        return readSummaryPage(0, size);
+    }
+
+    /**
+     * The summaries are built from the columns, without creating the people.
+     */
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        ArrayList<PersonSummary> summaries = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            summaries.add(new PersonSummary(nif(numbers[row]), names[row], phoneNumbers[row], postalCodes[row],
+                    datesOfBirth[row] != NO_DATE ? new Date(datesOfBirth[row]) : null, photos[row] != null));
+        }
+        return summaries;
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) {
+        return people(index().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) {
+        return people(index().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) {
+        return people(index().findByBirthDateRange(from, to));
+    }
+
+    private SecondaryIndex<Integer> index() {
+        if (index == null) {
+            SecondaryIndex<Integer> built = new SecondaryIndex<>();
+            for (int row = 0; row < size; row++) {
+                built.put(numbers[row], person(row, null));
+            }
+            index = built;
+        }
+        return index;
+    }
+
+    private ArrayList<Person> people(ArrayList<Integer> found) {
+        ArrayList<Person> people = new ArrayList<>(found.size());
+        for (int number : found) {
+            people.add(person(rows.get(number), nif(number)));
+        }
+        return people;
+    }
+
+    @Override
+    public int count() {
+        return size;
+    }
+
+    @Override
+    public void insert(Person p) throws PersonException {
+        int number = numberOf(p);
+        int row = rows.get(number);
+        if (row == NifIntMap.NO_VALUE) {
+            row = addRow(number);
+        }
+        set(row, p);
+    }
+
+    @Override
+    public void update(Person p) {
+        int row = rowOf(p);
+        if (row != NifIntMap.NO_VALUE) {
+            set(row, p);
+        }
+    }
+
+    @Override
+    public void delete(Person p) {
+        int row = rowOf(p);
+        if (row != NifIntMap.NO_VALUE) {
+            removeRow(row);
+        }
+    }
+
+    @Override
+    public boolean insertIfAbsent(Person p) throws PersonException {
+        int number = numberOf(p);
+        if (rows.containsKey(number)) {
+            return false;
+        }
+        set(addRow(number), p);
+        return true;
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) {
+        int row = rowOf(p);
+        if (row == NifIntMap.NO_VALUE) {
+            return false;
+        }
+        removeRow(row);
+        return true;
+    }
+
+    @Override
+    public void deleteAll() {
+        rows.clear();
+        index = null;
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(phoneNumbers, 0, size, null);
+        Arrays.fill(postalCodes, 0, size, null);
+        Arrays.fill(photos, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * All the NIFs are checked before inserting anyone, so an invalid NIF
+     * leaves the storage unchanged.
+     */
+    @Override
+    public void insertAll(Collection<Person> people) throws PersonException {
+        for (Person p : people) {
+            numberOf(p);
+        }
+        for (Person p : people) {
+            insert(p);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) {
+        for (Person p : people) {
+            update(p);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) {
+        for (Person p : people) {
+            delete(p);
+        }
+    }
+
+    /**
+     * @param nif NIF
+     * @return number of the NIF, or -1 if it is not eight digits followed by
+     * the letter of the number
+     */
+    public static int number(String nif) {
+        if (nif == null || nif.length() != 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = nif.charAt(i);
+            if (!DataValidation.isNumber(c)) {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return nif.charAt(8) == DataValidation.nifLetter(number) ? number : -1;
+    }
+
+    /**
+     * @param number number of a NIF
+     * @return NIF: the number with eight digits and its letter
+     */
+    public static String nif(int number) {
+        char[] nif = new char[9];
+        nif[8] = DataValidation.nifLetter(number);
+        for (int i = 7; i >= 0; i--) {
+            nif[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(nif);
+    }
+
+    private int rowOf(Person p) {
+        int number = number(p.getNif());
+        return number >= 0 ? rows.get(number) : NifIntMap.NO_VALUE;
+    }
+
+    private static int numberOf(Person p) throws PersonException {
+        int number = number(p.getNif());
+        if (number < 0) {
+            throw new PersonException(p.getNif() + " is not a valid NIF.");
+        }
+        return number;
+    }
+
+    private Person person(int row, String nif) {
+        Person p = new Person(names[row], nif, phoneNumbers[row], postalCodes[row]);
+        if (datesOfBirth[row] != NO_DATE) {
+            p.setDateOfBirth(new Date(datesOfBirth[row]));
+        }
+        p.setPhotoHandle(photos[row]);
+        return p;
+    }
+
+    private void set(int row, Person p) {
+        names[row] = p.getName();
+        phoneNumbers[row] = p.getPhoneNumber();
+        postalCodes[row] = p.getPostalCode();
+        datesOfBirth[row] = p.getDateOfBirth() != null ? p.getDateOfBirth().getTime() : NO_DATE;
+        photos[row] = p.getPhotoHandle();
+        if (index != null) {
+            index.put(numbers[row], p);
+        }
+    }
+
+    private int addRow(int number) {
+        if (size == numbers.length) {
+            int capacity = size * 2;
+            numbers = Arrays.copyOf(numbers, capacity);
+            names = Arrays.copyOf(names, capacity);
+            phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+            postalCodes = Arrays.copyOf(postalCodes, capacity);
+            datesOfBirth = Arrays.copyOf(datesOfBirth, capacity);
+            photos = Arrays.copyOf(photos, capacity);
+        }
+        numbers[size] = number;
+        rows.put(number, size);
+        return size++;
+    }
+
+    /**
+     * Moves the last row to the row removed.
+     */
+    private void removeRow(int row) {
+        rows.remove(numbers[row]);
+        if (index != null) {
+            index.remove(numbers[row]);
+        }
+        int last = --size;
+        if (row != last) {
+            numbers[row] = numbers[last];
+            names[row] = names[last];
+            phoneNumbers[row] = phoneNumbers[last];
+            postalCodes[row] = postalCodes[last];
+            datesOfBirth[row] = datesOfBirth[last];
+            photos[row] = photos[last];
+            rows.put(numbers[row], row);
+        }
+        names[last] = null;
+        phoneNumbers[last] = null;
+        postalCodes[last] = null;
+        photos[last] = null;
+    }
+
+}
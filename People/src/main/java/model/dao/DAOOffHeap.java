@@ -0,0 +1,408 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonException;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * This class implements the IDAO interface and completes the function code
+ * blocks so that they can operate in memory outside the Java heap, so that
+ * millions of people do not make the garbage collector slower. Every person is
+ * a record in an arena of direct ByteBuffers (chunks of CHUNK_SIZE bytes): the
+ * person encoded by PersonCodec followed by the encoded photo. People are only
+ * created when they are read.
+ *
+ * Until the first search the heap only holds the NIF index: a NifIntMap from
+ * the number of the NIF to a row, and per row the number and the reference of
+ * the record (chunk and offset in one int). A write appends a new record; the
+ * records replaced or deleted are dead bytes until the arena is compacted,
+ * which happens when they are more than half of the bytes used. The first
+ * search decodes the records into a SecondaryIndex of the numbers, which is
+ * kept in the heap and which the writes keep up to date afterwards.
+ *
+ * The chunks count against the direct memory of the JVM, which by default is
+ * as large as the maximum heap. Run with -XX:MaxDirectMemorySize (for
+ * instance -XX:MaxDirectMemorySize=4g) to store more people than fit in the
+ * heap; when it is exhausted a write fails with an IOException.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOOffHeap implements IDAO {
+
+    public static final int CHUNK_SIZE = 64 * 1024 * 1024;
+    //Records start at multiples of 8 bytes, so an offset in a chunk fits in
+    //23 bits and the reference of a record in a positive int
+    private static final int ALIGNMENT = 8;
+    private static final int OFFSET_BITS = 23;
+    private static final int MAX_CHUNKS = 256;
+    //Header of every record: person length (4 bytes) + photo length (4 bytes)
+    private static final int RECORD_HEADER = 8;
+    private static final int INITIAL_ROWS = 16;
+
+    private final NifIntMap rows = new NifIntMap(INITIAL_ROWS);
+    private int[] numbers = new int[INITIAL_ROWS];
+    private int[] records = new int[INITIAL_ROWS];
+    private int size;
+    private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    private int position = CHUNK_SIZE;
+    private long usedBytes;
+    private long deadBytes;
+    //Built by the first search
+    private SecondaryIndex<Integer> index;
+
+    @Override
+    public Person read(Person p) throws IOException {
+        int row = rowOf(p);
+        return row != NifIntMap.NO_VALUE ? person(records[row]) : null;
+    }
+
+    @Override
+    public ArrayList<Person> readAll() throws IOException {
+        return readPage(0, size);
+    }
+
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) throws IOException {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        ArrayList<Person> people = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            people.add(person(records[row]));
+        }
+        return people;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws IOException {
+        return readSummaryPage(0, size);
+    }
+
+    /**
+     * Only the data of the records is decoded; the photos are not copied to
+     * the heap.
+     */
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws IOException {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        ArrayList<PersonSummary> summaries = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            summaries.add(summary(records[row]));
+        }
+        return summaries;
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) throws IOException {
+        return people(index().findByPostalCode(postalCode));
+    }
+
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) throws IOException {
+        return people(index().findByNamePrefix(prefix));
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) throws IOException {
+        return people(index().findByBirthDateRange(from, to));
+    }
+
+    private SecondaryIndex<Integer> index() throws IOException {
+        if (index == null) {
+            SecondaryIndex<Integer> built = new SecondaryIndex<>();
+            for (int row = 0; row < size; row++) {
+                built.put(numbers[row], decode(records[row]));
+            }
+            index = built;
+        }
+        return index;
+    }
+
+    private ArrayList<Person> people(ArrayList<Integer> found) throws IOException {
+        ArrayList<Person> people = new ArrayList<>(found.size());
+        for (int number : found) {
+            people.add(person(records[rows.get(number)]));
+        }
+        return people;
+    }
+
+    @Override
+    public int count() {
+        return size;
+    }
+
+    @Override
+    public void insert(Person p) throws IOException, PersonException {
+        int number = numberOf(p);
+        int record = write(p);
+        int row = rows.get(number);
+        if (row == NifIntMap.NO_VALUE) {
+            addRow(number, record);
+        } else {
+            replace(row, record);
+        }
+        if (index != null) {
+            index.put(number, p);
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void update(Person p) throws IOException {
+        int row = rowOf(p);
+        if (row != NifIntMap.NO_VALUE) {
+            replace(row, write(p));
+            if (index != null) {
+                index.put(numbers[row], p);
+            }
+            compactIfNeeded();
+        }
+    }
+
+    @Override
+    public void delete(Person p) {
+        int row = rowOf(p);
+        if (row != NifIntMap.NO_VALUE) {
+            removeRow(row);
+            compactIfNeeded();
+        }
+    }
+
+    @Override
+    public boolean insertIfAbsent(Person p) throws IOException, PersonException {
+        int number = numberOf(p);
+        if (rows.containsKey(number)) {
+            return false;
+        }
+        addRow(number, write(p));
+        if (index != null) {
+            index.put(number, p);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) {
+        int row = rowOf(p);
+        if (row == NifIntMap.NO_VALUE) {
+            return false;
+        }
+        removeRow(row);
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * The chunks are released, their memory is freed when they are collected.
+     */
+    @Override
+    public void deleteAll() {
+        rows.clear();
+        index = null;
+        size = 0;
+        chunks.clear();
+        position = CHUNK_SIZE;
+        usedBytes = 0;
+        deadBytes = 0;
+    }
+
+    /**
+     * All the NIFs are checked before inserting anyone, so an invalid NIF
+     * leaves the storage unchanged.
+     */
+    @Override
+    public void insertAll(Collection<Person> people) throws IOException, PersonException {
+        for (Person p : people) {
+            numberOf(p);
+        }
+        for (Person p : people) {
+            insert(p);
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> people) throws IOException {
+        for (Person p : people) {
+            update(p);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) {
+        for (Person p : people) {
+            delete(p);
+        }
+    }
+
+    /**
+     * @return bytes allocated outside the heap
+     */
+    public long getAllocatedBytes() {
+        return (long) chunks.size() * CHUNK_SIZE;
+    }
+
+    private int rowOf(Person p) {
+        int number = DAONifIndex.number(p.getNif());
+        return number >= 0 ? rows.get(number) : NifIntMap.NO_VALUE;
+    }
+
+    private static int numberOf(Person p) throws PersonException {
+        int number = DAONifIndex.number(p.getNif());
+        if (number < 0) {
+            throw new PersonException(p.getNif() + " is not a valid NIF.");
+        }
+        return number;
+    }
+
+    private Person person(int record) throws IOException {
+        ByteBuffer chunk = chunks.get(record >>> OFFSET_BITS);
+        int offset = (record & ((1 << OFFSET_BITS) - 1)) * ALIGNMENT;
+        byte[] encoded = new byte[chunk.getInt(offset)];
+        byte[] photo = new byte[chunk.getInt(offset + 4)];
+        chunk.get(offset + RECORD_HEADER, encoded);
+        chunk.get(offset + RECORD_HEADER + encoded.length, photo);
+        Person p = PersonCodec.decode(encoded);
+        if (photo.length > 0) {
+            p.setPhotoHandle(Photo.ofBytes(photo));
+        }
+        return p;
+    }
+
+    private PersonSummary summary(int record) throws IOException {
+        ByteBuffer chunk = chunks.get(record >>> OFFSET_BITS);
+        int offset = (record & ((1 << OFFSET_BITS) - 1)) * ALIGNMENT;
+        Person p = decode(record);
+        return new PersonSummary(p.getNif(), p.getName(), p.getPhoneNumber(), p.getPostalCode(), p.getDateOfBirth(),
+                chunk.getInt(offset + 4) > 0);
+    }
+
+    /**
+     * @return person of the record without its photo
+     */
+    private Person decode(int record) throws IOException {
+        ByteBuffer chunk = chunks.get(record >>> OFFSET_BITS);
+        int offset = (record & ((1 << OFFSET_BITS) - 1)) * ALIGNMENT;
+        byte[] encoded = new byte[chunk.getInt(offset)];
+        chunk.get(offset + RECORD_HEADER, encoded);
+        return PersonCodec.decode(encoded);
+    }
+
+    /**
+     * Appends the record of the person to the arena.
+     *
+     * @return reference of the record
+     */
+    private int write(Person p) throws IOException {
+        byte[] encoded = PersonCodec.encode(p, null);
+        byte[] photo = p.hasPhoto() ? PhotoRepository.encoded(p.getPhotoHandle()) : new byte[0];
+        return append(encoded, photo);
+    }
+
+    private int append(byte[] encoded, byte[] photo) throws IOException {
+        int length = align(RECORD_HEADER + encoded.length + photo.length);
+        if (length > CHUNK_SIZE) {
+            throw new IOException("The photo is too large to be stored in memory.");
+        }
+        if (position + length > CHUNK_SIZE) {
+            if (chunks.size() == MAX_CHUNKS) {
+                throw new IOException("Not enough memory reserved to store more people.");
+            }
+            try {
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE));
+            } catch (OutOfMemoryError ex) {
+                //The direct memory of the JVM is exhausted
+                throw new IOException("Not enough memory reserved to store more people.", ex);
+            }
+            position = 0;
+        }
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        chunk.putInt(position, encoded.length);
+        chunk.putInt(position + 4, photo.length);
+        chunk.put(position + RECORD_HEADER, encoded);
+        chunk.put(position + RECORD_HEADER + encoded.length, photo);
+        int record = ((chunks.size() - 1) << OFFSET_BITS) | (position / ALIGNMENT);
+        position += length;
+        usedBytes += length;
+        return record;
+    }
+
+    private int length(int record) {
+        ByteBuffer chunk = chunks.get(record >>> OFFSET_BITS);
+        int offset = (record & ((1 << OFFSET_BITS) - 1)) * ALIGNMENT;
+        return align(RECORD_HEADER + chunk.getInt(offset) + chunk.getInt(offset + 4));
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private void addRow(int number, int record) {
+        if (size == numbers.length) {
+            numbers = Arrays.copyOf(numbers, size * 2);
+            records = Arrays.copyOf(records, size * 2);
+        }
+        numbers[size] = number;
+        records[size] = record;
+        rows.put(number, size++);
+    }
+
+    private void replace(int row, int record) {
+        deadBytes += length(records[row]);
+        records[row] = record;
+    }
+
+    /**
+     * Moves the last row to the row removed.
+     */
+    private void removeRow(int row) {
+        deadBytes += length(records[row]);
+        rows.remove(numbers[row]);
+        if (index != null) {
+            index.remove(numbers[row]);
+        }
+        int last = --size;
+        if (row != last) {
+            numbers[row] = numbers[last];
+            records[row] = records[last];
+            rows.put(numbers[row], row);
+        }
+    }
+
+    /**
+     * Copies the live records to new chunks when the dead bytes are more than
+     * half of the bytes used, so the memory of the dead ones can be freed.
+     */
+    private void compactIfNeeded() {
+        if (deadBytes * 2 <= usedBytes || usedBytes < CHUNK_SIZE) {
+            return;
+        }
+        ArrayList<ByteBuffer> former = new ArrayList<>(chunks);
+        chunks.clear();
+        position = CHUNK_SIZE;
+        usedBytes = 0;
+        deadBytes = 0;
+        for (int row = 0; row < size; row++) {
+            ByteBuffer chunk = former.get(records[row] >>> OFFSET_BITS);
+            int offset = (records[row] & ((1 << OFFSET_BITS) - 1)) * ALIGNMENT;
+            byte[] encoded = new byte[chunk.getInt(offset)];
+            byte[] photo = new byte[chunk.getInt(offset + 4)];
+            chunk.get(offset + RECORD_HEADER, encoded);
+            chunk.get(offset + RECORD_HEADER + encoded.length, photo);
+            try {
+                records[row] = append(encoded, photo);
+            } catch (IOException ex) {
+                //The live records always fit in the chunks they were in
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+}
@@ -1,133 +1,496 @@
 package model.dao;
 
 import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
 import start.Routes;
 
-import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
+import java.util.HashMap;
+import java.util.List;
 
 /**
  * This class implements the IDAO interface and completes the function code
  * blocks so that they can operate with a SQL DDBB. The NIF is used as the
- * primary key.
+ * primary key. Connections are borrowed from a ConnectionPool and every
+ * connection keeps its prepared statements, so an operation does not open a
+ * connection nor prepare a sentence again. The photos are saved in the
+ * PhotoRepository of the "Photos" folder and the table keeps their paths.
  *
  * @author Francesc Perez
  * @version 1.1.0
  */
 public class DAOSQL implements IDAO {
 
+    //Connection pool configuration
+    private static final int POOL_MIN_SIZE = 1;
+    private static final int POOL_MAX_SIZE = 8;
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = 60000;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 10000;
+    //NIFs looked up by a single SELECT of the former photos
+    private static final int SELECT_CHUNK = 1000;
+
     private final String SQL_SELECT_ALL = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + ";";
+    private final String SQL_SELECT_PAGE = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " ORDER BY nif LIMIT ? OFFSET ?;";
+    //Only the columns of the lists; the photo path is not read, only whether there is one
+    private final String SQL_SELECT_SUMMARIES = "SELECT nif, name, phoneNumber, postalCode, dateOfBirth, photo IS NOT NULL AS hasPhoto FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + ";";
+    private final String SQL_SELECT_SUMMARY_PAGE = "SELECT nif, name, phoneNumber, postalCode, dateOfBirth, photo IS NOT NULL AS hasPhoto FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " ORDER BY nif LIMIT ? OFFSET ?;";
+    private final String SQL_SELECT_BY_POSTAL_CODE = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (postalCode = ?) ORDER BY nif;";
+    private final String SQL_SELECT_BY_NAME_PREFIX = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (name LIKE ? ESCAPE '!') ORDER BY name;";
+    private final String SQL_SELECT_BY_BIRTH_DATE = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (dateOfBirth BETWEEN ? AND ?) ORDER BY dateOfBirth;";
+    private final String SQL_COUNT = "SELECT COUNT(*) FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + ";";
     private final String SQL_SELECT = "SELECT * FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (nif = ?);";
     private final String SQL_INSERT = "INSERT INTO " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " (nif, name, phoneNumber, postalCode, dateOfBirth, photo) VALUES (?, ?, ?, ?, ?, ?);";
     private final String SQL_UPDATE = "UPDATE " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " SET name = ?, phoneNumber = ?, postalCode = ?, dateOfBirth = ?, photo = ? WHERE (nif = ?);";
-    private final String SQL_DELETE = "DELETE FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (nif = ";
-    private final String SQL_DELETE_ALL = "TRUNCATE " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE();
+    private final String SQL_DELETE = "DELETE FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE (nif = ?);";
+    //Completed with a placeholder per NIF
+    private final String SQL_SELECT_PHOTOS = "SELECT nif, photo FROM " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + " WHERE nif IN (";
+    private final String SQL_DELETE_ALL = "TRUNCATE TABLE " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE();
+
+    private final ConnectionPool pool;
+    private final PhotoRepository photos;
 
-    public Connection connect() throws SQLException {
-        Connection conn;
-        conn = DriverManager.getConnection(Routes.DB.getDbServerAddress() + Routes.DB.getDbServerComOpt(), Routes.DB.getDbServerUser(), Routes.DB.getDbServerPassword());
-        return conn;
+    public DAOSQL() throws IOException {
+        this(new ConnectionPool(Routes.DB.getDbServerAddress() + Routes.DB.getDbServerComOpt(),
+                Routes.DB.getDbServerUser(), Routes.DB.getDbServerPassword(), POOL_MIN_SIZE, POOL_MAX_SIZE,
+                POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS));
     }
 
-    public void disconnect(Connection conn) throws SQLException {
-        conn.close();
+    /**
+     * Creates the DAO over an existing pool, for instance one connected to an
+     * embedded database.
+     *
+     * @param pool ConnectionPool
+     * @throws IOException if the photo repository can not be read
+     */
+    public DAOSQL(ConnectionPool pool) throws IOException {
+        this(pool, Routes.DB.getFolderPhotos());
+    }
+
+    /**
+     * @param pool ConnectionPool
+     * @param folderPhotos folder where the photos are saved
+     * @throws IOException if the photo repository can not be read
+     */
+    public DAOSQL(ConnectionPool pool, String folderPhotos) throws IOException {
+        this.pool = pool;
+        this.photos = new PhotoRepository(folderPhotos);
     }
 
     @Override
     public Person read(Person p) throws SQLException {
         Person pReturn = null;
-        Connection conn;
-        PreparedStatement instruction;
-        ResultSet rs;
-        conn = connect();
-        instruction = conn.prepareStatement(SQL_SELECT);
-        instruction.setString(1, p.getNif());
-        rs = instruction.executeQuery();
-        while (rs.next()) {
-            String nif = rs.getString("nif");
-            String name = rs.getString("name");
-            String phoneNumber = rs.getString("phoneNumber");
-            String postalCode = rs.getString("postalCode");
-            pReturn = new Person(name, nif, phoneNumber,postalCode);
-            Date date = rs.getDate("dateOfBirth");
-            if (date != null) {
-                pReturn.setDateOfBirth(date);
-            }
-            String photo = rs.getString("photo");
-            if (photo != null) {
-                pReturn.setPhoto(new ImageIcon(photo));
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(SQL_SELECT);
+            instruction.setString(1, p.getNif());
+            try ( ResultSet rs = instruction.executeQuery()) {
+                while (rs.next()) {
+                    String nif = rs.getString("nif");
+                    String name = rs.getString("name");
+                    String phoneNumber = rs.getString("phoneNumber");
+                    String postalCode = rs.getString("postalCode");
+                    pReturn = new Person(name, nif, phoneNumber, postalCode);
+                    Date date = rs.getDate("dateOfBirth");
+                    if (date != null) {
+                        pReturn.setDateOfBirth(date);
+                    }
+                    String photo = rs.getString("photo");
+                    if (photo != null) {
+                        pReturn.setPhotoHandle(Photo.ofPath(photo));
+                    }
+                }
             }
+        } finally {
+            pool.release(conn);
         }
-        rs.close();
-        instruction.close();
-        disconnect(conn);
         return pReturn;
     }
 
     @Override
     public ArrayList<Person> readAll() throws SQLException {
         ArrayList<Person> people = new ArrayList<>();
-        Connection conn;
-        Statement instruction;
-        ResultSet rs;
-        conn = connect();
-        instruction = conn.createStatement();
-        rs = instruction.executeQuery(SQL_SELECT_ALL);
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try ( ResultSet rs = conn.prepare(SQL_SELECT_ALL).executeQuery()) {
+            addPeople(rs, people);
+        } finally {
+            pool.release(conn);
+        }
+        return people;
+    }
+
+    /**
+     * The people are ordered by their primary key, so the database walks its
+     * index and every page is stable.
+     */
+    @Override
+    public ArrayList<Person> readPage(int offset, int limit) throws SQLException {
+        ArrayList<Person> people = new ArrayList<>();
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(SQL_SELECT_PAGE);
+            instruction.setInt(1, limit);
+            instruction.setInt(2, offset);
+            try ( ResultSet rs = instruction.executeQuery()) {
+                addPeople(rs, people);
+            }
+        } finally {
+            pool.release(conn);
+        }
+        return people;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readAllSummaries() throws SQLException {
+        ArrayList<PersonSummary> summaries = new ArrayList<>();
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try ( ResultSet rs = conn.prepare(SQL_SELECT_SUMMARIES).executeQuery()) {
+            addSummaries(rs, summaries);
+        } finally {
+            pool.release(conn);
+        }
+        return summaries;
+    }
+
+    @Override
+    public ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws SQLException {
+        ArrayList<PersonSummary> summaries = new ArrayList<>();
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(SQL_SELECT_SUMMARY_PAGE);
+            instruction.setInt(1, limit);
+            instruction.setInt(2, offset);
+            try ( ResultSet rs = instruction.executeQuery()) {
+                addSummaries(rs, summaries);
+            }
+        } finally {
+            pool.release(conn);
+        }
+        return summaries;
+    }
+
+    @Override
+    public ArrayList<Person> findByPostalCode(String postalCode) throws SQLException {
+        return select(SQL_SELECT_BY_POSTAL_CODE, postalCode);
+    }
+
+    /**
+     * The characters of LIKE in the prefix are escaped, so they are matched
+     * as they are.
+     */
+    @Override
+    public ArrayList<Person> findByNamePrefix(String prefix) throws SQLException {
+        return select(SQL_SELECT_BY_NAME_PREFIX, prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+    }
+
+    @Override
+    public ArrayList<Person> findByBirthDateRange(Date from, Date to) throws SQLException {
+        return select(SQL_SELECT_BY_BIRTH_DATE, new java.sql.Date(from.getTime()), new java.sql.Date(to.getTime()));
+    }
+
+    /**
+     * The columns searched have an index, created with the table.
+     */
+    private ArrayList<Person> select(String sql, Object... values) throws SQLException {
+        ArrayList<Person> people = new ArrayList<>();
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(sql);
+            for (int i = 0; i < values.length; i++) {
+                instruction.setObject(i + 1, values[i]);
+            }
+            try ( ResultSet rs = instruction.executeQuery()) {
+                addPeople(rs, people);
+            }
+        } finally {
+            pool.release(conn);
+        }
+        return people;
+    }
+
+    private void addSummaries(ResultSet rs, ArrayList<PersonSummary> summaries) throws SQLException {
+        while (rs.next()) {
+            summaries.add(new PersonSummary(rs.getString("nif"), rs.getString("name"), rs.getString("phoneNumber"),
+                    rs.getString("postalCode"), rs.getDate("dateOfBirth"), rs.getBoolean("hasPhoto")));
+        }
+    }
+
+    private void addPeople(ResultSet rs, ArrayList<Person> people) throws SQLException {
         while (rs.next()) {
             String nif = rs.getString("nif");
             String name = rs.getString("name");
             String phoneNumber = rs.getString("phoneNumber");
             String postalCode = rs.getString("postalCode");
             Date date = rs.getDate("dateOfBirth");
+            Person p = new Person(name, nif, phoneNumber, postalCode, date, null);
             String photo = rs.getString("photo");
             if (photo != null) {
-                people.add(new Person(nif, name, phoneNumber, postalCode ,date, new ImageIcon(photo)));
-            } else {
-                people.add(new Person(nif, name, phoneNumber, postalCode,date, null));
+                p.setPhotoHandle(Photo.ofPath(photo));
             }
+            people.add(p);
         }
-        rs.close();
-        instruction.close();
-        disconnect(conn);
-        return people;
     }
 
     @Override
-    public void delete(Person p) throws SQLException {
-        Connection conn;
-        PreparedStatement instruction;
-        conn = connect();
-        String query = SQL_DELETE + "'" + p.getNif() + "'" + ");";
-        instruction = conn.prepareStatement(query);
-        instruction.executeUpdate();
-        instruction.close();
-        disconnect(conn);
-        File photoFile = new File(Routes.DB.getFolderPhotos() + File.separator + p.getNif()
-                + ".png");
-        photoFile.delete();
+    public int count() throws SQLException {
+        int number = 0;
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try ( ResultSet rs = conn.prepare(SQL_COUNT).executeQuery()) {
+            if (rs.next()) {
+                number = rs.getInt(1);
+            }
+        } finally {
+            pool.release(conn);
+        }
+        return number;
+    }
+
+    @Override
+    public void delete(Person p) throws SQLException, IOException {
+        deleteIfPresent(p);
     }
 
+    /**
+     * If the row is rejected the reference to the photo is given back.
+     */
     @Override
     public void insert(Person p) throws IOException, SQLException {
-        Connection conn;
-        PreparedStatement instruction;
-        conn = connect();
-        instruction = conn.prepareStatement(SQL_INSERT);
+        String photoPath = null;
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(SQL_INSERT);
+            photoPath = bindInsert(instruction, p);
+            instruction.executeUpdate();
+        } catch (SQLException ex) {
+            releaseStored(Collections.singletonList(photoPath), ex);
+            throw ex;
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * The primary key on the NIF rejects the insertion of a registered
+     * person, so no previous SELECT is needed. If the row is rejected the
+     * reference to the photo is given back.
+     */
+    @Override
+    public boolean insertIfAbsent(Person p) throws IOException, SQLException {
+        String photoPath = null;
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            PreparedStatement instruction = conn.prepare(SQL_INSERT);
+            photoPath = bindInsert(instruction, p);
+            instruction.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException ex) {
+            photos.release(photoPath);
+            return false;
+        } catch (SQLException ex) {
+            releaseStored(Collections.singletonList(photoPath), ex);
+            throw ex;
+        } finally {
+            pool.release(conn);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteIfPresent(Person p) throws SQLException, IOException {
+        return !deleteRegistered(Collections.singletonList(p)).isEmpty();
+    }
+
+    @Override
+    public void update(Person p) throws FileNotFoundException, SQLException, IOException {
+        updateAll(Collections.singletonList(p));
+    }
+
+    @Override
+    public void insertAll(Collection<Person> people) throws IOException, SQLException {
+        executeBatch(SQL_INSERT, people, false, this::bindInsert);
+    }
+
+    /**
+     * Only the registered people are updated. Their former photos are read
+     * in the same transaction as the update and released once it has been
+     * committed.
+     */
+    @Override
+    public void updateAll(Collection<Person> people) throws IOException, SQLException {
+        HashMap<String, String> former = executeBatch(SQL_UPDATE, people, true, this::bindUpdate);
+        for (String photoPath : former.values()) {
+            photos.release(photoPath);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Person> people) throws IOException, SQLException {
+        deleteRegistered(people);
+    }
+
+    /**
+     * Deletes the registered people among the given ones and releases their
+     * photos once the deletion has been committed.
+     *
+     * @return NIF -> photo path of the people deleted
+     */
+    private HashMap<String, String> deleteRegistered(Collection<Person> people) throws SQLException, IOException {
+        HashMap<String, String> former = executeBatch(SQL_DELETE, people, true, (instruction, p) -> {
+            instruction.setString(1, p.getNif());
+            return null;
+        });
+        for (String photoPath : former.values()) {
+            photos.release(photoPath);
+        }
+        return former;
+    }
+
+    /**
+     * Reads, and locks until the end of the transaction, the rows of the
+     * given people with one SELECT per chunk of NIFs. The last chunk has a
+     * length of its own, so these sentences are not kept by the connection.
+     *
+     * @return NIF -> photo path (null if there is no photo) of the given
+     * people that are registered
+     */
+    private HashMap<String, String> selectPhotos(ConnectionPool.PooledConnection conn, Collection<Person> people) throws SQLException {
+        HashMap<String, String> found = new HashMap<>();
+        ArrayList<String> nifs = new ArrayList<>(people.size());
+        for (Person p : people) {
+            nifs.add(p.getNif());
+        }
+        for (int from = 0; from < nifs.size(); from += SELECT_CHUNK) {
+            List<String> chunk = nifs.subList(from, Math.min(from + SELECT_CHUNK, nifs.size()));
+            String sql = SQL_SELECT_PHOTOS + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") FOR UPDATE;";
+            try ( PreparedStatement instruction = conn.getConnection().prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    instruction.setString(i + 1, chunk.get(i));
+                }
+                try ( ResultSet rs = instruction.executeQuery()) {
+                    while (rs.next()) {
+                        found.put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void deleteAll() throws Exception {
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            conn.prepare(SQL_DELETE_ALL).executeUpdate();
+        } finally {
+            pool.release(conn);
+        }
+        photos.clear();
+    }
+
+    /**
+     * Sets the parameters of a sentence for a person.
+     */
+    private interface Binder {
+
+        /**
+         * @return path of the photo stored for the row, null if none was
+         */
+        String bind(PreparedStatement instruction, Person p) throws SQLException, IOException;
+    }
+
+    /**
+     * Runs the sentence once per person with JDBC batching, inside a single
+     * transaction. If the transaction is rolled back, the references to the
+     * photos stored for its rows are given back. A failure of the rollback is
+     * added to the exception that caused it.
+     *
+     * @param registeredOnly whether the sentence only runs for the people
+     * that are registered, whose former photos are read in the same
+     * transaction
+     * @return NIF -> former photo path of the registered people, empty if
+     * they are not read
+     */
+    private HashMap<String, String> executeBatch(String sql, Collection<Person> people, boolean registeredOnly,
+            Binder binder) throws SQLException, IOException {
+        HashMap<String, String> former = new HashMap<>();
+        if (people.isEmpty()) {
+            return former;
+        }
+        ArrayList<String> stored = new ArrayList<>();
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        Connection connection = conn.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            if (registeredOnly) {
+                former = selectPhotos(conn, people);
+            }
+            PreparedStatement instruction = conn.prepare(sql);
+            for (Person p : people) {
+                if (!registeredOnly || former.containsKey(p.getNif())) {
+                    stored.add(binder.bind(instruction, p));
+                    instruction.addBatch();
+                }
+            }
+            instruction.executeBatch();
+            connection.commit();
+        } catch (SQLException | IOException ex) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackEx) {
+                ex.addSuppressed(rollbackEx);
+            }
+            releaseStored(stored, ex);
+            throw ex;
+        } finally {
+            endTransaction(conn);
+        }
+        return former;
+    }
+
+    /**
+     * Gives back the references to the photos stored for rows that were not
+     * written. A failure is added to the exception that undid the rows.
+     */
+    private void releaseStored(List<String> stored, Exception cause) {
+        for (String photoPath : stored) {
+            try {
+                photos.release(photoPath);
+            } catch (IOException ex) {
+                cause.addSuppressed(ex);
+            }
+        }
+    }
+
+    /**
+     * Gives back a connection used by a transaction. If its auto-commit can
+     * not be restored the connection is broken and it is discarded instead.
+     */
+    private void endTransaction(ConnectionPool.PooledConnection conn) {
+        try {
+            conn.getConnection().setAutoCommit(true);
+        } catch (SQLException ex) {
+            pool.invalidate(conn);
+            return;
+        }
+        pool.release(conn);
+    }
+
+    private String bindInsert(PreparedStatement instruction, Person p) throws SQLException, IOException {
+        String photoPath = p.hasPhoto() ? photos.store(p.getPhotoHandle()) : null;
+        bindInsert(instruction, p, photoPath);
+        return photoPath;
+    }
+
+    private void bindInsert(PreparedStatement instruction, Person p, String photoPath) throws SQLException {
         instruction.setString(1, p.getNif());
         instruction.setString(2, p.getName());
         instruction.setString(3, p.getPhoneNumber());
@@ -137,40 +500,11 @@ public class DAOSQL implements IDAO {
         } else {
             instruction.setDate(5, null);
         }
-        if (p.getPhoto() != null) {
-            String sep = File.separator;
-            String filePath = Routes.DB.getFolderPhotos() + sep + p.getNif() + ".png";
-            File photo = new File(filePath);
-            FileOutputStream out;
-            BufferedOutputStream outB;
-            out = new FileOutputStream(photo);
-            outB = new BufferedOutputStream(out);
-            BufferedImage bi = new BufferedImage(p.getPhoto().getImage().getWidth(null),
-                    p.getPhoto().getImage().getHeight(null),
-                    BufferedImage.TYPE_INT_ARGB);
-            bi.getGraphics().drawImage(p.getPhoto().getImage(), 0, 0, null);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(bi, "png", baos);
-            byte[] img = baos.toByteArray();
-            for (int i = 0; i < img.length; i++) {
-                outB.write(img[i]);
-            }
-            outB.close();
-            instruction.setString(6, photo.getPath());
-        } else {
-            instruction.setString(6, null);
-        }
-        instruction.executeUpdate();
-        instruction.close();
-        disconnect(conn);
+        instruction.setString(6, photoPath);
     }
 
-    @Override
-    public void update(Person p) throws FileNotFoundException, SQLException, IOException {
-        Connection conn;
-        PreparedStatement instruction;
-        conn = connect();
-        instruction = conn.prepareStatement(SQL_UPDATE);
+    private String bindUpdate(PreparedStatement instruction, Person p) throws SQLException, IOException {
+        String photoPath = p.hasPhoto() ? photos.store(p.getPhotoHandle()) : null;
         instruction.setString(1, p.getName());
         instruction.setString(2, p.getPhoneNumber());
         instruction.setString(3, p.getPostalCode());
@@ -179,51 +513,9 @@ public class DAOSQL implements IDAO {
         } else {
             instruction.setDate(4, null);
         }
-        if (p.getPhoto() != null) {
-            String sep = File.separator;
-            File imagePerson = new File(Routes.DB.getFolderPhotos() + sep + p.getNif() + ".png");
-            FileOutputStream out;
-            BufferedOutputStream outB;
-            out = new FileOutputStream(imagePerson);
-            outB = new BufferedOutputStream(out);
-            BufferedImage bi = new BufferedImage(p.getPhoto().getImage().getWidth(null),
-                    p.getPhoto().getImage().getHeight(null),
-                    BufferedImage.TYPE_INT_ARGB);
-            bi.getGraphics().drawImage(p.getPhoto().getImage(), 0, 0, null);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(bi, "png", baos);
-            byte[] img = baos.toByteArray();
-            for (int i = 0; i < img.length; i++) {
-                outB.write(img[i]);
-            }
-            outB.close();
-            instruction.setString(4, imagePerson.getPath());
-        } else {
-            instruction.setString(4, null);
-            File photoFile = new File(Routes.DB.getFolderPhotos() + File.separator + p.getNif()
-                    + ".png");
-            photoFile.delete();
-        }
-        instruction.setString(5, p.getNif());
-        instruction.executeUpdate();
-        instruction.close();
-        disconnect(conn);
-    }
-
-    @Override
-    public void deleteAll() throws Exception {
-        Connection conn;
-        PreparedStatement instruction;
-        conn = connect();
-        instruction = conn.prepareStatement(SQL_DELETE_ALL);
-        System.out.println(SQL_DELETE_ALL);
-        instruction.executeUpdate();
-        instruction.close();
-        disconnect(conn);
-        File file = new File(Routes.DB.getFolderPhotos() + File.separator);
-        for (File f : file.listFiles()) {
-            f.delete();
-        }
+        instruction.setString(5, photoPath);
+        instruction.setString(6, p.getNif());
+        return photoPath;
     }
 
 }
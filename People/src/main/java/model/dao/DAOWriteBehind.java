@@ -0,0 +1,386 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.PersonSummary;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * This class implements the IDAO interface as a decorator of another IDAO
+ * that keeps the writes in memory and sends them to the storage later, all
+ * together through insertAll, updateAll and deleteAll, so that a storage that
+ * writes its whole file on every call writes it once per flush. The writes
+ * to the same NIF are merged: only the last state of every person is sent.
+ *
+ * The writes are flushed when maxPending people are waiting, when the JVM
+ * shuts down, when flush() or close() are called and, depending on the
+ * Durability, every intervalMillis or at the end of every call. Reads see the
+ * writes not flushed yet; readAll, readPage, the
+ * summaries and count flush first. A flush of the timer that fails is handed
+ * to the failure listener, or thrown by the next call if there is none.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class DAOWriteBehind implements IDAO {
+
+    /**
+     * When the writes reach the storage.
+     */
+    public enum Durability {
+        //Every intervalMillis: the writes of the last interval may be lost
+        INTERVAL,
+        //At the end of every call: nothing is lost, writes are only merged
+        //within a batch call
+        EVERY_CALL
+    }
+
+    public static final int DEFAULT_MAX_PENDING = 1000;
+
+    private final IDAO dao;
+    private final Durability durability;
+    private final int maxPending;
+    private final ScheduledExecutorService timer;
+    private final Thread shutdownHook;
+    private final LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+    //Exception of the last flush run by the timer, thrown by the next call
+    private Exception failure;
+    private volatile Consumer<Exception> failureListener;
+
+    /**
+     * Last state of a person waiting to be written.
+     */
+    private enum State {
+        //Not in the storage: insert
+        INSERTED,
+        //In the storage: update, ignored if it is not there
+        UPDATED,
+        //Delete from the storage
+        DELETED,
+        //Delete from the storage, if it is there, and insert
+        REPLACED
+    }
+
+    private static class Pending {
+
+        final State state;
+        final Person person;
+
+        Pending(State state, Person person) {
+            this.state = state;
+            this.person = person;
+        }
+    }
+
+    /**
+     * @param dao storage written
+     * @param durability when the writes are flushed
+     * @param intervalMillis time between flushes for Durability.INTERVAL
+     * @param maxPending people waiting that trigger a flush
+     */
+    public DAOWriteBehind(IDAO dao, Durability durability, long intervalMillis, int maxPending) {
+        if (maxPending < 1 || (durability == Durability.INTERVAL && intervalMillis < 1)) {
+            throw new IllegalArgumentException("The interval and the pending writes must be positive.");
+        }
+        this.dao = dao;
+        this.durability = durability;
+        this.maxPending = maxPending;
+        if (durability == Durability.INTERVAL) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "DAOWriteBehind-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.scheduleWithFixedDelay(this::scheduledFlush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            timer = null;
+        }
+        shutdownHook = new Thread(this::flushQuietly, "DAOWriteBehind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public synchronized Person read(Person p) throws Exception {
+        rethrowFailure();
+        Pending last = pending.get(p.getNif());
+        if (last == null) {
+            return dao.read(p);
+        }
+        switch (last.state) {
+            case DELETED:
+                return null;
+            case UPDATED:
+                return dao.read(p) != null ? last.person : null;
+            default:
+                return last.person;
+        }
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readAll() throws Exception {
+        flush();
+        return dao.readAll();
+    }
+
+    @Override
+    public synchronized ArrayList<Person> readPage(int offset, int limit) throws Exception {
+        flush();
+        return dao.readPage(offset, limit);
+    }
+
+    @Override
+    public synchronized ArrayList<PersonSummary> readAllSummaries() throws Exception {
+        flush();
+        return dao.readAllSummaries();
+    }
+
+    @Override
+    public synchronized ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws Exception {
+        flush();
+        return dao.readSummaryPage(offset, limit);
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByPostalCode(String postalCode) throws Exception {
+        flush();
+        return dao.findByPostalCode(postalCode);
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByNamePrefix(String prefix) throws Exception {
+        flush();
+        return dao.findByNamePrefix(prefix);
+    }
+
+    @Override
+    public synchronized ArrayList<Person> findByBirthDateRange(Date from, Date to) throws Exception {
+        flush();
+        return dao.findByBirthDateRange(from, to);
+    }
+
+    @Override
+    public synchronized int count() throws Exception {
+        flush();
+        return dao.count();
+    }
+
+    @Override
+    public synchronized void insert(Person p) throws Exception {
+        rethrowFailure();
+        insertPending(p);
+        written();
+    }
+
+    @Override
+    public synchronized void update(Person p) throws Exception {
+        rethrowFailure();
+        updatePending(p);
+        written();
+    }
+
+    @Override
+    public synchronized void delete(Person p) throws Exception {
+        rethrowFailure();
+        deletePending(p);
+        written();
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(Person p) throws Exception {
+        if (read(p) != null) {
+            return false;
+        }
+        insertPending(p);
+        written();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteIfPresent(Person p) throws Exception {
+        if (read(p) == null) {
+            return false;
+        }
+        deletePending(p);
+        written();
+        return true;
+    }
+
+    @Override
+    public synchronized void deleteAll() throws Exception {
+        rethrowFailure();
+        pending.clear();
+        dao.deleteAll();
+    }
+
+    @Override
+    public synchronized void insertAll(Collection<Person> people) throws Exception {
+        rethrowFailure();
+        for (Person p : people) {
+            insertPending(p);
+        }
+        written();
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Person> people) throws Exception {
+        rethrowFailure();
+        for (Person p : people) {
+            updatePending(p);
+        }
+        written();
+    }
+
+    @Override
+    public synchronized void deleteAll(Collection<Person> people) throws Exception {
+        rethrowFailure();
+        for (Person p : people) {
+            deletePending(p);
+        }
+        written();
+    }
+
+    /**
+     * Writes the people waiting: first the deletions, then the updates and
+     * then the insertions, one call to the storage each. If the storage fails
+     * the writes are kept and the exception is thrown.
+     *
+     * @throws Exception
+     */
+    public synchronized void flush() throws Exception {
+        failure = null;
+        if (pending.isEmpty()) {
+            return;
+        }
+        ArrayList<Person> deleted = new ArrayList<>();
+        ArrayList<Person> updated = new ArrayList<>();
+        ArrayList<Person> inserted = new ArrayList<>();
+        for (Pending last : pending.values()) {
+            switch (last.state) {
+                case DELETED:
+                    deleted.add(last.person);
+                    break;
+                case UPDATED:
+                    updated.add(last.person);
+                    break;
+                case REPLACED:
+                    deleted.add(last.person);
+                    inserted.add(last.person);
+                    break;
+                default:
+                    inserted.add(last.person);
+            }
+        }
+        if (!deleted.isEmpty()) {
+            dao.deleteAll(deleted);
+        }
+        if (!updated.isEmpty()) {
+            dao.updateAll(updated);
+        }
+        if (!inserted.isEmpty()) {
+            dao.insertAll(inserted);
+        }
+        pending.clear();
+    }
+
+    /**
+     * @param failureListener receives, on the thread of the timer, the
+     * exception of every flush of the timer that fails, instead of the next
+     * call
+     */
+    public void setFailureListener(Consumer<Exception> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    /**
+     * @return people waiting to be written
+     */
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Flushes the writes and stops the timer.
+     *
+     * @throws Exception
+     */
+    public synchronized void close() throws Exception {
+        if (timer != null) {
+            timer.shutdown();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            //The JVM is already shutting down and the hook flushes
+        }
+        flush();
+    }
+
+    private void insertPending(Person p) {
+        Pending last = pending.get(p.getNif());
+        if (last == null || last.state == State.INSERTED) {
+            pending.put(p.getNif(), new Pending(State.INSERTED, p));
+        } else {
+            pending.put(p.getNif(), new Pending(State.REPLACED, p));
+        }
+    }
+
+    private void updatePending(Person p) {
+        Pending last = pending.get(p.getNif());
+        if (last == null) {
+            pending.put(p.getNif(), new Pending(State.UPDATED, p));
+        } else if (last.state != State.DELETED) {
+            pending.put(p.getNif(), new Pending(last.state, p));
+        }
+    }
+
+    private void deletePending(Person p) {
+        Pending last = pending.get(p.getNif());
+        if (last != null && last.state == State.INSERTED) {
+            pending.remove(p.getNif());
+        } else {
+            pending.put(p.getNif(), new Pending(State.DELETED, p));
+        }
+    }
+
+    private void written() throws Exception {
+        if (durability == Durability.EVERY_CALL || pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    private void rethrowFailure() throws Exception {
+        if (failure != null) {
+            Exception ex = failure;
+            failure = null;
+            throw ex;
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            Consumer<Exception> listener = failureListener;
+            if (listener != null) {
+                listener.accept(ex);
+            } else {
+                failure = ex;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            //Nothing else can be done while the JVM shuts down
+        }
+    }
+
+}
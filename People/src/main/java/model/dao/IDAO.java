@@ -1,7 +1,10 @@
 package model.dao;
 
 import model.entity.Person;
+import model.entity.PersonSummary;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 
 /**
  * This interface defines the operations that will have to be performed on the 
@@ -31,6 +34,68 @@ public interface IDAO {
      */
     public abstract ArrayList<Person> readAll() throws Exception;
     
+    /**
+     * This function returns at most limit registered people, skipping the 
+     * first offset ones. The people always come in the same order, so 
+     * consecutive pages can be read without holding all of them in memory.
+     * @param offset number of people skipped
+     * @param limit maximum number of people returned
+     * @return ArrayList<>
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<Person> readPage(int offset, int limit) throws Exception;
+    
+    /**
+     * This function returns the data of all registered persons shown in the 
+     * lists, without their photos, only whether they have one. The storages 
+     * that keep the photos apart do not read them.
+     * @return ArrayList<>
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<PersonSummary> readAllSummaries() throws Exception;
+    
+    /**
+     * This function returns the summaries of the people that readPage 
+     * returns for the same offset and limit, in the same order.
+     * @param offset number of people skipped
+     * @param limit maximum number of people returned
+     * @return ArrayList<>
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<PersonSummary> readSummaryPage(int offset, int limit) throws Exception;
+    
+    /**
+     * This function returns the registered people with the given postal 
+     * code, looked up in an index of the storage instead of reading all the 
+     * people.
+     * @param postalCode String
+     * @return ArrayList<>, empty if there is nobody with the postal code
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<Person> findByPostalCode(String postalCode) throws Exception;
+    
+    /**
+     * This function returns the registered people whose name starts with the 
+     * given prefix, ordered by name, looked up in an index of the storage. 
+     * The names are compared as the storage compares them: case sensitive, 
+     * except in the SQL DDBB, whose default collation ignores the case.
+     * @param prefix String
+     * @return ArrayList<>, empty if no name starts with the prefix
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<Person> findByNamePrefix(String prefix) throws Exception;
+    
+    /**
+     * This function returns the registered people born between the two given 
+     * dates, both included, ordered by date of birth, looked up in an index 
+     * of the storage. People without date of birth are never returned.
+     * @param from Date
+     * @param to Date
+     * @return ArrayList<>, empty if nobody was born in the range
+     * @throws java.lang.Exception
+     */
+    public abstract ArrayList<Person> findByBirthDateRange(Date from, Date to) throws Exception;
+    
     /**
      * This function receives the person who must enter the storage system and 
      * store it into the ArrayList, if it is not possible generates a 
@@ -58,9 +123,66 @@ public interface IDAO {
      */
     public abstract void delete (Person p) throws Exception;
     
+    /**
+     * This function enters the person into the storage system only if there is 
+     * no person registered with the same NIF. The check and the insertion are 
+     * done in a single operation of the storage, so no other insertion can 
+     * slip in between.
+     * @param p Person
+     * @return true if the person has been inserted, false if the NIF was 
+     * already registered
+     * @throws java.lang.Exception
+     */
+    public abstract boolean insertIfAbsent (Person p) throws Exception;
+    
+    /**
+     * This function deletes the person (NIF) from the storage system in a 
+     * single operation and reports whether it was registered.
+     * @param p Person
+     * @return true if a person has been deleted, false if the NIF was not 
+     * registered
+     * @throws java.lang.Exception
+     */
+    public abstract boolean deleteIfPresent (Person p) throws Exception;
+    
      /**
      * This function deletes all people registered in the application.
      * @throws java.lang.Exception
      */
     public abstract void deleteAll () throws Exception;
+    
+    /**
+     * This function returns the number of people registered, asking the 
+     * storage system for it instead of reading all of them.
+     * @return int
+     * @throws java.lang.Exception
+     */
+    public abstract int count () throws Exception;
+    
+    /**
+     * This function receives a group of people and enters all of them into 
+     * the storage system in a single operation of the storage (a batch, a 
+     * transaction or a single write), instead of one operation per person.
+     * @param people Collection of Person
+     * @throws java.lang.Exception
+     */
+    public abstract void insertAll (Collection<Person> people) throws Exception;
+    
+    /**
+     * This function receives a group of people with updated data and enters 
+     * all of them into the storage system in a single operation of the 
+     * storage. People that are not registered are ignored.
+     * @param people Collection of Person
+     * @throws java.lang.Exception
+     */
+    public abstract void updateAll (Collection<Person> people) throws Exception;
+    
+    /**
+     * This function receives a group of people (NIF) and deletes all of them 
+     * from the storage system in a single operation of the storage. People 
+     * that are not registered are ignored.
+     * @param people Collection of Person
+     * @throws java.lang.Exception
+     */
+    public abstract void deleteAll (Collection<Person> people) throws Exception;
 }
@@ -0,0 +1,448 @@
+package model.dao;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index of the names of the people for the searches by a part of
+ * the name, even misspelled. The names are normalized (accents removed, lower
+ * case, only letters and digits) and cut into trigrams, every word with a
+ * space before and after it: "José" is " jo", "jos", "ose", "se ". Every
+ * trigram has the list of the people whose name contains it, so a search
+ * only reads the lists of the trigrams of the query.
+ *
+ * A name matches when it contains at least MIN_SIMILARITY of the trigrams of
+ * the query. The last word of the query is taken as the beginning of a word,
+ * so "mar" finds "María" while it is being typed. The names are ranked by the
+ * fraction of trigrams of the query they contain and then by how much of the
+ * name the query covers.
+ *
+ * Every person has an int id and the lists are arrays of ids, and every
+ * trigram is a long with its three chars. A search adds one to the counter
+ * of every id of the lists it reads, so its cost is the length of those
+ * lists and not the number of people. A person replaced or removed leaves
+ * its id dead in the lists, and the lists are built again when the dead ids
+ * are more than half of them. All the methods are synchronized.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class NameSearchIndex {
+
+    public static final int GRAM_LENGTH = 3;
+    public static final double MIN_SIMILARITY = 0.5;
+    //Trigrams of a query used, so that the counters of a search fit in a short
+    private static final int MAX_QUERY_GRAMS = 64;
+    private static final int INITIAL_IDS = 1024;
+
+    /**
+     * Person found by a search.
+     */
+    public static class Match {
+
+        private final String nif;
+        private final String name;
+        private final double score;
+
+        private Match(String nif, String name, double score) {
+            this.nif = nif;
+            this.name = name;
+            this.score = score;
+        }
+
+        public String getNif() {
+            return nif;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return fraction of the trigrams of the query found in the name,
+         * from MIN_SIMILARITY to 1
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Ids of the people whose name has a trigram.
+     */
+    private static class Posting {
+
+        private int[] ids;
+        private int size;
+
+        private Posting(int capacity) {
+            ids = new int[capacity];
+        }
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Hash table from the trigrams to their lists, with open addressing and
+     * linear probing like NifIntMap, so that the trigrams are not boxed. No
+     * trigram is 0, which marks the free slots. Lists are never removed, the
+     * whole table is emptied instead.
+     */
+    private static class Postings {
+
+        private long[] grams = new long[1024];
+        private Posting[] lists = new Posting[1024];
+        private int size;
+
+        private Posting get(long gram) {
+            int slot = slot(gram, grams.length);
+            while (grams[slot] != 0) {
+                if (grams[slot] == gram) {
+                    return lists[slot];
+                }
+                slot = (slot + 1) & (grams.length - 1);
+            }
+            return null;
+        }
+
+        private Posting getOrAdd(long gram) {
+            int slot = slot(gram, grams.length);
+            while (grams[slot] != 0) {
+                if (grams[slot] == gram) {
+                    return lists[slot];
+                }
+                slot = (slot + 1) & (grams.length - 1);
+            }
+            grams[slot] = gram;
+            Posting posting = lists[slot] = new Posting(4);
+            if (++size > grams.length / 2) {
+                grow();
+            }
+            return posting;
+        }
+
+        private void grow() {
+            long[] formerGrams = grams;
+            Posting[] formerLists = lists;
+            grams = new long[formerGrams.length * 2];
+            lists = new Posting[formerGrams.length * 2];
+            for (int i = 0; i < formerGrams.length; i++) {
+                if (formerGrams[i] != 0) {
+                    int slot = slot(formerGrams[i], grams.length);
+                    while (grams[slot] != 0) {
+                        slot = (slot + 1) & (grams.length - 1);
+                    }
+                    grams[slot] = formerGrams[i];
+                    lists[slot] = formerLists[i];
+                }
+            }
+        }
+
+        private static int slot(long gram, int capacity) {
+            return (int) ((gram * 0x9E3779B97F4A7C15L) >>> 40) & (capacity - 1);
+        }
+    }
+
+    /**
+     * Candidate of a search while it is being ranked.
+     */
+    private static class Candidate {
+
+        private final int id;
+        private final int hits;
+        private final double coverage;
+
+        private Candidate(int id, int hits, double coverage) {
+            this.id = id;
+            this.hits = hits;
+            this.coverage = coverage;
+        }
+    }
+
+    private static final Posting EMPTY = new Posting(0);
+    private static final Comparator<Candidate> RANKING = Comparator.<Candidate>comparingInt(c -> c.hits)
+            .thenComparingDouble(c -> c.coverage);
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private Postings postings = new Postings();
+    //Per id; the NIF of a dead id is null
+    private String[] nifs = new String[INITIAL_IDS];
+    private String[] names = new String[INITIAL_IDS];
+    private int[] gramCounts = new int[INITIAL_IDS];
+    private int size;
+    private int dead;
+    //Trigrams of the query found per id and ids found, reused by every search
+    private short[] hits = new short[INITIAL_IDS];
+    private int[] touched = new int[INITIAL_IDS];
+
+    /**
+     * Indexes the name of the person, replacing the name indexed before.
+     *
+     * @param nif NIF of the person
+     * @param name name of the person; null removes the person
+     */
+    public synchronized void put(String nif, String name) {
+        Integer id = ids.get(nif);
+        if (id != null) {
+            if (name != null && name.equals(names[id])) {
+                return;
+            }
+            kill(id);
+        }
+        if (name == null) {
+            return;
+        }
+        int newId = newId();
+        nifs[newId] = nif;
+        names[newId] = name;
+        long[] grams = grams(normalize(name), true);
+        gramCounts[newId] = grams.length;
+        for (long gram : grams) {
+            postings.getOrAdd(gram).add(newId);
+        }
+        ids.put(nif, newId);
+        compactIfNeeded();
+    }
+
+    public synchronized boolean contains(String nif) {
+        return ids.containsKey(nif);
+    }
+
+    /**
+     * @param nif NIF of a person; nothing happens if it is not indexed
+     */
+    public synchronized void remove(String nif) {
+        Integer id = ids.remove(nif);
+        if (id != null) {
+            kill(id);
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        postings = new Postings();
+        nifs = new String[INITIAL_IDS];
+        names = new String[INITIAL_IDS];
+        gramCounts = new int[INITIAL_IDS];
+        hits = new short[INITIAL_IDS];
+        touched = new int[INITIAL_IDS];
+        size = 0;
+        dead = 0;
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * @param query part of the name, with or without accents and misspelled
+     * @param limit maximum number of people returned
+     * @return the people found, the most similar first; none if the query has
+     * less than two letters or digits
+     */
+    public synchronized ArrayList<Match> search(String query, int limit) {
+        ArrayList<Match> found = new ArrayList<>();
+        long[] grams = grams(normalize(query), false);
+        if (grams.length == 0 || limit <= 0) {
+            return found;
+        }
+        if (grams.length > MAX_QUERY_GRAMS) {
+            grams = Arrays.copyOf(grams, MAX_QUERY_GRAMS);
+        }
+        int minHits = (int) Math.ceil(grams.length * MIN_SIMILARITY);
+        Posting[] lists = new Posting[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            Posting posting = postings.get(grams[i]);
+            lists[i] = posting != null ? posting : EMPTY;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(posting -> posting.size));
+        //A name with minHits trigrams of the query is in one of the shortest
+        //lists, so only they can add new names and the longest ones only
+        //count the trigrams of the names found
+        int finding = grams.length - minHits + 1;
+        int touchedSize = 0;
+        for (int l = 0; l < lists.length; l++) {
+            int[] postingIds = lists[l].ids;
+            int n = lists[l].size;
+            if (l < finding) {
+                for (int i = 0; i < n; i++) {
+                    int id = postingIds[i];
+                    if (hits[id]++ == 0) {
+                        touched[touchedSize++] = id;
+                    }
+                }
+            } else if ((long) touchedSize * (32 - Integer.numberOfLeadingZeros(n)) < n) {
+                //The ids of a list are in ascending order
+                for (int i = 0; i < touchedSize; i++) {
+                    if (Arrays.binarySearch(postingIds, 0, n, touched[i]) >= 0) {
+                        hits[touched[i]]++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int id = postingIds[i];
+                    if (hits[id] > 0) {
+                        hits[id]++;
+                    }
+                }
+            }
+        }
+        PriorityQueue<Candidate> best = new PriorityQueue<>(RANKING);
+        //Names with less trigrams than the least similar kept are skipped
+        //without being ranked
+        int keptHits = minHits;
+        for (int i = 0; i < touchedSize; i++) {
+            int id = touched[i];
+            int idHits = hits[id];
+            hits[id] = 0;
+            if (idHits < keptHits || nifs[id] == null) {
+                continue;
+            }
+            Candidate candidate = new Candidate(id, idHits, (double) idHits / gramCounts[id]);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (RANKING.compare(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+            if (best.size() == limit) {
+                keptHits = best.peek().hits;
+            }
+        }
+        while (!best.isEmpty()) {
+            Candidate candidate = best.poll();
+            found.add(new Match(nifs[candidate.id], names[candidate.id], (double) candidate.hits / grams.length));
+        }
+        //The queue gives the least similar first
+        Collections.reverse(found);
+        return found;
+    }
+
+    /**
+     * @param text name or query
+     * @return the text without accents, in lower case and with any run of
+     * characters that are not letters or digits replaced by a space
+     */
+    public static String normalize(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 128;
+        }
+        //The accents are separated from their letters and then skipped
+        String decomposed = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * @param normalized normalized name or query
+     * @param whole false if the last word may be incomplete, so it gets no
+     * space after it
+     * @return the distinct trigrams of the words, each one with its three
+     * chars in a long
+     */
+    private static long[] grams(String normalized, boolean whole) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String padded = " " + normalized + (whole ? " " : "");
+        long[] grams = new long[padded.length()];
+        int count = 0;
+        for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+            char first = padded.charAt(i);
+            char second = padded.charAt(i + 1);
+            char third = padded.charAt(i + 2);
+            //A trigram has at most one space, at its beginning or its end
+            if (second == ' ' || (first == ' ' && third == ' ')) {
+                continue;
+            }
+            long gram = ((long) first << 32) | ((long) second << 16) | third;
+            if (!contains(grams, count, gram)) {
+                grams[count++] = gram;
+            }
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+    private static boolean contains(long[] grams, int count, long gram) {
+        for (int i = 0; i < count; i++) {
+            if (grams[i] == gram) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int newId() {
+        if (size == nifs.length) {
+            nifs = Arrays.copyOf(nifs, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+            gramCounts = Arrays.copyOf(gramCounts, size * 2);
+            hits = Arrays.copyOf(hits, size * 2);
+            touched = Arrays.copyOf(touched, size * 2);
+        }
+        return size++;
+    }
+
+    private void kill(int id) {
+        nifs[id] = null;
+        names[id] = null;
+        dead++;
+    }
+
+    /**
+     * Numbers again the live ids and builds the lists without the dead ones
+     * when the dead ids are more than half of the ids.
+     */
+    private void compactIfNeeded() {
+        if (dead * 2 <= size || size < INITIAL_IDS) {
+            return;
+        }
+        String[] formerNifs = nifs;
+        String[] formerNames = names;
+        int formerSize = size;
+        ids.clear();
+        postings = new Postings();
+        int capacity = Math.max(INITIAL_IDS, formerSize - dead);
+        nifs = new String[capacity];
+        names = new String[capacity];
+        gramCounts = new int[capacity];
+        hits = new short[capacity];
+        touched = new int[capacity];
+        size = 0;
+        dead = 0;
+        for (int id = 0; id < formerSize; id++) {
+            if (formerNifs[id] != null) {
+                put(formerNifs[id], formerNames[id]);
+            }
+        }
+    }
+
+}
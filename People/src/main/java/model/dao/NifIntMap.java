@@ -0,0 +1,176 @@
+package model.dao;
+
+import java.util.Arrays;
+
+/**
+ * Hash table from int keys to int values stored in two int arrays, with open
+ * addressing and linear probing, so that there are no entry objects, no boxing
+ * and a lookup reads consecutive memory. Keys must not be negative: -1 marks
+ * the free slots. Removals shift back the entries that follow, so the table
+ * never holds tombstones.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class NifIntMap {
+
+    public static final int NO_VALUE = -1;
+    private static final int FREE = -1;
+    private static final int MIN_CAPACITY = 16;
+    //Fraction of the slots used before the table grows
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    //32 - log2 of the capacity: the top bits of the hash give the slot
+    private int shift;
+    private int threshold;
+
+    public NifIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected number of keys that fit without growing the table
+     */
+    public NifIntMap(int expected) {
+        allocate(capacityFor(expected));
+    }
+
+    /**
+     * @param key key, not negative
+     * @return value of the key or NO_VALUE if it is not in the table
+     */
+    public int get(int key) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * @param key key, not negative
+     * @param value value
+     * @return former value of the key or NO_VALUE if it was not in the table
+     */
+    public int put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key " + key + ".");
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int former = values[slot];
+                values[slot] = value;
+                return former;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length * 2);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * @param key key
+     * @return value of the key removed or NO_VALUE if it was not in the table
+     */
+    public int remove(int key) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                int former = values[slot];
+                shiftBack(slot);
+                size--;
+                return former;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * Empties the slot and moves into it the entries that follow and would
+     * not be found anymore across the gap.
+     */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == FREE) {
+                break;
+            }
+            int home = slot(key);
+            //The entry can move to the gap if its home slot is not in the
+            //cyclic range (gap, slot]
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE;
+    }
+
+    //Fibonacci hashing: consecutive NIF numbers spread over the whole table
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expected) {
+        long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys: " + expected + ".");
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+}
@@ -0,0 +1,225 @@
+package model.dao;
+
+import model.entity.Person;
+import model.entity.Photo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Compact binary encoding of a Person, written by hand instead of with
+ * java.io.Serializable: no class descriptors, no reflection and no image.
+ *
+ * Layout: version (1 byte), flags (1 byte: date present, photo present), the
+ * NIF, name, phone number and postal code as UTF-8 strings, the date of birth
+ * as the number of days since 1970-01-01 and the reference of the photo (the
+ * path where it is saved) as a UTF-8 string. Every string is preceded by its
+ * length + 1 (0 stands for null) and numbers are written as varints, 7 bits
+ * per byte, so short values take one byte. The NIF goes first so that it can
+ * be read without decoding the rest.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class PersonCodec {
+
+    public static final byte VERSION = 1;
+    private static final int FLAG_DATE = 1;
+    private static final int FLAG_PHOTO = 2;
+
+    private PersonCodec() {
+    }
+
+    /**
+     * @param p Person
+     * @param photo reference of the photo, null if it has none
+     * @return encoded person
+     */
+    public static byte[] encode(Person p, String photo) {
+        Writer out = new Writer();
+        out.bytes[out.size++] = VERSION;
+        out.bytes[out.size++] = (byte) ((p.getDateOfBirth() != null ? FLAG_DATE : 0) | (photo != null ? FLAG_PHOTO : 0));
+        out.writeString(p.getNif());
+        out.writeString(p.getName());
+        out.writeString(p.getPhoneNumber());
+        out.writeString(p.getPostalCode());
+        if (p.getDateOfBirth() != null) {
+            out.writeVarLong(zigZag(toEpochDay(p.getDateOfBirth())));
+        }
+        if (photo != null) {
+            out.writeString(photo);
+        }
+        return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    /**
+     * Decodes the person. Its photo, if any, is a Photo read from the path
+     * of the reference when it is shown.
+     *
+     * @param bytes encoded person
+     * @return Person
+     * @throws IOException if the bytes are not an encoded person
+     */
+    public static Person decode(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes);
+        int flags = in.readHeader();
+        String nif = in.readString();
+        String name = in.readString();
+        String phoneNumber = in.readString();
+        String postalCode = in.readString();
+        Person p = new Person(name, nif, phoneNumber, postalCode);
+        if ((flags & FLAG_DATE) != 0) {
+            p.setDateOfBirth(fromEpochDay(unZigZag(in.readVarLong())));
+        }
+        if ((flags & FLAG_PHOTO) != 0) {
+            p.setPhotoHandle(Photo.ofPath(in.readString()));
+        }
+        return p;
+    }
+
+    /**
+     * @param bytes encoded person
+     * @return NIF of the person
+     * @throws IOException if the bytes are not an encoded person
+     */
+    public static String nif(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes);
+        in.readHeader();
+        return in.readString();
+    }
+
+    /**
+     * @param bytes encoded person
+     * @return reference of the photo, null if the person has none
+     * @throws IOException if the bytes are not an encoded person
+     */
+    public static String photo(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes);
+        int flags = in.readHeader();
+        if ((flags & FLAG_PHOTO) == 0) {
+            return null;
+        }
+        for (int i = 0; i < 4; i++) {
+            in.skipString();
+        }
+        if ((flags & FLAG_DATE) != 0) {
+            in.readVarLong();
+        }
+        return in.readString();
+    }
+
+    /**
+     * The date is taken in the time zone of the system, as the date pickers
+     * of the views do, so the day does not change.
+     */
+    private static long toEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static Date fromEpochDay(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    //Dates before 1970 are negative: zig-zag keeps them short as varints
+    private static long zigZag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long unZigZag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static class Writer {
+
+        byte[] bytes = new byte[64];
+        int size;
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+    }
+
+    private static class Reader {
+
+        final byte[] bytes;
+        int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readHeader() throws IOException {
+            if (bytes.length < 2 || bytes[0] != VERSION) {
+                throw new IOException("Unknown version of encoded person.");
+            }
+            position = 2;
+            return bytes[1];
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("Truncated encoded person.");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in encoded person.");
+        }
+
+        String readString() throws IOException {
+            int length = stringLength();
+            if (length < 0) {
+                return null;
+            }
+            String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        void skipString() throws IOException {
+            int length = stringLength();
+            position += Math.max(length, 0);
+        }
+
+        private int stringLength() throws IOException {
+            long length = readVarLong() - 1;
+            if (length > bytes.length - position) {
+                throw new IOException("Truncated encoded person.");
+            }
+            return (int) length;
+        }
+    }
+
+}
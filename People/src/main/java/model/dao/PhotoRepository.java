@@ -0,0 +1,318 @@
+package model.dao;
+
+import model.entity.Photo;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * Content-addressed store of the photos of a storage. Every photo is saved
+ * once, in a file named after the SHA-256 of its bytes, so people with the
+ * same photo share the file. The number of people using every file is kept in
+ * the journal "photos.refs" (one "+name" or "-name" line per change) and a
+ * file is deleted when nobody uses it anymore. A photo that comes from a PNG
+ * or JPEG file, or from PNG/JPEG bytes, is copied as it is; only the photos
+ * that exist just as a decoded image are encoded to PNG. Files are written
+ * with FileChannel transfers into a temporary file that is then renamed.
+ * Next to every photo its thumbnail for the views is saved, so that they
+ * never have to decode and scale the whole photo.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class PhotoRepository {
+
+    private static final String JOURNAL = "photos.refs";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File folder;
+    private final File journal;
+    private final HashMap<String, Integer> references = new HashMap<>();
+
+    /**
+     * Opens the repository in the given folder and reads the journal of
+     * references. The folder is created when the first photo is saved.
+     *
+     * @param folderPhotos folder of the photos
+     * @throws IOException
+     */
+    public PhotoRepository(String folderPhotos) throws IOException {
+        folder = new File(folderPhotos);
+        journal = new File(folder, JOURNAL);
+        loadJournal();
+    }
+
+    /**
+     * Saves the photo, if an identical one is not saved yet, and adds a
+     * reference to it.
+     *
+     * @param photo Photo
+     * @return path of the saved file
+     * @throws IOException
+     */
+    public synchronized String store(Photo photo) throws IOException {
+        folder.mkdirs();
+        String name;
+        File source = photo.getPath() != null ? new File(photo.getPath()) : null;
+        String extension = source != null && source.isFile() ? extension(readHead(source)) : null;
+        if (extension != null) {
+            name = hash(source) + extension;
+            File blob = new File(folder, name);
+            if (!blob.exists()) {
+                copy(source, blob);
+            }
+            saveThumbnail(blob);
+        } else {
+            byte[] bytes = photo.getBytes();
+            if (bytes == null || extension(bytes) == null) {
+                bytes = encode(photo.getIcon());
+            }
+            name = hash(bytes) + extension(bytes);
+            File blob = new File(folder, name);
+            if (!blob.exists()) {
+                write(bytes, blob);
+            }
+            saveThumbnail(blob);
+        }
+        references.merge(name, 1, Integer::sum);
+        appendJournal("+" + name);
+        return new File(folder, name).getPath();
+    }
+
+    /**
+     * Removes a reference to the photo saved in the given path and deletes the
+     * file when it is no longer used. A file of the folder that is not in the
+     * repository (a photo saved as NIF.png by a former version) belongs to a
+     * single person and is deleted at once.
+     *
+     * @param path path returned by store()
+     * @throws IOException
+     */
+    public synchronized void release(String path) throws IOException {
+        if (path == null || path.isEmpty() || path.equals("null")) {
+            return;
+        }
+        File file = new File(path);
+        if (!folder.getAbsoluteFile().equals(file.getAbsoluteFile().getParentFile())) {
+            return;
+        }
+        String name = file.getName();
+        Integer count = references.get(name);
+        if (count == null) {
+            delete(file);
+            return;
+        }
+        appendJournal("-" + name);
+        if (count > 1) {
+            references.put(name, count - 1);
+        } else {
+            references.remove(name);
+            delete(file);
+        }
+    }
+
+    /**
+     * Deletes every photo of the folder and the journal.
+     */
+    public synchronized void clear() {
+        references.clear();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the encoded bytes of the photo: the bytes of its PNG/JPEG file
+     * or bytes as they are, or the image encoded to PNG otherwise.
+     *
+     * @param photo Photo
+     * @return PNG or JPEG bytes
+     * @throws IOException
+     */
+    public static byte[] encoded(Photo photo) throws IOException {
+        if (photo.getBytes() != null && extension(photo.getBytes()) != null) {
+            return photo.getBytes();
+        }
+        if (photo.getPath() != null) {
+            File source = new File(photo.getPath());
+            if (source.isFile() && extension(readHead(source)) != null) {
+                return Files.readAllBytes(source.toPath());
+            }
+        }
+        return encode(photo.getIcon());
+    }
+
+    private static byte[] encode(ImageIcon icon) throws IOException {
+        BufferedImage bi = new BufferedImage(icon.getImage().getWidth(null),
+                icon.getImage().getHeight(null),
+                BufferedImage.TYPE_INT_ARGB);
+        bi.getGraphics().drawImage(icon.getImage(), 0, 0, null);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bi, "png", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return ".png" or ".jpg" after the signature of the bytes, null if they
+     * are neither PNG nor JPEG
+     */
+    private static String extension(byte[] head) {
+        if (head.length >= 4 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return ".png";
+        }
+        if (head.length >= 3 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xd8 && (head[2] & 0xff) == 0xff) {
+            return ".jpg";
+        }
+        return null;
+    }
+
+    private static byte[] readHead(File file) throws IOException {
+        try ( RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] head = new byte[(int) Math.min(4, raf.length())];
+            raf.readFully(head);
+            return head;
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        return toHex(digest().digest(bytes));
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest = digest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private void copy(File source, File blob) throws IOException {
+        File tmp = new File(folder, blob.getName() + ".tmp");
+        try ( FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);  FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        Files.move(tmp.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(byte[] bytes, File blob) throws IOException {
+        File tmp = new File(folder, blob.getName() + ".tmp");
+        try ( FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        Files.move(tmp.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Saves the thumbnail of the photo unless it is saved already, which is
+     * the case of a photo shared with other people.
+     */
+    private void saveThumbnail(File blob) throws IOException {
+        File thumbnail = new File(Photo.thumbnailPath(blob.getPath(), Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT));
+        if (thumbnail.exists()) {
+            return;
+        }
+        BufferedImage image = ImageIO.read(blob);
+        if (image == null) {
+            return;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(Photo.scale(image, Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT), "png", baos);
+        write(baos.toByteArray(), thumbnail);
+    }
+
+    private static void delete(File file) {
+        file.delete();
+        new File(Photo.thumbnailPath(file.getPath(), Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT)).delete();
+    }
+
+    private void appendJournal(String line) throws IOException {
+        Files.write(journal.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Adds up the journal. When it has grown much longer than the number of
+     * photos it is rewritten with a single line per reference.
+     */
+    private void loadJournal() throws IOException {
+        if (!journal.exists()) {
+            return;
+        }
+        int lines = 0;
+        try ( BufferedReader br = new BufferedReader(new FileReader(journal, StandardCharsets.UTF_8))) {
+            String line = br.readLine();
+            while (line != null) {
+                if (line.length() > 1) {
+                    references.merge(line.substring(1), line.charAt(0) == '+' ? 1 : -1, Integer::sum);
+                    lines++;
+                }
+                line = br.readLine();
+            }
+        }
+        references.values().removeIf(count -> count <= 0);
+        int live = references.values().stream().mapToInt(Integer::intValue).sum();
+        if (lines > 2 * live) {
+            StringBuilder compacted = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : references.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    compacted.append('+').append(entry.getKey()).append('\n');
+                }
+            }
+            File tmp = new File(folder, JOURNAL + ".tmp");
+            Files.write(tmp.toPath(), compacted.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+}
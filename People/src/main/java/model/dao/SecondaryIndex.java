@@ -0,0 +1,149 @@
+package model.dao;
+
+import model.entity.Person;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes of the storages that have no query language of their
+ * own: the people by postal code (hashed), by name (sorted, so a prefix is a
+ * range of names) and by date of birth (sorted, for ranges). A lookup costs
+ * the people found plus a logarithm of the people registered, instead of
+ * reading all of them.
+ *
+ * Every person is identified by a key chosen by the storage: the Person
+ * itself, its NIF or the number of its NIF. The indexed values of every key
+ * are kept, so a key can be replaced or removed without reading the former
+ * person. All the methods are synchronized.
+ *
+ * @param <K> key of a person in the storage
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class SecondaryIndex<K> {
+
+    /**
+     * Values of a person in the indexes.
+     */
+    private static class Entry {
+
+        private final String name;
+        private final String postalCode;
+        private final Long dateOfBirth;
+
+        private Entry(Person p) {
+            name = p.getName();
+            postalCode = p.getPostalCode();
+            dateOfBirth = p.getDateOfBirth() != null ? p.getDateOfBirth().getTime() : null;
+        }
+    }
+
+    private final HashMap<K, Entry> entries = new HashMap<>();
+    private final HashMap<String, LinkedHashSet<K>> postalCodes = new HashMap<>();
+    private final TreeMap<String, LinkedHashSet<K>> names = new TreeMap<>();
+    private final TreeMap<Long, LinkedHashSet<K>> datesOfBirth = new TreeMap<>();
+
+    /**
+     * Indexes the person under the key, replacing the values indexed before
+     * for the same key.
+     *
+     * @param key key of the person in the storage
+     * @param p Person
+     */
+    public synchronized void put(K key, Person p) {
+        remove(key);
+        Entry entry = new Entry(p);
+        entries.put(key, entry);
+        add(postalCodes, entry.postalCode, key);
+        add(names, entry.name, key);
+        add(datesOfBirth, entry.dateOfBirth, key);
+    }
+
+    /**
+     * @param key key of a person in the storage; nothing happens if it is not
+     * indexed
+     */
+    public synchronized void remove(K key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            remove(postalCodes, entry.postalCode, key);
+            remove(names, entry.name, key);
+            remove(datesOfBirth, entry.dateOfBirth, key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        postalCodes.clear();
+        names.clear();
+        datesOfBirth.clear();
+    }
+
+    /**
+     * @param postalCode postal code
+     * @return keys of the people with the postal code, in the order they were
+     * indexed
+     */
+    public synchronized ArrayList<K> findByPostalCode(String postalCode) {
+        LinkedHashSet<K> keys = postalCodes.get(postalCode);
+        return keys != null ? new ArrayList<>(keys) : new ArrayList<>();
+    }
+
+    /**
+     * @param prefix beginning of the name, case sensitive
+     * @return keys of the people whose name starts with the prefix, ordered
+     * by name
+     */
+    public synchronized ArrayList<K> findByNamePrefix(String prefix) {
+        ArrayList<K> found = new ArrayList<>();
+        for (Map.Entry<String, LinkedHashSet<K>> entry : names.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            found.addAll(entry.getValue());
+        }
+        return found;
+    }
+
+    /**
+     * @param from first date of birth, included
+     * @param to last date of birth, included
+     * @return keys of the people born between both dates, ordered by date of
+     * birth; none if from is after to
+     */
+    public synchronized ArrayList<K> findByBirthDateRange(Date from, Date to) {
+        ArrayList<K> found = new ArrayList<>();
+        if (from.after(to)) {
+            return found;
+        }
+        for (Collection<K> keys : datesOfBirth.subMap(from.getTime(), true, to.getTime(), true).values()) {
+            found.addAll(keys);
+        }
+        return found;
+    }
+
+    /**
+     * People without the value, null, are not indexed by it.
+     */
+    private static <V, K> void add(Map<V, LinkedHashSet<K>> index, V value, K key) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    private static <V, K> void remove(Map<V, LinkedHashSet<K>> index, V value, K key) {
+        if (value == null) {
+            return;
+        }
+        LinkedHashSet<K> keys = index.get(value);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            index.remove(value);
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package model.dao;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of a storage: a file of records, each one with its length
+ * and a CRC32 of its content. A storage writes in the log what it is going to
+ * do, waits until the log is on disk and only then changes its data file, so
+ * that after a crash the changes not completed can be done again from the log
+ * (replay). Once the data file is on disk the log is emptied (checkpoint).
+ *
+ * Writing to disk is the slow part, so it is shared (group commit): append()
+ * only writes the record and sync() forces the file once for all the records
+ * appended before it starts. The threads that call sync() while a force is
+ * running wait for it, and the next force covers all of them.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    //Header of every record: payload length (4 bytes) + CRC32 (4 bytes)
+    private static final int RECORD_HEADER = 8;
+
+    private final FileChannel channel;
+    private long written;
+    private long synced;
+    private boolean syncing;
+
+    /**
+     * Opens the log, creating it if it does not exist.
+     *
+     * @param path path of the log
+     * @throws IOException
+     */
+    public WriteAheadLog(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        written = channel.size();
+        synced = written;
+    }
+
+    /**
+     * Writes the record at the end of the log, without waiting for the disk.
+     *
+     * @param payload content of the record
+     * @return position of the log after the record, to be passed to sync()
+     * @throws IOException
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, written);
+        }
+        return written;
+    }
+
+    /**
+     * Waits until the log is on disk up to the given position. A single
+     * thread forces the file at a time; the others wait and return without
+     * forcing if that force covered their records.
+     *
+     * @param position value returned by append()
+     * @throws IOException
+     */
+    public void sync(long position) throws IOException {
+        long target;
+        synchronized (this) {
+            while (syncing && synced < position) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log.", ex);
+                }
+            }
+            if (synced >= position) {
+                return;
+            }
+            syncing = true;
+            target = written;
+        }
+        boolean forced = false;
+        try {
+            channel.force(false);
+            forced = true;
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                if (forced) {
+                    synced = Math.max(synced, target);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Appends the record and waits until it is on disk.
+     *
+     * @param payload content of the record
+     * @throws IOException
+     */
+    public void commit(byte[] payload) throws IOException {
+        sync(append(payload));
+    }
+
+    /**
+     * Reads the records of the log in order. The log is cut at the first
+     * record that is incomplete or whose CRC32 does not match, which is the
+     * record being written when the application crashed; it was never
+     * acknowledged, so it is not replayed.
+     *
+     * @return contents of the valid records
+     * @throws IOException
+     */
+    public synchronized ArrayList<byte[]> replay() throws IOException {
+        ArrayList<byte[]> records = new ArrayList<>();
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (position + RECORD_HEADER <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + RECORD_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            records.add(payload.array());
+            position += RECORD_HEADER + length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(false);
+        }
+        written = position;
+        synced = position;
+        return records;
+    }
+
+    /**
+     * Empties the log. To be called once the changes of all its records are
+     * on disk in the data file.
+     *
+     * @throws IOException
+     */
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.force(false);
+        written = 0;
+        synced = 0;
+    }
+
+    /**
+     * @return bytes of the log
+     */
+    public synchronized long size() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package model.entity;
+
+import java.io.Serializable;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Change of the object database already applied to it, kept so that the
+ * change is not looked for again every time the database is opened. It has
+ * the name of the change as the key.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+@Entity
+public class Migration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String name;
+
+    public Migration() {
+
+    }
+
+    /**
+     * @param name name of the change
+     */
+    public Migration(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+}
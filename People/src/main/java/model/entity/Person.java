@@ -1,11 +1,20 @@
 package model.entity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.Objects;
+import javax.persistence.CascadeType;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.swing.ImageIcon;
 
@@ -15,8 +24,26 @@ import javax.swing.ImageIcon;
  * @version 1.1.0
  */
 @Entity
+@Table(indexes = {
+    @Index(columnList = "postalCode"),
+    @Index(columnList = "name"),
+    @Index(columnList = "dateOfBirth")})
 public class Person implements Serializable{
 
+    //Value computed for the former version of the class, when the photo was
+    //an ImageIcon field, so that serialized people can still be read.
+    private static final long serialVersionUID = -559159510543460198L;
+    //Serialized form of the former version of the class
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("nif", String.class),
+        new ObjectStreamField("name", String.class),
+        new ObjectStreamField("phoneNumber", String.class),
+        new ObjectStreamField("postalCode", String.class),
+        new ObjectStreamField("dateOfBirth", Date.class),
+        new ObjectStreamField("photo", ImageIcon.class),
+        new ObjectStreamField("photoOnlyJPA", byte[].class)
+    };
+
     @Id 
     private String nif;
     private String name;
@@ -24,7 +51,12 @@ public class Person implements Serializable{
     private String postalCode;
     private Date dateOfBirth;
     @Transient
-    private ImageIcon photo;
+    private Photo photo;
+    //Photo in the object database, read only when it is used
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    private PersonPhoto photoJPA;
+    //Photo of the former version of the object database, inside the person;
+    //DAOJPA moves it to photoJPA
     @Lob
     private byte[] photoOnlyJPA;
 
@@ -70,7 +102,7 @@ public class Person implements Serializable{
         this.phoneNumber = phoneNumber;
         this.postalCode = postalCode;
         this.dateOfBirth = dateOfBirth;
-        this.photo = photo;
+        setPhoto(photo);
     }
 
     //Getters and Setters
@@ -98,14 +130,58 @@ public class Person implements Serializable{
         this.dateOfBirth = dateOfBirth;
     }
 
+    /**
+     * Decodes the photo, if it has not been decoded yet. Use hasPhoto() to
+     * know whether there is a photo without decoding it.
+     * @return ImageIcon or null
+     */
     public ImageIcon getPhoto() {
-        return photo;
+        return photo != null ? photo.getIcon() : null;
     }
 
     public void setPhoto(ImageIcon photo) {
+        this.photo = photo != null ? Photo.ofIcon(photo) : null;
+    }
+
+    public boolean hasPhoto() {
+        return photo != null;
+    }
+
+    public Photo getPhotoHandle() {
+        return photo;
+    }
+
+    /**
+     * Sets a photo that will be decoded only when getPhoto() is called.
+     * @param photo Photo or null
+     */
+    public void setPhotoHandle(Photo photo) {
         this.photo = photo;
     }
 
+    /**
+     * Reads the photo of the object database, if it has not been read yet.
+     * Use hasPhotoJPA() to know whether there is a photo without reading it.
+     * @return encoded image or null
+     */
+    public byte[] getPhotoJPA() {
+        return photoJPA != null ? photoJPA.getBytes() : null;
+    }
+
+    public void setPhotoJPA(byte[] photoJPA) {
+        if (photoJPA == null) {
+            this.photoJPA = null;
+        } else if (this.photoJPA != null) {
+            this.photoJPA.setBytes(photoJPA);
+        } else {
+            this.photoJPA = new PersonPhoto(nif, photoJPA);
+        }
+    }
+
+    public boolean hasPhotoJPA() {
+        return photoJPA != null;
+    }
+
     public byte[] getPhotoOnlyJPA() {
         return photoOnlyJPA;
     }
@@ -114,6 +190,20 @@ public class Person implements Serializable{
         this.photoOnlyJPA = photoOnlyJPA;
     }
 
+    /**
+     * Moves the photo of the former version of the object database to its
+     * own entity.
+     * @return true if the person had a photo to move
+     */
+    public boolean moveFormerPhotoOnlyJPA() {
+        if (photoOnlyJPA == null) {
+            return false;
+        }
+        setPhotoJPA(photoOnlyJPA);
+        photoOnlyJPA = null;
+        return true;
+    }
+
     public String getPhoneNumber() {
         return phoneNumber;
     }
@@ -166,6 +256,29 @@ public class Person implements Serializable{
         return Objects.equals(this.hashCode(), other.hashCode());
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("nif", nif);
+        fields.put("name", name);
+        fields.put("phoneNumber", phoneNumber);
+        fields.put("postalCode", postalCode);
+        fields.put("dateOfBirth", dateOfBirth);
+        fields.put("photo", getPhoto());
+        fields.put("photoOnlyJPA", photoOnlyJPA);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        nif = (String) fields.get("nif", null);
+        name = (String) fields.get("name", null);
+        phoneNumber = (String) fields.get("phoneNumber", null);
+        postalCode = (String) fields.get("postalCode", null);
+        dateOfBirth = (Date) fields.get("dateOfBirth", null);
+        setPhoto((ImageIcon) fields.get("photo", null));
+        photoOnlyJPA = (byte[]) fields.get("photoOnlyJPA", null);
+    }
+
     @Override
     public String toString() {
         return name + ";" + nif + ";"+ phoneNumber +";"+ postalCode + ";"+ dateOfBirth + ";" + (photo!=null) +  "\n";
@@ -0,0 +1,55 @@
+package model.entity;
+
+import java.io.Serializable;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+
+/**
+ * Photo of a person in the object database, kept apart from the person so
+ * that the queries that read many people do not read their photos. It has
+ * the NIF of its person as the key.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+@Entity
+public class PersonPhoto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String nif;
+    @Lob
+    private byte[] bytes;
+
+    public PersonPhoto() {
+
+    }
+
+    /**
+     * @param nif NIF of the person
+     * @param bytes encoded image (PNG, JPEG or GIF)
+     */
+    public PersonPhoto(String nif, byte[] bytes) {
+        this.nif = nif;
+        this.bytes = bytes;
+    }
+
+    public String getNif() {
+        return nif;
+    }
+
+    public void setNif(String nif) {
+        this.nif = nif;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+}
@@ -0,0 +1,85 @@
+package model.entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Data of a person shown in the lists, without the photo: only whether the
+ * person has one. The storages that keep the photo apart read it without
+ * reading the photo.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class PersonSummary {
+
+    private final String nif;
+    private final String name;
+    private final String phoneNumber;
+    private final String postalCode;
+    private final Date dateOfBirth;
+    private final boolean photo;
+
+    public PersonSummary(String nif, String name, String phoneNumber, String postalCode, Date dateOfBirth, boolean hasPhoto) {
+        this.nif = nif;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+        this.postalCode = postalCode;
+        this.dateOfBirth = dateOfBirth;
+        this.photo = hasPhoto;
+    }
+
+    /**
+     * @param p Person
+     * @return summary of the person, without reading nor decoding its photo
+     */
+    public static PersonSummary of(Person p) {
+        return new PersonSummary(p.getNif(), p.getName(), p.getPhoneNumber(), p.getPostalCode(), p.getDateOfBirth(), p.hasPhoto());
+    }
+
+    /**
+     * @param people Collection of Person
+     * @return summaries of the people, in the same order
+     */
+    public static ArrayList<PersonSummary> ofAll(Collection<Person> people) {
+        ArrayList<PersonSummary> summaries = new ArrayList<>(people.size());
+        for (Person p : people) {
+            summaries.add(of(p));
+        }
+        return summaries;
+    }
+
+    public String getNif() {
+        return nif;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public Date getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    public boolean hasPhoto() {
+        return photo;
+    }
+
+    /**
+     * Same text as Person.toString().
+     */
+    @Override
+    public String toString() {
+        return name + ";" + nif + ";" + phoneNumber + ";" + postalCode + ";" + dateOfBirth + ";" + photo + "\n";
+    }
+
+}
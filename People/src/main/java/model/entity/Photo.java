@@ -0,0 +1,231 @@
+package model.entity;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * Photo of a person that is decoded only when it is going to be shown. The
+ * storages create it from where the image is kept, the path of a file, the
+ * bytes read from the database or a Loader that reads them, without reading
+ * nor decoding the image; the views create it from the ImageIcon already
+ * displayed.
+ *
+ * The views show a thumbnail of THUMBNAIL_WIDTH x THUMBNAIL_HEIGHT. The file
+ * storages save it next to the photo when the photo is saved, so showing a
+ * person only reads the thumbnail; otherwise it is scaled from the photo.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class Photo {
+
+    //Size of the photo label of the views
+    public static final int THUMBNAIL_WIDTH = 150;
+    public static final int THUMBNAIL_HEIGHT = 135;
+
+    private final String path;
+    private byte[] bytes;
+    private Loader loader;
+    private ImageIcon icon;
+
+    /**
+     * Reads the encoded image from the storage when it is first needed.
+     */
+    public interface Loader {
+
+        byte[] load() throws Exception;
+    }
+
+    private Photo(String path, byte[] bytes, ImageIcon icon) {
+        this.path = path;
+        this.bytes = bytes;
+        this.icon = icon;
+    }
+
+    /**
+     * @param path file of the image
+     * @return Photo decoded from the file when it is first shown
+     */
+    public static Photo ofPath(String path) {
+        return new Photo(path, null, null);
+    }
+
+    /**
+     * @param bytes encoded image (PNG, JPEG or GIF)
+     * @return Photo decoded from the bytes when it is first shown
+     */
+    public static Photo ofBytes(byte[] bytes) {
+        return new Photo(null, bytes, null);
+    }
+
+    /**
+     * @param loader reads the encoded image (PNG, JPEG or GIF)
+     * @return Photo read and decoded when it is first shown
+     */
+    public static Photo ofLoader(Loader loader) {
+        Photo photo = new Photo(null, null, null);
+        photo.loader = loader;
+        return photo;
+    }
+
+    /**
+     * @param icon image already decoded
+     * @return Photo holding the image
+     */
+    public static Photo ofIcon(ImageIcon icon) {
+        return new Photo(null, null, icon);
+    }
+
+    /**
+     * @return new Photo of the same image, neither decoded nor read by this
+     * one, so that decoding it does not change this one. A photo that only
+     * holds a decoded image shares it.
+     */
+    public synchronized Photo undecoded() {
+        if (path != null) {
+            return ofPath(path);
+        }
+        if (loader != null) {
+            return ofLoader(loader);
+        }
+        if (bytes != null) {
+            return ofBytes(bytes);
+        }
+        return ofIcon(icon);
+    }
+
+    /**
+     * @return path of the image file, null if the photo is not in a file
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Reads the encoded image with the Loader the first time it is asked
+     * for.
+     *
+     * @return encoded image, null if the photo was not read as bytes
+     */
+    public synchronized byte[] getBytes() {
+        if (loader != null) {
+            try {
+                bytes = loader.load();
+            } catch (Exception ex) {
+                throw new IllegalStateException("The photo could not be read from the storage.", ex);
+            }
+            loader = null;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return false while a photo of a Loader has not been read
+     */
+    public synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    /**
+     * @return true once the image has been decoded
+     */
+    public synchronized boolean isDecoded() {
+        return icon != null;
+    }
+
+    /**
+     * Decodes the image the first time it is asked for.
+     *
+     * @return ImageIcon
+     */
+    public synchronized ImageIcon getIcon() {
+        if (icon == null) {
+            icon = decode();
+        }
+        return icon;
+    }
+
+    /**
+     * Returns the thumbnail saved next to the photo file or, if there is none,
+     * scales the photo. The photo decoded to scale it is not kept.
+     *
+     * @param width width of the thumbnail
+     * @param height height of the thumbnail
+     * @return ImageIcon of the given size
+     */
+    public ImageIcon getThumbnail(int width, int height) {
+        if (path != null) {
+            File thumbnail = new File(thumbnailPath(path, width, height));
+            if (thumbnail.isFile()) {
+                try {
+                    BufferedImage image = ImageIO.read(thumbnail);
+                    if (image != null) {
+                        return new ImageIcon(image);
+                    }
+                } catch (IOException ex) {
+                    //The thumbnail is scaled again from the photo
+                }
+            }
+        }
+        ImageIcon full;
+        synchronized (this) {
+            full = icon != null ? icon : decode();
+        }
+        return new ImageIcon(scale(full.getImage(), width, height));
+    }
+
+    /**
+     * @param path file of a photo
+     * @param width width of the thumbnail
+     * @param height height of the thumbnail
+     * @return file where the thumbnail of the photo is saved
+     */
+    public static String thumbnailPath(String path, int width, int height) {
+        return path + "." + width + "x" + height + ".png";
+    }
+
+    /**
+     * Scales the image halving its size with bilinear interpolation until the
+     * next step would be smaller than the size asked for, and then scales it
+     * to that size. Every step only averages neighbour pixels, which keeps
+     * the quality of a bicubic scale at a fraction of the cost of
+     * Image.getScaledInstance().
+     *
+     * @param image Image
+     * @param width width of the result
+     * @param height height of the result
+     * @return BufferedImage of the given size
+     */
+    public static BufferedImage scale(Image image, int width, int height) {
+        int w = image.getWidth(null);
+        int h = image.getHeight(null);
+        Image current = image;
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width || h != height);
+        return (BufferedImage) current;
+    }
+
+    /**
+     * Toolkit.createImage() is used instead of ImageIcon(String), which keeps
+     * every image read in the cache of the Toolkit.
+     */
+    private ImageIcon decode() {
+        return path != null ? new ImageIcon(Toolkit.getDefaultToolkit().createImage(path)) : new ImageIcon(getBytes());
+    }
+
+}
@@ -12,6 +12,9 @@ public enum Routes {
     APPIMAGES("images", null, null, null, null, null, null, null, null),
     FILE ("File", "Photos", "dataFile.txt", null, null, null, null, null, null),
     FILES ("FileSer", null, "dataFile.ser", null, null, null, null, null, null ),
+    FILEI ("FileIndexed", "Photos", "dataFile.log", null, null, null, null, null, null),
+    FILEM ("FileMapped", "Photos", "dataFile.dat", null, null, null, null, null, null),
+    FILEB ("FileBinary", "Photos", "dataFile.bin", null, null, null, null, null, null),
     DB("SQL_DataBase", "Photos", null, "jdbc:mysql://localhost:3306", "?useSSL=false&useTimezone=true&serverTimezone=UTC&allowPublicKeyRetrieval=true", "root", "", "people", "person"),
     DBO("JPA_DataBase", null, null, "objectdb:db/people.odb;user=admin;password=admin", null, null, null, null, null);
 
@@ -4,6 +4,8 @@
  */
 package utils;
 
+import java.util.List;
+
 /**
  *
  * @author roroc
@@ -12,8 +14,28 @@ public class Constants {
 
     public static final String arrayList = "ArrayList";
     public static final String hashMap = "HashMap";
+    public static final String concurrentHashMap = "ConcurrentHashMap";
+    public static final String copyOnWriteList = "CopyOnWriteArrayList";
+    public static final String nifIndex = "NIF index";
+    public static final String offHeap = "Off-heap memory";
     public static final String file = "File";
     public static final String serialization = "File (Serialization)";
+    public static final String indexedFile = "File (Indexed)";
+    public static final String mappedFile = "File (Memory-mapped)";
+    public static final String binaryFile = "File (Binary)";
     public static final String SQL = "SQL - Database";
     public static final String JPA = "JPA - Database";
+    //Storages whose reads go through a DAOCache
+    public static final List<String> cachedStorages = List.of(file, serialization, SQL, JPA);
+    //Storages whose writes go through a DAOWriteBehind, and whether they are
+    //flushed at the end of every call or every writeBehindIntervalMillis.
+    //None by default: flushed by interval a write confirmed to the user can
+    //be lost for up to writeBehindIntervalMillis
+    public static final List<String> writeBehindStorages = List.of();
+    public static final boolean writeBehindEveryCall = false;
+    public static final long writeBehindIntervalMillis = 1000;
+    //Storages that several threads can use at the same time, and how many
+    //operations run on them at once
+    public static final List<String> concurrentStorages = List.of(concurrentHashMap, copyOnWriteList);
+    public static final int concurrentOperations = 4;
 }
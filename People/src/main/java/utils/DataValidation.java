@@ -26,9 +26,15 @@ public class DataValidation {
     }
 
     public static String calculateNifLetter(String nifNoLetter) {
-        String [] letter = {"T","R","W","A","G","M","Y","F","P","D","X","B",
-            "N","J","Z","S","Q","V","H","L","C","K","E"};
-        return nifNoLetter + letter[Integer.parseInt(nifNoLetter)%23];
+        return nifNoLetter + nifLetter(Integer.parseInt(nifNoLetter));
+    }
+
+    /**
+     * @param number number of a NIF
+     * @return letter of the NIF
+     */
+    public static char nifLetter(int number) {
+        return "TRWAGMYFPDXBNJZSQVHLCKE".charAt(number % 23);
     }
 
 }
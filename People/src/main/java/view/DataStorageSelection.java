@@ -57,6 +57,13 @@ public class DataStorageSelection extends javax.swing.JFrame {
         hashMapCheck = new javax.swing.JCheckBox();
         fileSerializationCheck = new javax.swing.JCheckBox();
         dataBaseSerializationCheck = new javax.swing.JCheckBox();
+        fileIndexedCheck = new javax.swing.JCheckBox();
+        fileMappedCheck = new javax.swing.JCheckBox();
+        fileBinaryCheck = new javax.swing.JCheckBox();
+        nifIndexCheck = new javax.swing.JCheckBox();
+        offHeapCheck = new javax.swing.JCheckBox();
+        concurrentHashMapCheck = new javax.swing.JCheckBox();
+        copyOnWriteListCheck = new javax.swing.JCheckBox();
         authorMail = new javax.swing.JLabel();
         accept = new javax.swing.JButton();
         cancel = new javax.swing.JButton();
@@ -69,9 +76,9 @@ public class DataStorageSelection extends javax.swing.JFrame {
         setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
         setFocusable(false);
         setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
-        setMaximumSize(new java.awt.Dimension(500, 550));
-        setMinimumSize(new java.awt.Dimension(500, 550));
-        setPreferredSize(new java.awt.Dimension(500, 550));
+        setMaximumSize(new java.awt.Dimension(500, 900));
+        setMinimumSize(new java.awt.Dimension(500, 900));
+        setPreferredSize(new java.awt.Dimension(500, 900));
         setResizable(false);
         getContentPane().setLayout(new java.awt.GridBagLayout());
 
@@ -109,7 +116,7 @@ public class DataStorageSelection extends javax.swing.JFrame {
         });
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 3;
+        gridBagConstraints.gridy = 7;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
@@ -124,7 +131,7 @@ public class DataStorageSelection extends javax.swing.JFrame {
         });
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 5;
+        gridBagConstraints.gridy = 12;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
@@ -154,7 +161,7 @@ public class DataStorageSelection extends javax.swing.JFrame {
         });
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 4;
+        gridBagConstraints.gridy = 8;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
@@ -169,18 +176,123 @@ public class DataStorageSelection extends javax.swing.JFrame {
         });
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 6;
+        gridBagConstraints.gridy = 13;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
         getContentPane().add(dataBaseSerializationCheck, gridBagConstraints);
 
+        fileIndexedCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        fileIndexedCheck.setText("File (Indexed)");
+        fileIndexedCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                fileIndexedCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 9;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(fileIndexedCheck, gridBagConstraints);
+
+        fileMappedCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        fileMappedCheck.setText("File (Memory-mapped)");
+        fileMappedCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                fileMappedCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 10;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(fileMappedCheck, gridBagConstraints);
+
+        fileBinaryCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        fileBinaryCheck.setText("File (Binary)");
+        fileBinaryCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                fileBinaryCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 11;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(fileBinaryCheck, gridBagConstraints);
+
+        nifIndexCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        nifIndexCheck.setText("NIF index");
+        nifIndexCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                nifIndexCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(nifIndexCheck, gridBagConstraints);
+
+        offHeapCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        offHeapCheck.setText("Off-heap memory");
+        offHeapCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                offHeapCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 6;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(offHeapCheck, gridBagConstraints);
+
+        concurrentHashMapCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        concurrentHashMapCheck.setText("ConcurrentHashMap");
+        concurrentHashMapCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                concurrentHashMapCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(concurrentHashMapCheck, gridBagConstraints);
+
+        copyOnWriteListCheck.setFont(new java.awt.Font("Segoe UI", 0, 18)); // NOI18N
+        copyOnWriteListCheck.setText("CopyOnWriteArrayList");
+        copyOnWriteListCheck.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                copyOnWriteListCheckActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 4;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(copyOnWriteListCheck, gridBagConstraints);
+
         authorMail.setFont(new java.awt.Font("Segoe UI", 2, 8)); // NOI18N
         authorMail.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
         authorMail.setText("Author: francesc.perez@stucom.com - Version 1.1.0");
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 8;
+        gridBagConstraints.gridy = 15;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
         getContentPane().add(authorMail, gridBagConstraints);
@@ -190,7 +302,7 @@ public class DataStorageSelection extends javax.swing.JFrame {
         accept.setText("Accept");
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 7;
+        gridBagConstraints.gridy = 14;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 60, 12, 12);
         getContentPane().add(accept, gridBagConstraints);
@@ -204,7 +316,7 @@ public class DataStorageSelection extends javax.swing.JFrame {
         });
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 7;
+        gridBagConstraints.gridy = 14;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHEAST;
         gridBagConstraints.insets = new java.awt.Insets(12, 12, 12, 60);
         getContentPane().add(cancel, gridBagConstraints);
@@ -275,6 +387,34 @@ public class DataStorageSelection extends javax.swing.JFrame {
         JCB(dataBaseCheck);
     }//GEN-LAST:event_dataBaseCheckActionPerformed
 
+    private void fileIndexedCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_fileIndexedCheckActionPerformed
+        JCB(fileIndexedCheck);
+    }//GEN-LAST:event_fileIndexedCheckActionPerformed
+
+    private void fileMappedCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_fileMappedCheckActionPerformed
+        JCB(fileMappedCheck);
+    }//GEN-LAST:event_fileMappedCheckActionPerformed
+
+    private void fileBinaryCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_fileBinaryCheckActionPerformed
+        JCB(fileBinaryCheck);
+    }//GEN-LAST:event_fileBinaryCheckActionPerformed
+
+    private void nifIndexCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_nifIndexCheckActionPerformed
+        JCB(nifIndexCheck);
+    }//GEN-LAST:event_nifIndexCheckActionPerformed
+
+    private void offHeapCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_offHeapCheckActionPerformed
+        JCB(offHeapCheck);
+    }//GEN-LAST:event_offHeapCheckActionPerformed
+
+    private void concurrentHashMapCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_concurrentHashMapCheckActionPerformed
+        JCB(concurrentHashMapCheck);
+    }//GEN-LAST:event_concurrentHashMapCheckActionPerformed
+
+    private void copyOnWriteListCheckActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_copyOnWriteListCheckActionPerformed
+        JCB(copyOnWriteListCheck);
+    }//GEN-LAST:event_copyOnWriteListCheckActionPerformed
+
     /**
      * If the user selects the cancel option when starting the application, 
      * the program closes.
@@ -290,10 +430,17 @@ public class DataStorageSelection extends javax.swing.JFrame {
     private javax.swing.JCheckBox arrayListCheck;
     private javax.swing.JLabel authorMail;
     private javax.swing.JButton cancel;
+    private javax.swing.JCheckBox concurrentHashMapCheck;
+    private javax.swing.JCheckBox copyOnWriteListCheck;
     private javax.swing.JCheckBox dataBaseCheck;
     private javax.swing.JCheckBox dataBaseSerializationCheck;
+    private javax.swing.JCheckBox fileBinaryCheck;
     private javax.swing.JCheckBox fileCheck;
+    private javax.swing.JCheckBox fileIndexedCheck;
+    private javax.swing.JCheckBox fileMappedCheck;
     private javax.swing.JCheckBox fileSerializationCheck;
     private javax.swing.JCheckBox hashMapCheck;
+    private javax.swing.JCheckBox nifIndexCheck;
+    private javax.swing.JCheckBox offHeapCheck;
     // End of variables declaration//GEN-END:variables
 }
@@ -1,6 +1,5 @@
 package view;
 
-import java.awt.Image;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.dnd.DnDConstants;
@@ -14,6 +13,7 @@ import javax.swing.ImageIcon;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import model.entity.Photo;
 import org.apache.commons.io.FilenameUtils;
 
 /**
@@ -22,6 +22,10 @@ import org.apache.commons.io.FilenameUtils;
  */
 public class DropPhotoListener implements DropTargetListener {
 
+    //Client properties of the label with the icon shown and its photo
+    private static final String SHOWN_ICON = "shownIcon";
+    private static final String SHOWN_PHOTO = "shownPhoto";
+
     JDialog jDialog;
     JLabel label;
     String dragText = "<html><center>PHOTO</center></br><br><center> <i>Supported format: PNG.</i></center></br><br><center><i>Max. size 64KB</i></center></html>";
@@ -74,11 +78,43 @@ public class DropPhotoListener implements DropTargetListener {
     }
 
     private void displayImage(String path) {
-        ImageIcon icon = new ImageIcon(path);
-        Image img = icon.getImage();
-        img = img.getScaledInstance(label.getWidth(), label.getHeight(), Image.SCALE_DEFAULT);
-        icon = new ImageIcon(img);
-        label.setIcon(icon);
+        showPhoto(label, Photo.ofPath(path));
+    }
+
+    /**
+     * Shows the thumbnail of the photo and remembers the photo it comes from,
+     * so that the original file is saved instead of the thumbnail.
+     *
+     * @param label JLabel
+     * @param photo Photo
+     */
+    public static void showPhoto(JLabel label, Photo photo) {
+        showPhoto(label, photo, photo.getThumbnail(Photo.THUMBNAIL_WIDTH, Photo.THUMBNAIL_HEIGHT));
+    }
+
+    /**
+     * @param label JLabel
+     * @param photo Photo
+     * @param thumbnail thumbnail of the photo already available
+     */
+    public static void showPhoto(JLabel label, Photo photo, ImageIcon thumbnail) {
+        label.setIcon(thumbnail);
+        label.putClientProperty(SHOWN_ICON, thumbnail);
+        label.putClientProperty(SHOWN_PHOTO, photo);
+    }
+
+    /**
+     * @param label JLabel
+     * @return the photo shown in the label or null if there is none
+     */
+    public static Photo getPhoto(JLabel label) {
+        if (label.getIcon() == null) {
+            return null;
+        }
+        if (label.getIcon() == label.getClientProperty(SHOWN_ICON)) {
+            return (Photo) label.getClientProperty(SHOWN_PHOTO);
+        }
+        return Photo.ofIcon((ImageIcon) label.getIcon());
     }
 
 }
@@ -9,7 +9,7 @@ import javax.swing.JOptionPane;
 
 /**
  * This class defines the main menu of the application. Actions that can be 
- * done: insert, read, delete, update, readAll.
+ * done: insert, read, delete, update, readAll, deleteAll, count and search.
  * @author Francesc Perez
  * @version 1.1.0
  */
@@ -52,6 +52,10 @@ public class Menu extends javax.swing.JFrame {
         return count;
     }
 
+    public JButton getSearch() {
+        return search;
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -70,6 +74,7 @@ public class Menu extends javax.swing.JFrame {
         readAll = new javax.swing.JButton();
         deleteAll = new javax.swing.JButton();
         count = new javax.swing.JButton();
+        search = new javax.swing.JButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
         setTitle("Menu - People v1.1.0");
@@ -140,7 +145,7 @@ public class Menu extends javax.swing.JFrame {
         jLabel1.setText("Author: francesc.perez@stucom.com - Version 1.1.0");
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
-        gridBagConstraints.gridy = 7;
+        gridBagConstraints.gridy = 8;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
@@ -190,6 +195,19 @@ public class Menu extends javax.swing.JFrame {
         gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
         getContentPane().add(count, gridBagConstraints);
 
+        search.setFont(new java.awt.Font("Segoe UI", 1, 18)); // NOI18N
+        search.setText("SEARCH");
+        search.setMaximumSize(new java.awt.Dimension(120, 50));
+        search.setMinimumSize(new java.awt.Dimension(120, 50));
+        search.setPreferredSize(new java.awt.Dimension(120, 50));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 7;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.insets = new java.awt.Insets(12, 24, 12, 24);
+        getContentPane().add(search, gridBagConstraints);
+
         pack();
         setLocationRelativeTo(null);
     }// </editor-fold>//GEN-END:initComponents
@@ -210,6 +228,7 @@ public class Menu extends javax.swing.JFrame {
     private javax.swing.JLabel jLabel1;
     private javax.swing.JButton read;
     private javax.swing.JButton readAll;
+    private javax.swing.JButton search;
     private javax.swing.JButton update;
     // End of variables declaration//GEN-END:variables
 }
\ No newline at end of file
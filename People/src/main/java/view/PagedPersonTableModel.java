@@ -0,0 +1,156 @@
+package view;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import model.entity.PersonSummary;
+
+/**
+ * Table model of the ReadAll dialog that does not hold all the people. Rows
+ * are summaries of the people, without their photos, read from the storage
+ * one page at a time when the table asks for them while the user scrolls,
+ * and only the last MAX_PAGES pages used are kept.
+ * A row whose page is still being read is shown as LOADING and the table is
+ * refreshed when the page arrives.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class PagedPersonTableModel extends AbstractTableModel {
+
+    public static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 20;
+    private static final String LOADING = "...";
+    private static final String[] COLUMNS = {"NIF", "Name", "Phone Number", "Postal Code", "Date of Birth", "Photo"};
+
+    /**
+     * Reads a page of summaries from the storage without blocking the caller.
+     */
+    public interface PageLoader {
+
+        CompletableFuture<ArrayList<PersonSummary>> load(int offset, int limit);
+    }
+
+    private final PageLoader loader;
+    private final int rows;
+    private final HashSet<Integer> loading = new HashSet<>();
+    //Access order, so the eldest entry is the page least recently used
+    private final LinkedHashMap<Integer, ArrayList<PersonSummary>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ArrayList<PersonSummary>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    /**
+     * @param rows number of people registered
+     * @param loader reads the pages
+     */
+    public PagedPersonTableModel(int rows, PageLoader loader) {
+        this.rows = rows;
+        this.loader = loader;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        PersonSummary p = getSummary(row);
+        if (p == null) {
+            return LOADING;
+        }
+        switch (column) {
+            case 0:
+                return p.getNif();
+            case 1:
+                return p.getName();
+            case 2:
+                return p.getPhoneNumber();
+            case 3:
+                return p.getPostalCode();
+            case 4:
+                return p.getDateOfBirth() != null ? p.getDateOfBirth().toString() : "";
+            default:
+                return p.hasPhoto() ? "yes" : "no";
+        }
+    }
+
+    /**
+     * Returns the summary of the person of the row if its page is in memory.
+     * Otherwise the page is requested and null is returned.
+     *
+     * @param row row of the table
+     * @return PersonSummary or null
+     */
+    public PersonSummary getSummary(int row) {
+        int page = row / PAGE_SIZE;
+        ArrayList<PersonSummary> people = pages.get(page);
+        if (people == null) {
+            requestPage(page);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < people.size() ? people.get(index) : null;
+    }
+
+    /**
+     * Walks all the people page by page, without keeping them in the cache,
+     * so that the memory used does not depend on the number of people. The
+     * consumer is called from the thread that completes every page.
+     *
+     * @param consumer receives every page in order
+     * @return CompletableFuture completed after the last page
+     */
+    public CompletableFuture<Void> forEachPage(Consumer<ArrayList<PersonSummary>> consumer) {
+        return forEachPage(0, consumer);
+    }
+
+    private CompletableFuture<Void> forEachPage(int offset, Consumer<ArrayList<PersonSummary>> consumer) {
+        return loader.load(offset, PAGE_SIZE).thenCompose(people -> {
+            consumer.accept(people);
+            if (people.size() < PAGE_SIZE) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return forEachPage(offset + PAGE_SIZE, consumer);
+        });
+    }
+
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        loader.load(page * PAGE_SIZE, PAGE_SIZE).whenComplete((people, ex)
+                -> SwingUtilities.invokeLater(() -> {
+                    loading.remove(page);
+                    if (ex == null) {
+                        pages.put(page, people);
+                        int first = page * PAGE_SIZE;
+                        fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, rows) - 1);
+                    }
+                }));
+    }
+
+}
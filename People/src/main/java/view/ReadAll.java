@@ -1,16 +1,15 @@
 package view;
 
-import static controller.ControllerImplementation.s;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.InputMismatchException;
+import java.io.UncheckedIOException;
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.table.DefaultTableCellRenderer;
-import model.entity.Person;
+import model.entity.PersonSummary;
 
 /**
  * Interface used to read all persons.
@@ -20,42 +19,83 @@ import model.entity.Person;
  */
 public class ReadAll extends javax.swing.JDialog {
 
+    private PagedPersonTableModel model;
+
     public ReadAll(java.awt.Frame parent, boolean modal) {
         super(parent, modal);
         initComponents();
         jButtonExport.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
-                //File
-                File file = new File(System.getProperty("user.dir") + File.separator + "csvData.csv");
-
-                try {
-                    if (!file.exists()) {
-                        file.createNewFile();
-                        }
-                        ArrayList<Person> personas = s;
-                        FileWriter fw = new FileWriter(file);
-                        BufferedWriter bw = new BufferedWriter(fw);
-                        for (int i = 0; i < personas.size(); i++) {
-                            bw.write(personas.get(i).toString());
-                            bw.newLine();
-                        }
-                        bw.flush();
-                        bw.close();
-                    }catch (IOException ex) {
-                        JOptionPane.showMessageDialog(null, "No se puede crear el archivo: " + ex.getMessage(), "Error ", JOptionPane.ERROR_MESSAGE);
-                    }
-                
+                export();
             }
         });
+        centerColumns();
+        setLocationRelativeTo(null);
+    }
+
+    /**
+     * Shows the people of the model. The model reads them page by page while
+     * the user scrolls.
+     *
+     * @param model PagedPersonTableModel
+     */
+    public void setModel(PagedPersonTableModel model) {
+        this.model = model;
+        table.setModel(model);
+        centerColumns();
+    }
+
+    private void centerColumns() {
         DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
         centerRenderer.setHorizontalAlignment((int)JTable.CENTER_ALIGNMENT);
-        table.getColumnModel().getColumn(0).setCellRenderer( centerRenderer );
-        table.getColumnModel().getColumn(1).setCellRenderer( centerRenderer );
-        table.getColumnModel().getColumn(2).setCellRenderer( centerRenderer );
-        table.getColumnModel().getColumn(3).setCellRenderer( centerRenderer );
-        table.getColumnModel().getColumn(4).setCellRenderer( centerRenderer );
-        table.getColumnModel().getColumn(5).setCellRenderer( centerRenderer );
-        setLocationRelativeTo(null);
+        for (int i = 0; i < table.getColumnModel().getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setCellRenderer( centerRenderer );
+        }
+    }
+
+    /**
+     * Writes all the people to csvData.csv. The pages are read and written
+     * one after another, out of the event dispatch thread.
+     */
+    private void export() {
+        if (model == null) {
+            return;
+        }
+        //File
+        File file = new File(System.getProperty("user.dir") + File.separator + "csvData.csv");
+        BufferedWriter bw;
+        try {
+            bw = new BufferedWriter(new FileWriter(file));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(null, "No se puede crear el archivo: " + ex.getMessage(), "Error ", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        jButtonExport.setEnabled(false);
+        model.forEachPage(people -> {
+            try {
+                for (PersonSummary p : people) {
+                    bw.write(p.toString());
+                    bw.newLine();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).whenComplete((done, ex) -> {
+            try {
+                bw.close();
+            } catch (IOException closeEx) {
+                if (ex == null) {
+                    ex = closeEx;
+                }
+            }
+            Throwable error = ex != null && ex.getCause() != null ? ex.getCause() : ex;
+            SwingUtilities.invokeLater(() -> {
+                jButtonExport.setEnabled(true);
+                if (error != null) {
+                    JOptionPane.showMessageDialog(null, "No se puede crear el archivo: " + error.getMessage(), "Error ", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
     }
 
     public JTable getTable() {
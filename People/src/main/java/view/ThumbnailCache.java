@@ -0,0 +1,83 @@
+package view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.ImageIcon;
+
+/**
+ * Thumbnails of the last people shown, by NIF and size, so that showing a
+ * person again does not read nor scale the photo. The thumbnails are loaded
+ * by the controller off the event dispatch thread and put here. The
+ * controller removes the thumbnail of a person when the person is written;
+ * a thumbnail loaded before that is not kept, because its stamp is old.
+ *
+ * @author Francesc Perez
+ * @version 1.1.0
+ */
+public class ThumbnailCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    //Access order, so the eldest entry is the thumbnail least recently used
+    private final LinkedHashMap<String, ImageIcon> thumbnails = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    //Changed by every invalidation
+    private long stamp;
+
+    /**
+     * @param nif NIF of the person
+     * @param width width of the thumbnail
+     * @param height height of the thumbnail
+     * @return the thumbnail kept or null if there is none
+     */
+    public synchronized ImageIcon get(String nif, int width, int height) {
+        return thumbnails.get(key(nif, width, height));
+    }
+
+    /**
+     * @return stamp to pass to put() for a thumbnail that starts loading now
+     */
+    public synchronized long stamp() {
+        return stamp;
+    }
+
+    /**
+     * Keeps the thumbnail, unless a person has been written since it started
+     * loading.
+     *
+     * @param nif NIF of the person
+     * @param width width of the thumbnail
+     * @param height height of the thumbnail
+     * @param thumbnail thumbnail loaded
+     * @param loadStamp stamp() when the thumbnail started loading
+     */
+    public synchronized void put(String nif, int width, int height, ImageIcon thumbnail, long loadStamp) {
+        if (loadStamp == stamp) {
+            thumbnails.put(key(nif, width, height), thumbnail);
+        }
+    }
+
+    /**
+     * Removes the thumbnails of the person.
+     *
+     * @param nif NIF of the person
+     */
+    public synchronized void invalidate(String nif) {
+        stamp++;
+        thumbnails.keySet().removeIf(key -> key.startsWith(nif + "@"));
+    }
+
+    public synchronized void clear() {
+        stamp++;
+        thumbnails.clear();
+    }
+
+    private static String key(String nif, int width, int height) {
+        return nif + "@" + width + "x" + height;
+    }
+
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import model.dao.DAOHashMap;
+import model.dao.DAONifIndex;
+import model.dao.IDAO;
+import model.entity.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares reading a person by NIF from DAONifIndex and from DAOHashMap, with
+ * NIFs spread over the whole range of numbers. Run with main(); 10M people
+ * need a heap of some GB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class NifIndexBenchmark {
+
+    @Param({"100000", "10000000"})
+    public int people;
+
+    @Param({"nifIndex", "hashMap"})
+    public String storage;
+
+    private IDAO dao;
+    private Person[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        dao = storage.equals("nifIndex") ? new DAONifIndex() : new DAOHashMap();
+        ArrayList<Person> batch = new ArrayList<>();
+        int step = 99999999 / people;
+        for (int i = 0; i < people; i++) {
+            String nif = DAONifIndex.nif(i * step);
+            batch.add(new Person("Name " + i, nif, "600000000", "08001"));
+        }
+        dao.insertAll(batch);
+        keys = new Person[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Person(batch.get((int) ((long) i * people / keys.length)).getNif());
+        }
+    }
+
+    @Benchmark
+    public Person read() throws Exception {
+        next = (next + 1) & (keys.length - 1);
+        return dao.read(keys[next]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NifIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+import model.dao.PersonCodec;
+import model.entity.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the encoding of a person with PersonCodec, used by DAOFileBinary,
+ * and with ObjectOutputStream, used by DAOFileSerializable. The person has no
+ * photo, so both encode the same data. Run with main().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersonCodecBenchmark {
+
+    private Person person;
+    private byte[] codecBytes;
+    private byte[] serializedBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        person = new Person("Francesc Perez", "12345678Z", "+34 612 475 289", "08002",
+                new GregorianCalendar(1990, 4, 17).getTime(), null);
+        codecBytes = PersonCodec.encode(person, null);
+        serializedBytes = serialize(person);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return PersonCodec.encode(person, null);
+    }
+
+    @Benchmark
+    public Person codecDecode() throws IOException {
+        return PersonCodec.decode(codecBytes);
+    }
+
+    @Benchmark
+    public byte[] serializableEncode() throws IOException {
+        return serialize(person);
+    }
+
+    @Benchmark
+    public Object serializableDecode() throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(serializedBytes)).readObject();
+    }
+
+    private static byte[] serialize(Person p) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(p);
+        oos.flush();
+        return baos.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PersonCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
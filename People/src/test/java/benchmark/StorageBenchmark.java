@@ -0,0 +1,293 @@
+package benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import model.dao.ConnectionPool;
+import model.dao.DAOArrayList;
+import model.dao.DAOConcurrentHashMap;
+import model.dao.DAOCopyOnWriteList;
+import model.dao.DAOFile;
+import model.dao.DAOFileBinary;
+import model.dao.DAOFileSerializable;
+import model.dao.DAOHashMap;
+import model.dao.DAOIndexedFile;
+import model.dao.DAOJPA;
+import model.dao.DAOLogFile;
+import model.dao.DAOMappedFile;
+import model.dao.DAONifIndex;
+import model.dao.DAOOffHeap;
+import model.dao.DAOSQL;
+import model.dao.IDAO;
+import model.entity.Person;
+import model.entity.PersonSummary;
+import model.entity.Photo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import start.Routes;
+
+/**
+ * Measures the operations of IDAO on every storage, as the controller creates
+ * them but without DAOCache nor DAOWriteBehind, over a dataset of `people`
+ * people of which a fraction `photoRatio` have a photo (a distinct 64x64
+ * PNG). Files go to a temporary folder, DAOSQL runs on an in-memory H2
+ * database in MySQL mode and DAOJPA on an embedded ObjectDB file.
+ *
+ * read, readAll, readAllSummaries, count and update leave the dataset as it
+ * is. insert and delete change it, so they run BATCH times per iteration
+ * (score per batch) and the dataset is restored between iterations.
+ *
+ * Run with mvn -P benchmark verify, or main() with the JMH options, for
+ * instance -p storage=hashMap,sql -p people=1000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+
+    private static final int BATCH = 100;
+    //NIF numbers of the people inserted by the benchmark, after the dataset
+    private static final int FIRST_NEW_NIF = 50000000;
+
+    @Param({"arrayList", "hashMap", "concurrentHashMap", "copyOnWriteList", "nifIndex", "offHeap",
+        "file", "serialization", "binaryFile", "indexedFile", "mappedFile", "sql", "jpa"})
+    public String storage;
+
+    @Param({"1000", "10000"})
+    public int people;
+
+    @Param({"0", "0.2"})
+    public double photoRatio;
+
+    private Path folder;
+    private ConnectionPool pool;
+    private IDAO dao;
+    private ArrayList<Person> dataset;
+    private final Random random = new Random(20);
+    private final ArrayList<Person> inserted = new ArrayList<>();
+    private final ArrayList<Person> deleted = new ArrayList<>();
+    private int nextNif = FIRST_NEW_NIF;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("people-benchmark");
+        dao = create();
+        dao.deleteAll();
+        dataset = new ArrayList<>(people);
+        for (int i = 0; i < people; i++) {
+            dataset.add(person(i, i < people * photoRatio));
+        }
+        dao.insertAll(dataset);
+    }
+
+    @TearDown(Level.Iteration)
+    public void restore() throws Exception {
+        if (!inserted.isEmpty()) {
+            dao.deleteAll(inserted);
+            inserted.clear();
+        }
+        if (!deleted.isEmpty()) {
+            dao.insertAll(deleted);
+            deleted.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (dao instanceof DAOLogFile) {
+            ((DAOLogFile) dao).close();
+        } else if (dao instanceof DAOIndexedFile) {
+            ((DAOIndexedFile) dao).close();
+        } else if (dao instanceof DAOMappedFile) {
+            ((DAOMappedFile) dao).close();
+        } else if (dao instanceof DAOJPA) {
+            ((DAOJPA) dao).close();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        try ( Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Person read() throws Exception {
+        return dao.read(new Person(dataset.get(random.nextInt(people)).getNif()));
+    }
+
+    @Benchmark
+    public ArrayList<Person> readAll() throws Exception {
+        return dao.readAll();
+    }
+
+    @Benchmark
+    public ArrayList<PersonSummary> readAllSummaries() throws Exception {
+        return dao.readAllSummaries();
+    }
+
+    @Benchmark
+    public ArrayList<Person> findByNamePrefix() throws Exception {
+        return dao.findByNamePrefix(dataset.get(random.nextInt(people)).getName());
+    }
+
+    @Benchmark
+    public ArrayList<Person> findByBirthDateRange() throws Exception {
+        Date date = dataset.get(random.nextInt(people)).getDateOfBirth();
+        return dao.findByBirthDateRange(date, date);
+    }
+
+    @Benchmark
+    public int count() throws Exception {
+        return dao.count();
+    }
+
+    @Benchmark
+    public void update() throws Exception {
+        dao.update(dataset.get(random.nextInt(people)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public void insert() throws Exception {
+        Person p = person(nextNif++, random.nextDouble() < photoRatio);
+        dao.insert(p);
+        inserted.add(p);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH)
+    @Measurement(iterations = 5, batchSize = BATCH)
+    public void delete() throws Exception {
+        Person p = dataset.get(deleted.size());
+        dao.delete(p);
+        deleted.add(p);
+    }
+
+    private IDAO create() throws Exception {
+        String path = folder.toString() + File.separator;
+        String photos = path + "Photos";
+        switch (storage) {
+            case "arrayList":
+                return new DAOArrayList();
+            case "hashMap":
+                return new DAOHashMap();
+            case "concurrentHashMap":
+                return new DAOConcurrentHashMap();
+            case "copyOnWriteList":
+                return new DAOCopyOnWriteList();
+            case "nifIndex":
+                return new DAONifIndex();
+            case "offHeap":
+                return new DAOOffHeap();
+            case "file":
+                new File(path + "dataFile.txt").createNewFile();
+                return new DAOFile(path + "dataFile.txt", photos);
+            case "serialization":
+                return new DAOFileSerializable(path + "dataFile.ser");
+            case "binaryFile":
+                return new DAOFileBinary(path + "dataFile.bin", photos);
+            case "indexedFile":
+                return new DAOIndexedFile(path + "dataFile.dat", path + "dataFile.idx", photos);
+            case "mappedFile":
+                return new DAOMappedFile(path + "dataFile.map", photos);
+            case "sql":
+                return new DAOSQL(createSQLDatabase(), photos);
+            case "jpa":
+                return new DAOJPA(Map.of("javax.persistence.jdbc.url", path + "people.odb"));
+            default:
+                throw new IllegalArgumentException("Unknown storage " + storage + ".");
+        }
+    }
+
+    /**
+     * Creates the table of the controller in an in-memory H2 database.
+     */
+    private ConnectionPool createSQLDatabase() throws SQLException {
+        String url = "jdbc:h2:mem:people-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try ( Connection conn = DriverManager.getConnection(url, "sa", "");  Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("create schema if not exists " + Routes.DB.getDbServerDB());
+            stmt.executeUpdate("create table if not exists " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + "("
+                    + "nif varchar(9) primary key not null, "
+                    + "name varchar(50), "
+                    + "phoneNumber varchar(25),"
+                    + "postalCode varchar(25),"
+                    + "dateOfBirth DATE, "
+                    + "photo varchar(200) )");
+            for (String column : new String[]{"postalCode", "name", "dateOfBirth"}) {
+                stmt.executeUpdate("create index if not exists idx_" + column + " on " + Routes.DB.getDbServerDB() + "."
+                        + Routes.DB.getDbServerTABLE() + "(" + column + ")");
+            }
+        }
+        pool = new ConnectionPool(url, "sa", "", 1, 8, 60000, 10000);
+        return pool;
+    }
+
+    private static Person person(int number, boolean withPhoto) throws IOException {
+        Person p = new Person("Person " + number, DAONifIndex.nif(number), "+34 600 000 000", "08002",
+                new Date(86400000L * (number % 20000)), null);
+        if (withPhoto) {
+            p.setPhotoHandle(Photo.ofBytes(photo(number)));
+        }
+        return p;
+    }
+
+    /**
+     * A PNG different for every number, so the photo storages do not share
+     * it.
+     */
+    private static byte[] photo(int number) throws IOException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, (number * 31 + x * 7 + y * 13) & 0xFFFFFF);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(StorageBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
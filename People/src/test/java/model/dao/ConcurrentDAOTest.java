@@ -0,0 +1,150 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import model.entity.Person;
+
+/**
+ * Stress tests of DAOConcurrentHashMap and DAOCopyOnWriteList: many threads
+ * writing and reading a few NIFs at the same time.
+ */
+class ConcurrentDAOTest {
+
+    private static final int THREADS = 8;
+    private static final int NIFS = 16;
+
+    @Test
+    void testConcurrentHashMapInsertDeleteAreAtomic() throws Exception {
+        checkInsertDeleteAreAtomic(new DAOConcurrentHashMap(), 20000);
+    }
+
+    @Test
+    void testCopyOnWriteListInsertDeleteAreAtomic() throws Exception {
+        checkInsertDeleteAreAtomic(new DAOCopyOnWriteList(), 5000);
+    }
+
+    @Test
+    void testConcurrentHashMapUpdateIsAtomic() throws Exception {
+        DAOConcurrentHashMap dao = new DAOConcurrentHashMap();
+        dao.insert(new Person("Counter", nif(0), "0", "08001"));
+        run(() -> {
+            for (int i = 0; i < 10000; i++) {
+                dao.update(nif(0), p -> new Person(p.getName(), p.getNif(),
+                        String.valueOf(Integer.parseInt(p.getPhoneNumber()) + 1), p.getPostalCode()));
+            }
+            return null;
+        });
+        assertEquals(String.valueOf(THREADS * 10000), dao.read(new Person(nif(0))).getPhoneNumber());
+        assertNull(dao.update(nif(1), p -> p));
+    }
+
+    @Test
+    void testConcurrentHashMapSearchesTellApartNifsWithTheSameHash() throws Exception {
+        DAOConcurrentHashMap dao = new DAOConcurrentHashMap();
+        //"Aa" and "BB" have the same hash code
+        assertEquals("0000000Aa".hashCode(), "0000000BB".hashCode());
+        dao.insert(new Person("Anna", "0000000Aa", "1", "08001"));
+        dao.insert(new Person("Berta", "0000000BB", "2", "08001"));
+        assertEquals(2, dao.findByPostalCode("08001").size());
+        dao.delete(new Person("0000000Aa"));
+        assertEquals("Berta", dao.findByPostalCode("08001").get(0).getName());
+    }
+
+    @Test
+    void testCopyOnWriteListHasNoDuplicates() throws Exception {
+        DAOCopyOnWriteList dao = new DAOCopyOnWriteList();
+        run(() -> {
+            for (int i = 0; i < 2000; i++) {
+                int n = ThreadLocalRandom.current().nextInt(NIFS);
+                if (i % 2 == 0) {
+                    dao.insert(new Person("P", nif(n), "1", "08001"));
+                } else {
+                    dao.update(new Person("U", nif(n), "1", "08001"));
+                }
+            }
+            return null;
+        });
+        HashSet<String> nifs = new HashSet<>();
+        for (Person p : dao.readAll()) {
+            assertTrue(nifs.add(p.getNif()), p.getNif() + " is duplicated");
+        }
+    }
+
+    /**
+     * Every thread inserts and deletes random NIFs and counts the operations
+     * that succeeded. If they are atomic, for every NIF the insertions minus
+     * the deletions that succeeded is 1 if it is registered at the end and 0
+     * otherwise, and a read never returns a person with another NIF.
+     */
+    private void checkInsertDeleteAreAtomic(IDAO dao, int operations) throws Exception {
+        AtomicIntegerArray balance = new AtomicIntegerArray(NIFS);
+        run(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < operations; i++) {
+                int n = random.nextInt(NIFS);
+                Person p = new Person("P" + n, nif(n), "1", "08001");
+                switch (random.nextInt(3)) {
+                    case 0:
+                        if (dao.insertIfAbsent(p)) {
+                            balance.incrementAndGet(n);
+                        }
+                        break;
+                    case 1:
+                        if (dao.deleteIfPresent(p)) {
+                            balance.decrementAndGet(n);
+                        }
+                        break;
+                    default:
+                        Person pRead = dao.read(p);
+                        assertTrue(pRead == null || pRead.getNif().equals(p.getNif()));
+                }
+            }
+            return null;
+        });
+        int registered = 0;
+        for (int n = 0; n < NIFS; n++) {
+            boolean present = dao.read(new Person(nif(n))) != null;
+            assertEquals(present ? 1 : 0, balance.get(n), "Balance of " + nif(n));
+            registered += present ? 1 : 0;
+        }
+        assertEquals(registered, dao.count());
+    }
+
+    /**
+     * Runs the task in THREADS threads that start at the same time and
+     * throws the first failure.
+     */
+    private static void run(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<Void> result : results) {
+            result.get();
+        }
+    }
+
+    private static String nif(int n) {
+        return DAONifIndex.nif(n);
+    }
+
+}
@@ -0,0 +1,223 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import javax.imageio.ImageIO;
+import model.entity.Person;
+import model.entity.Photo;
+import start.Routes;
+
+/**
+ * Tests of ConnectionPool and of DAOSQL running over the pool. An in-memory
+ * H2 database in MySQL mode stands in for the MySQL server.
+ */
+class ConnectionPoolTest {
+
+    private static int databases = 0;
+    private String url;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        url = "jdbc:h2:mem:people" + (databases++) + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try ( Connection conn = DriverManager.getConnection(url, "sa", "");  Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("create schema if not exists " + Routes.DB.getDbServerDB());
+            stmt.executeUpdate("create table if not exists " + Routes.DB.getDbServerDB() + "." + Routes.DB.getDbServerTABLE() + "("
+                    + "nif varchar(9) primary key not null, "
+                    + "name varchar(50), "
+                    + "phoneNumber varchar(25),"
+                    + "postalCode varchar(25),"
+                    + "dateOfBirth DATE, "
+                    + "photo varchar(200) )");
+        }
+        pool = new ConnectionPool(url, "sa", "", 1, 2, 60000, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testConnectionIsReused() throws SQLException {
+        ConnectionPool.PooledConnection first = pool.borrow();
+        pool.release(first);
+        ConnectionPool.PooledConnection second = pool.borrow();
+        assertSame(first, second);
+        assertEquals(1, pool.getOpenConnections());
+        pool.release(second);
+    }
+
+    @Test
+    void testPreparedStatementIsCached() throws SQLException {
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        PreparedStatement statement = conn.prepare("SELECT 1");
+        pool.release(conn);
+        conn = pool.borrow();
+        assertSame(statement, conn.prepare("SELECT 1"));
+        pool.release(conn);
+    }
+
+    @Test
+    void testBorrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool.PooledConnection first = pool.borrow();
+        ConnectionPool.PooledConnection second = pool.borrow();
+        assertThrows(SQLException.class, () -> pool.borrow());
+        pool.release(first);
+        pool.release(second);
+        assertEquals(2, pool.getIdleConnections());
+    }
+
+    @Test
+    void testInvalidConnectionIsReplacedOnBorrow() throws SQLException {
+        ConnectionPool.PooledConnection broken = pool.borrow();
+        broken.getConnection().close();
+        pool.release(broken);
+        ConnectionPool.PooledConnection conn = pool.borrow();
+        assertNotSame(broken, conn);
+        assertTrue(conn.getConnection().isValid(1));
+        assertEquals(1, pool.getOpenConnections());
+        pool.release(conn);
+    }
+
+    @Test
+    void testInvalidatedConnectionGivesBackItsPlace() throws SQLException {
+        ConnectionPool.PooledConnection first = pool.borrow();
+        ConnectionPool.PooledConnection second = pool.borrow();
+        pool.invalidate(first);
+        assertTrue(first.getConnection().isClosed());
+        assertEquals(1, pool.getOpenConnections());
+        ConnectionPool.PooledConnection third = pool.borrow();
+        assertNotSame(first, third);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(2, pool.getIdleConnections());
+    }
+
+    @Test
+    void testIdleConnectionsAreEvictedDownToMinSize() throws SQLException, InterruptedException {
+        ConnectionPool shortLived = new ConnectionPool(url, "sa", "", 1, 2, 10, 200);
+        ConnectionPool.PooledConnection first = shortLived.borrow();
+        ConnectionPool.PooledConnection second = shortLived.borrow();
+        shortLived.release(first);
+        shortLived.release(second);
+        Thread.sleep(50);
+        shortLived.evictIdle();
+        assertEquals(1, shortLived.getOpenConnections());
+        shortLived.close();
+    }
+
+    @Test
+    void testDAOSQLOverPool() throws Exception {
+        DAOSQL dao = new DAOSQL(pool);
+        Date dateOfBirth = java.sql.Date.valueOf("1990-05-17");
+        dao.insert(new Person("John Doe", "12345678Z", "612352892", "08907", dateOfBirth, null));
+        Person read = dao.read(new Person("12345678Z"));
+        assertEquals("John Doe", read.getName());
+        assertEquals("08907", read.getPostalCode());
+        assertEquals(dateOfBirth.toString(), read.getDateOfBirth().toString());
+
+        dao.update(new Person("Jane Doe", "12345678Z", "612352893", "08002", null, null));
+        assertEquals("Jane Doe", dao.read(new Person("12345678Z")).getName());
+        assertEquals(1, dao.readAll().size());
+        assertEquals(1, dao.count());
+
+        dao.delete(new Person("12345678Z"));
+        assertNull(dao.read(new Person("12345678Z")));
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    @Test
+    void testInsertIfAbsentAndDeleteIfPresent() throws Exception {
+        DAOSQL dao = new DAOSQL(pool);
+        assertTrue(dao.insertIfAbsent(new Person("John Doe", "12345678Z", "612352892", "08907")));
+        assertFalse(dao.insertIfAbsent(new Person("Jane Doe", "12345678Z", "612352893", "08002")));
+        assertEquals("John Doe", dao.read(new Person("12345678Z")).getName());
+        assertTrue(dao.deleteIfPresent(new Person("12345678Z")));
+        assertFalse(dao.deleteIfPresent(new Person("12345678Z")));
+        assertEquals(0, dao.count());
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    @Test
+    void testReadPageIsOrderedByNif() throws Exception {
+        DAOSQL dao = new DAOSQL(pool);
+        dao.insert(new Person("Carol", "33333333C", "612352892", "08907"));
+        dao.insert(new Person("Alice", "11111111A", "612352892", "08907"));
+        dao.insert(new Person("Bob", "22222222B", "612352892", "08907"));
+        assertEquals("11111111A", dao.readPage(0, 2).get(0).getNif());
+        assertEquals(2, dao.readPage(0, 2).size());
+        assertEquals("33333333C", dao.readPage(2, 2).get(0).getNif());
+        assertTrue(dao.readPage(3, 2).isEmpty());
+    }
+
+    @Test
+    void testBatchesReleaseTheFormerPhotos() throws Exception {
+        Path folder = Files.createTempDirectory("photos");
+        DAOSQL dao = new DAOSQL(pool, folder.toString());
+        ArrayList<Person> people = new ArrayList<>();
+        //More people than a SELECT of the former photos looks up
+        for (int i = 0; i < 2500; i++) {
+            Person p = new Person("Person " + i, DAONifIndex.nif(i), "1", "08001");
+            if (i % 1000 == 999) {
+                p.setPhotoHandle(Photo.ofBytes(png(i / 1000 + 2)));
+            }
+            people.add(p);
+        }
+        dao.insertAll(people);
+        ArrayList<Person> updated = new ArrayList<>();
+        for (int i = 998; i < 2500; i += 1000) {
+            Person p = new Person("Updated " + i, DAONifIndex.nif(i), "1", "08001");
+            p.setPhotoHandle(Photo.ofBytes(png(i / 1000 + 5)));
+            updated.add(p);
+        }
+        updated.add(new Person("Not registered", DAONifIndex.nif(3000), "1", "08001"));
+        dao.updateAll(updated);
+        assertEquals("Updated 1998", dao.read(new Person(DAONifIndex.nif(1998))).getName());
+        assertNull(dao.read(new Person(DAONifIndex.nif(3000))));
+        assertTrue(dao.deleteIfPresent(new Person(DAONifIndex.nif(999))));
+        assertFalse(dao.deleteIfPresent(new Person(DAONifIndex.nif(999))));
+        dao.deleteAll(people);
+        assertEquals(0, dao.count());
+        //Only the journal of references is left
+        assertEquals(1, folder.toFile().list().length);
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    @Test
+    void testRejectedRowsReleaseTheirPhotos() throws Exception {
+        Path folder = Files.createTempDirectory("photos");
+        DAOSQL dao = new DAOSQL(pool, folder.toString());
+        dao.insert(new Person("John Doe", "12345678Z", "612352892", "08907"));
+        Person jane = new Person("Jane Doe", "87654321X", "612352893", "08002");
+        jane.setPhotoHandle(Photo.ofBytes(png(4)));
+        Person repeated = new Person("John Doe", "12345678Z", "612352892", "08907");
+        repeated.setPhotoHandle(Photo.ofBytes(png(8)));
+        assertThrows(SQLException.class, () -> dao.insertAll(Arrays.asList(jane, repeated)));
+        assertThrows(SQLException.class, () -> dao.insert(repeated));
+        assertNull(dao.read(new Person("87654321X")));
+        assertEquals(1, folder.toFile().list().length);
+        assertEquals(1, pool.getOpenConnections());
+    }
+
+    private static byte[] png(int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        return bytes.toByteArray();
+    }
+}
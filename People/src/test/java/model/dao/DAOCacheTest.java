@@ -0,0 +1,86 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import model.entity.Person;
+import model.entity.Photo;
+
+/**
+ * Tests of DAOCache over a DAOArrayList.
+ */
+class DAOCacheTest {
+
+    private DAOArrayList storage;
+    private DAOCache cache;
+
+    @BeforeEach
+    void setUp() {
+        storage = new DAOArrayList();
+        cache = new DAOCache(storage, 2, Long.MAX_VALUE);
+    }
+
+    @Test
+    void testReadIsCached() throws Exception {
+        cache.insert(new Person("John", "12345678Z", "600000000", "08001"));
+        assertEquals("John", cache.read(new Person("12345678Z")).getName());
+        storage.deleteAll();
+        assertEquals("John", cache.read(new Person("12345678Z")).getName());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testWritesInvalidate() throws Exception {
+        cache.insert(new Person("John", "12345678Z", "600000000", "08001"));
+        cache.read(new Person("12345678Z"));
+        cache.update(new Person("Jane", "12345678Z", "600000000", "08001"));
+        assertEquals("Jane", cache.read(new Person("12345678Z")).getName());
+        cache.delete(new Person("12345678Z"));
+        assertNull(cache.read(new Person("12345678Z")));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws Exception {
+        cache.insertAll(Arrays.asList(new Person("A", "00000001R", "1", "08001"),
+                new Person("B", "00000002W", "1", "08001"), new Person("C", "00000003A", "1", "08001")));
+        cache.read(new Person("00000001R"));
+        cache.read(new Person("00000002W"));
+        cache.read(new Person("00000001R"));
+        cache.read(new Person("00000003A"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.read(new Person("00000001R"));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void testCachedPersonCanNotBeChanged() throws Exception {
+        cache.insert(new Person("John", "12345678Z", "600000000", "08001"));
+        cache.read(new Person("12345678Z")).setName("Jane");
+        assertEquals("John", cache.read(new Person("12345678Z")).getName());
+    }
+
+    @Test
+    void testDecodingAPhotoReadDoesNotDecodeTheCachedOne() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB), "png", png);
+        Person p = new Person("John", "12345678Z", "600000000", "08001");
+        p.setPhotoHandle(Photo.ofBytes(png.toByteArray()));
+        storage.insert(p);
+        cache.read(new Person("12345678Z"));
+        long weight = cache.getWeight();
+        Photo shown = cache.read(new Person("12345678Z")).getPhotoHandle();
+        assertEquals(64, shown.getIcon().getIconWidth());
+        Photo again = cache.read(new Person("12345678Z")).getPhotoHandle();
+        assertNotSame(shown, again);
+        assertFalse(again.isDecoded());
+        assertEquals(weight, cache.getWeight());
+    }
+
+}
@@ -0,0 +1,68 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import model.entity.Person;
+
+/**
+ * Tests of DAOFileBinary. A crash is simulated by copying the file of a
+ * storage that is still open.
+ */
+class DAOFileBinaryTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("people");
+    }
+
+    @Test
+    void testReopenAfterCloseAndAfterCrash() throws Exception {
+        DAOFileBinary storage = open(dir);
+        storage.insertAll(Arrays.asList(new Person("Anna", "00000001R", "1", "08001",
+                new GregorianCalendar(1960, 1, 29).getTime(), null), new Person("Berta", "00000002W", "2", "08002")));
+        storage.delete(new Person("00000002W"));
+        storage.close();
+        storage = open(dir);
+        assertEquals(1, storage.count());
+        assertEquals(new GregorianCalendar(1960, 1, 29).getTime(), storage.read(new Person("00000001R")).getDateOfBirth());
+        storage.update(new Person("Anna Maria", "00000001R", "1", "08001"));
+        storage.insert(new Person("Carla", "00000003A", "3", "08003"));
+        Path crashed = Files.createTempDirectory("people");
+        Files.copy(dir.resolve("dataFile.bin"), crashed.resolve("dataFile.bin"));
+        storage.close();
+        storage = open(crashed);
+        assertEquals("Anna Maria", storage.read(new Person("00000001R")).getName());
+        assertNull(storage.read(new Person("00000001R")).getDateOfBirth());
+        assertEquals("Carla", storage.read(new Person("00000003A")).getName());
+        assertEquals(2, storage.readAll().size());
+        storage.close();
+    }
+
+    @Test
+    void testUpdateOfAPersonNotRegisteredDoesNotInsert() throws Exception {
+        DAOFileBinary storage = open(dir);
+        storage.insert(new Person("Anna", "00000001R", "1", "08001"));
+        storage.update(new Person("Berta", "00000002W", "2", "08002"));
+        storage.updateAll(Arrays.asList(new Person("Carla", "00000003A", "3", "08003")));
+        assertNull(storage.read(new Person("00000002W")));
+        assertNull(storage.read(new Person("00000003A")));
+        assertEquals(1, storage.count());
+        storage.close();
+        storage = open(dir);
+        assertEquals(1, storage.readAll().size());
+        storage.close();
+    }
+
+    private static DAOFileBinary open(Path folder) throws IOException {
+        return new DAOFileBinary(folder.resolve("dataFile.bin").toString(), folder.resolve("Photos").toString());
+    }
+
+}
@@ -0,0 +1,96 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import model.entity.Person;
+
+/**
+ * Tests of DAOFileSerializable and of the log of DAOLogFile. A crash is
+ * simulated by copying the file of a storage that is still open.
+ */
+class DAOFileSerializableTest {
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("people");
+        file = dir.resolve("dataFile.ser");
+    }
+
+    @Test
+    void testReopenAfterCloseAndAfterCrash() throws Exception {
+        DAOFileSerializable storage = new DAOFileSerializable(file.toString());
+        storage.insertAll(Arrays.asList(new Person("Anna", "00000001R", "1", "08001"),
+                new Person("Berta", "00000002W", "2", "08002")));
+        storage.delete(new Person("00000001R"));
+        storage.close();
+        storage = new DAOFileSerializable(file.toString());
+        assertEquals(1, storage.count());
+        storage.insert(new Person("Carla", "00000003A", "3", "08003"));
+        Path crashed = copy(file);
+        storage.close();
+        storage = new DAOFileSerializable(crashed.toString());
+        assertEquals("Carla", storage.read(new Person("00000003A")).getName());
+        assertEquals(2, storage.readAll().size());
+        storage.close();
+    }
+
+    @Test
+    void testIndexBlockOverwrittenByACrashIsNotLoaded() throws Exception {
+        DAOFileSerializable storage = new DAOFileSerializable(file.toString());
+        for (int i = 0; i < 50; i++) {
+            storage.insert(new Person("Person " + i, DAONifIndex.nif(i), "1", "08001"));
+        }
+        storage.close();
+        byte[] closed = Files.readAllBytes(file);
+        storage = new DAOFileSerializable(file.toString());
+        storage.insert(new Person("Anna", DAONifIndex.nif(50), "1", "08001"));
+        byte[] appended = Files.readAllBytes(file);
+        storage.close();
+        //The new record written over the index block before the block is cut
+        Path crashed = dir.resolve("crashed.ser");
+        Files.write(crashed, closed);
+        try ( RandomAccessFile raf = new RandomAccessFile(crashed.toFile(), "rw")) {
+            raf.write(appended);
+        }
+        storage = new DAOFileSerializable(crashed.toString());
+        assertEquals(51, storage.count());
+        assertEquals("Anna", storage.read(new Person(DAONifIndex.nif(50))).getName());
+        assertEquals("Person 49", storage.read(new Person(DAONifIndex.nif(49))).getName());
+        storage.close();
+    }
+
+    @Test
+    void testFormerFormatIsConverted() throws Exception {
+        try ( ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file.toFile()))) {
+            oos.writeObject(new Person("Anna", "00000001R", "1", "08001"));
+            oos.writeObject(new Person("Berta", "00000002W", "2", "08002"));
+        }
+        DAOFileSerializable storage = new DAOFileSerializable(file.toString());
+        assertEquals(2, storage.count());
+        assertEquals("Berta", storage.read(new Person("00000002W")).getName());
+        assertFalse(Files.exists(dir.resolve("dataFile.ser.tmp")));
+        storage.close();
+        storage = new DAOFileSerializable(file.toString());
+        assertEquals(2, storage.count());
+        storage.close();
+    }
+
+    private static Path copy(Path file) throws IOException {
+        Path copy = Files.createTempFile("people", ".ser");
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+}
@@ -0,0 +1,126 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import javax.imageio.ImageIO;
+import model.entity.Person;
+import model.entity.Photo;
+
+/**
+ * Tests of DAOFile. A crash is simulated by copying the files of a storage
+ * that is still open, which is what the disk holds at that moment.
+ */
+class DAOFileTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("people");
+        Files.createFile(dir.resolve("dataFile.txt"));
+    }
+
+    @Test
+    void testChangesAreReadBeforeAndAfterTheCheckpoint() throws Exception {
+        DAOFile storage = open(dir);
+        for (int i = 0; i < 10; i++) {
+            storage.insert(new Person("Person " + i, DAONifIndex.nif(i), "1", "08001"));
+        }
+        storage.update(new Person("Updated 2", DAONifIndex.nif(2), "1", "08001"));
+        storage.delete(new Person(DAONifIndex.nif(3)));
+        assertFalse(storage.deleteIfPresent(new Person(DAONifIndex.nif(3))));
+        storage.update(new Person("Not registered", DAONifIndex.nif(20), "1", "08001"));
+        storage.delete(new Person(DAONifIndex.nif(4)));
+        storage.insert(new Person("Inserted again 4", DAONifIndex.nif(4), "1", "08001"));
+        assertFalse(storage.insertIfAbsent(new Person("Person 4", DAONifIndex.nif(4), "1", "08001")));
+        String expected = "Inserted again 4=" + DAONifIndex.nif(4) + " Person 0=" + DAONifIndex.nif(0);
+        assertTrue(people(storage).startsWith(expected));
+        assertEquals(9, storage.count());
+        assertEquals("Updated 2", storage.readPage(1, 2).get(1).getName());
+        //The updates and deletes are not in the data file until the checkpoint
+        assertEquals(10, Files.readAllLines(dir.resolve("dataFile.txt")).size());
+        String all = people(storage);
+        Path crashed = copy(dir);
+        //Enough log to reach a checkpoint
+        for (int i = 0; i < 8000; i++) {
+            ArrayList<Person> batch = new ArrayList<>();
+            for (int j = 5; j < 10; j++) {
+                batch.add(new Person("Person " + j, DAONifIndex.nif(j), String.valueOf(i), "08001"));
+            }
+            storage.updateAll(batch);
+        }
+        assertEquals(9, Files.readAllLines(dir.resolve("dataFile.txt")).size());
+        assertEquals(all, people(storage));
+        storage = open(crashed);
+        assertEquals(all, people(storage));
+        assertEquals(9, Files.readAllLines(crashed.resolve("dataFile.txt")).size());
+    }
+
+    @Test
+    void testReplayOfDeleteAllClearsThePhotos() throws Exception {
+        DAOFile storage = open(dir);
+        Person anna = new Person("Anna", "00000001R", "1", "08001");
+        anna.setPhotoHandle(Photo.ofBytes(png()));
+        storage.insert(anna);
+        assertTrue(storage.read(new Person("00000001R")).hasPhoto());
+        Path crashed = copy(dir);
+        try ( WriteAheadLog log = new WriteAheadLog(crashed.resolve("dataFile.txt.wal").toString())) {
+            log.commit("*".getBytes(StandardCharsets.UTF_8));
+        }
+        storage = open(crashed);
+        assertEquals(0, storage.count());
+        String[] photos = crashed.resolve("Photos").toFile().list();
+        assertTrue(photos == null || photos.length == 0);
+    }
+
+    private static DAOFile open(Path folder) throws IOException {
+        return new DAOFile(folder.resolve("dataFile.txt").toString(), folder.resolve("Photos").toString());
+    }
+
+    private static Path copy(Path folder) throws IOException {
+        Path copy = Files.createTempDirectory("people");
+        for (File file : folder.toFile().listFiles()) {
+            if (file.isDirectory()) {
+                Files.createDirectory(copy.resolve(file.getName()));
+                for (File photo : file.listFiles()) {
+                    Files.copy(photo.toPath(), copy.resolve(file.getName()).resolve(photo.getName()));
+                }
+            } else {
+                Files.copy(file.toPath(), copy.resolve(file.getName()));
+            }
+        }
+        return copy;
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static String people(DAOFile storage) throws Exception {
+        TreeMap<String, String> people = new TreeMap<>();
+        ArrayList<Person> all = storage.readAll();
+        assertEquals(all.size(), storage.count());
+        for (Person p : all) {
+            people.put(p.getName(), p.getNif());
+            assertEquals(p.getName(), storage.read(new Person(p.getNif())).getName());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String name : people.keySet()) {
+            sb.append(sb.length() > 0 ? " " : "").append(name).append('=').append(people.get(name));
+        }
+        return sb.toString();
+    }
+
+}
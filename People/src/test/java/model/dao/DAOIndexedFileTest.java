@@ -0,0 +1,226 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+import javax.imageio.ImageIO;
+import model.entity.Person;
+import model.entity.Photo;
+
+/**
+ * Tests of DAOIndexedFile. A crash is simulated by copying the files of a
+ * storage that is still open, which is what the disk holds at that moment.
+ */
+class DAOIndexedFileTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("people");
+    }
+
+    @Test
+    void testReopenAfterCloseAndAfterCrash() throws IOException {
+        DAOIndexedFile storage = open(dir);
+        storage.insert(new Person("Anna", "00000001R", "1", "08001"));
+        storage.insert(new Person("Berta", "00000002W", "2", "08002"));
+        storage.close();
+        storage = open(dir);
+        assertEquals("Anna=00000001R Berta=00000002W", people(storage));
+        storage.update(new Person("Carla", "00000002W", "2", "08002"));
+        storage.delete(new Person("00000001R"));
+        Path crashed = copy(dir);
+        storage.close();
+        try ( RandomAccessFile log = new RandomAccessFile(crashed.resolve("dataFile.log").toFile(), "rw")) {
+            //A record cut in the middle of its write
+            log.seek(log.length());
+            log.write(new byte[]{1, 0, 0, 0, 100, 0});
+        }
+        for (Path reopened : new Path[]{dir, crashed}) {
+            storage = open(reopened);
+            assertEquals("Carla=00000002W", people(storage));
+            storage.insert(new Person("Dolors", "00000003A", "3", "08003"));
+            assertEquals("Carla=00000002W Dolors=00000003A", people(storage));
+            storage.close();
+        }
+    }
+
+    @Test
+    void testReopenAfterEveryStepOfCompaction() throws IOException {
+        DAOIndexedFile storage = open(dir);
+        for (int i = 0; i < 100; i++) {
+            storage.insert(new Person("Person " + i, DAONifIndex.nif(i), "1", "08001"));
+            if (i == 9) {
+                //The saved index covers a part of the log shorter than the compacted log
+                storage.close();
+                storage = open(dir);
+            }
+        }
+        for (int i = 0; i < 100; i += 2) {
+            storage.update(new Person("Updated " + i, DAONifIndex.nif(i), "1", "08001"));
+        }
+        for (int i = 1; i < 100; i += 4) {
+            storage.delete(new Person(DAONifIndex.nif(i)));
+        }
+        Path before = copy(dir);
+        String expected = people(storage);
+        storage.compact();
+        assertEquals(expected, people(storage));
+        storage.close();
+        Path after = copy(dir);
+
+        //The temporary log is being written
+        Path writing = copy(before);
+        Files.copy(after.resolve("dataFile.log"), writing.resolve("dataFile.log.tmp"));
+        //The index is deleted
+        Path deleted = copy(before);
+        Files.delete(deleted.resolve("dataFile.idx"));
+        //The temporary log replaces the log
+        Path moved = copy(after);
+        Files.delete(moved.resolve("dataFile.idx"));
+        //An index of the former log next to the new one
+        Path stale = copy(after);
+        Files.copy(before.resolve("dataFile.idx"), stale.resolve("dataFile.idx"), StandardCopyOption.REPLACE_EXISTING);
+        for (Path step : new Path[]{writing, deleted, moved, stale, after}) {
+            storage = open(step);
+            assertEquals(expected, people(storage));
+            storage.close();
+        }
+    }
+
+    @Test
+    void testPagesFollowTheWrites() throws IOException {
+        DAOIndexedFile storage = open(dir);
+        for (int i = 0; i < 10; i++) {
+            storage.insert(new Person("Person " + i, DAONifIndex.nif(i), "1", "08001"));
+        }
+        assertEquals("Person 3", storage.readPage(3, 4).get(0).getName());
+        assertEquals(4, storage.readPage(3, 4).size());
+        storage.update(new Person("Updated 0", DAONifIndex.nif(0), "1", "08001"));
+        storage.delete(new Person(DAONifIndex.nif(1)));
+        //The update moved the record to the end of the log
+        assertEquals("Person 2", storage.readPage(0, 1).get(0).getName());
+        assertEquals("Updated 0", storage.readPage(8, Integer.MAX_VALUE).get(0).getName());
+        assertEquals(1, storage.readPage(8, Integer.MAX_VALUE).size());
+        assertTrue(storage.readPage(9, 1).isEmpty());
+        storage.close();
+    }
+
+    @Test
+    void testRepeatedNifInABatchReleasesTheReplacedPhoto() throws IOException {
+        DAOIndexedFile storage = open(dir);
+        Person first = new Person("Anna", "00000001R", "1", "08001");
+        first.setPhotoHandle(Photo.ofBytes(png(4)));
+        Person second = new Person("Berta", "00000001R", "1", "08001");
+        second.setPhotoHandle(Photo.ofBytes(png(8)));
+        storage.insertAll(Arrays.asList(first, second));
+        assertEquals("Berta=00000001R", people(storage));
+        storage.delete(new Person("00000001R"));
+        //Only the journal of references is left
+        assertEquals(1, dir.resolve("Photos").toFile().list().length);
+        storage.close();
+    }
+
+    @Test
+    void testReplayStopsAtACorruptedRecord() throws IOException {
+        DAOIndexedFile storage = open(dir);
+        storage.insert(new Person("Anna", "00000001R", "1", "08001"));
+        storage.insert(new Person("Berta", "00000002W", "2", "08002"));
+        storage.close();
+        Files.delete(dir.resolve("dataFile.idx"));
+        try ( RandomAccessFile log = new RandomAccessFile(dir.resolve("dataFile.log").toFile(), "rw")) {
+            //A byte of the last record changed, its length is still right
+            log.seek(log.length() - 1);
+            log.write(1);
+        }
+        storage = open(dir);
+        assertEquals("Anna=00000001R", people(storage));
+        storage.insert(new Person("Carla", "00000003A", "3", "08003"));
+        storage.close();
+        storage = open(dir);
+        assertEquals("Anna=00000001R Carla=00000003A", people(storage));
+        storage.close();
+    }
+
+    @Test
+    void testLogOfTheFormerFormatIsConverted() throws IOException {
+        try ( DataOutputStream out = new DataOutputStream(new FileOutputStream(dir.resolve("dataFile.log").toFile()))) {
+            //Magic of the format without CRC32 and generation 0
+            out.writeInt(0x504C4F47);
+            out.writeLong(0);
+            for (String[] person : new String[][]{{"00000001R", "Anna"}, {"00000002W", "Berta"}}) {
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                DataOutputStream record = new DataOutputStream(payload);
+                record.writeUTF(person[0]);
+                record.writeUTF(person[1]);
+                record.writeUTF("1");
+                record.writeUTF("08001");
+                record.writeLong(Long.MIN_VALUE);
+                record.writeUTF("");
+                out.writeByte(1);
+                out.writeInt(payload.size());
+                out.write(payload.toByteArray());
+            }
+        }
+        DAOIndexedFile storage = open(dir);
+        assertEquals("Anna=00000001R Berta=00000002W", people(storage));
+        storage.insert(new Person("Carla", "00000003A", "3", "08003"));
+        storage.close();
+        try ( RandomAccessFile log = new RandomAccessFile(dir.resolve("dataFile.log").toFile(), "r")) {
+            assertNotEquals(0x504C4F47, log.readInt());
+        }
+        Files.delete(dir.resolve("dataFile.idx"));
+        storage = open(dir);
+        assertEquals("Anna=00000001R Berta=00000002W Carla=00000003A", people(storage));
+        storage.close();
+    }
+
+    private static DAOIndexedFile open(Path folder) throws IOException {
+        return new DAOIndexedFile(folder.resolve("dataFile.log").toString(), folder.resolve("dataFile.idx").toString(),
+                folder.resolve("Photos").toString());
+    }
+
+    private static Path copy(Path folder) throws IOException {
+        Path copy = Files.createTempDirectory("people");
+        for (File file : folder.toFile().listFiles(File::isFile)) {
+            Files.copy(file.toPath(), copy.resolve(file.getName()));
+        }
+        return copy;
+    }
+
+    private static byte[] png(int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static String people(DAOIndexedFile storage) throws IOException {
+        TreeMap<String, String> people = new TreeMap<>();
+        ArrayList<Person> all = storage.readAll();
+        assertEquals(all.size(), storage.count());
+        for (Person p : all) {
+            people.put(p.getName(), p.getNif());
+            assertEquals(p.getName(), storage.read(new Person(p.getNif())).getName());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String name : people.keySet()) {
+            sb.append(sb.length() > 0 ? " " : "").append(name).append('=').append(people.get(name));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,74 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import model.entity.Person;
+
+/**
+ * Tests of DAOMappedFile.
+ */
+class DAOMappedFileTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("people");
+    }
+
+    @Test
+    void testReopenKeepsThePeople() throws IOException {
+        DAOMappedFile storage = open();
+        for (int i = 0; i < 2000; i++) {
+            storage.insert(new Person("Person " + i, DAONifIndex.nif(i), "600000000", "08001",
+                    new GregorianCalendar(1990, 0, 1 + i % 28).getTime(), null));
+        }
+        storage.delete(new Person(DAONifIndex.nif(0)));
+        storage.close();
+        storage = open();
+        assertEquals(1999, storage.count());
+        Person last = storage.read(new Person(DAONifIndex.nif(1999)));
+        assertEquals("Person 1999", last.getName());
+        assertEquals(new GregorianCalendar(1990, 0, 1 + 1999 % 28).getTime(), last.getDateOfBirth());
+        assertNull(storage.read(new Person(DAONifIndex.nif(0))));
+        storage.close();
+    }
+
+    @Test
+    void testInsertOfARegisteredNifUpdates() throws IOException {
+        DAOMappedFile storage = open();
+        storage.insert(new Person("Anna", "00000001R", "1", "08001"));
+        storage.insert(new Person("Berta", "00000001R", "2", "08002"));
+        storage.insertAll(Arrays.asList(new Person("Carla", "00000002W", "3", "08003"),
+                new Person("Dolors", "00000002W", "4", "08004")));
+        assertEquals(2, storage.count());
+        assertEquals(2, storage.readAll().size());
+        assertEquals("Berta", storage.read(new Person("00000001R")).getName());
+        assertEquals("Dolors", storage.read(new Person("00000002W")).getName());
+        storage.close();
+    }
+
+    @Test
+    void testTooLongTextIsRejected() throws IOException {
+        DAOMappedFile storage = open();
+        storage.insert(new Person("Anna", "00000001R", "1", "08001"));
+        char[] name = new char[101];
+        Arrays.fill(name, 'a');
+        assertThrows(IOException.class, () -> storage.insert(new Person(new String(name), "00000002W", "2", "08002")));
+        assertThrows(IOException.class, () -> storage.update(new Person(new String(name), "00000001R", "2", "08002")));
+        assertEquals(1, storage.count());
+        assertEquals("Anna", storage.read(new Person("00000001R")).getName());
+        storage.close();
+    }
+
+    private DAOMappedFile open() throws IOException {
+        return new DAOMappedFile(dir.resolve("dataFile.dat").toString(), dir.resolve("Photos").toString());
+    }
+
+}
@@ -0,0 +1,57 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import model.entity.Person;
+
+/**
+ * Tests of DAONameSearch.
+ */
+class DAONameSearchTest {
+
+    @Test
+    void testWritesOfTheSameNifReachTheIndexInTheirOrder() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        DAOConcurrentHashMap storage = new DAOConcurrentHashMap() {
+            @Override
+            public void update(Person p) {
+                super.update(p);
+                if (p.getName().equals("Anna")) {
+                    //The first write stops between the storage and the index
+                    written.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        DAONameSearch nameSearch = new DAONameSearch(storage);
+        nameSearch.insert(new Person("Zoe", "00000001R", "1", "08001"));
+        assertEquals("Zoe", nameSearch.search("Zoe", 1).get(0).getName());
+        Thread first = new Thread(() -> update(nameSearch, "Anna"));
+        first.start();
+        written.await();
+        Thread second = new Thread(() -> update(nameSearch, "Berta"));
+        second.start();
+        Thread.sleep(200);
+        resume.countDown();
+        first.join();
+        second.join();
+        assertEquals("Berta", storage.read(new Person("00000001R")).getName());
+        assertEquals("Berta", nameSearch.search("Berta", 1).get(0).getName());
+        assertEquals(1, nameSearch.indexed());
+    }
+
+    private static void update(DAONameSearch nameSearch, String name) {
+        try {
+            nameSearch.update(new Person(name, "00000001R", "1", "08001"));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import model.entity.Person;
+import model.entity.PersonException;
+
+/**
+ * Tests of NifIntMap and DAONifIndex.
+ */
+class DAONifIndexTest {
+
+    @Test
+    void testMapMatchesHashMap() {
+        NifIntMap map = new NifIntMap();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(17);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals((int) expected.getOrDefault(key, NifIntMap.NO_VALUE), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals((int) expected.getOrDefault(key, NifIntMap.NO_VALUE), map.put(key, i));
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals((int) expected.getOrDefault(key, NifIntMap.NO_VALUE), map.get(key));
+        }
+    }
+
+    @Test
+    void testNifNumber() {
+        assertEquals(12345678, DAONifIndex.number("12345678Z"));
+        assertEquals("00000001R", DAONifIndex.nif(1));
+        assertEquals(-1, DAONifIndex.number("12345678A"));
+        assertEquals(-1, DAONifIndex.number("1234567Z"));
+    }
+
+    @Test
+    void testDeleteMovesLastRow() throws Exception {
+        DAONifIndex dao = new DAONifIndex();
+        dao.insertAll(Arrays.asList(new Person("A", "00000001R", "1", "08001"),
+                new Person("B", "00000002W", "2", "08002"), new Person("C", "00000003A", "3", "08003")));
+        dao.delete(new Person("00000001R"));
+        assertNull(dao.read(new Person("00000001R")));
+        assertEquals("C", dao.read(new Person("00000003A")).getName());
+        assertEquals(2, dao.count());
+        assertFalse(dao.insertIfAbsent(new Person("B2", "00000002W", "2", "08002")));
+        dao.update(new Person("B2", "00000002W", "2", "08002"));
+        assertEquals("B2", dao.read(new Person("00000002W")).getName());
+    }
+
+    @Test
+    void testInvalidNifIsRejected() throws Exception {
+        DAONifIndex dao = new DAONifIndex();
+        assertThrows(PersonException.class, () -> dao.insertAll(Arrays.asList(
+                new Person("A", "00000001R", "1", "08001"), new Person("B", "00000002A", "2", "08002"))));
+        assertEquals(0, dao.count());
+        assertNull(dao.read(new Person("00000002A")));
+    }
+
+    @Test
+    void testSearchesSeeTheWritesBeforeAndAfterTheFirstSearch() throws Exception {
+        DAONifIndex dao = new DAONifIndex();
+        dao.insertAll(Arrays.asList(new Person("Anna", "00000001R", "1", "08001"),
+                new Person("Berta", "00000002W", "2", "08002"), new Person("Carla", "00000003A", "3", "08001")));
+        dao.delete(new Person("00000003A"));
+        assertEquals(1, dao.findByPostalCode("08001").size());
+        dao.update(new Person("Anna Maria", "00000001R", "1", "08002"));
+        dao.insert(new Person("Dolors", "00000004G", "4", "08001"));
+        assertEquals("Dolors", dao.findByPostalCode("08001").get(0).getName());
+        assertEquals(2, dao.findByPostalCode("08002").size());
+        assertEquals("Anna Maria", dao.findByNamePrefix("An").get(0).getName());
+        dao.deleteAll();
+        assertEquals(0, dao.findByPostalCode("08002").size());
+    }
+
+}
@@ -0,0 +1,60 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import model.entity.Person;
+import model.entity.Photo;
+
+/**
+ * Tests of DAOOffHeap.
+ */
+class DAOOffHeapTest {
+
+    @Test
+    void testPersonIsReadBack() throws Exception {
+        DAOOffHeap dao = new DAOOffHeap();
+        Person p = new Person("John", "12345678Z", "+34 612 475 289", "08001");
+        p.setDateOfBirth(new GregorianCalendar(1950, 0, 31).getTime());
+        p.setPhotoHandle(Photo.ofBytes(new byte[]{(byte) 0x89, 'P', 'N', 'G', 1, 2, 3}));
+        dao.insert(p);
+        Person pRead = dao.read(new Person("12345678Z"));
+        assertEquals("John", pRead.getName());
+        assertEquals("+34 612 475 289", pRead.getPhoneNumber());
+        assertEquals(p.getDateOfBirth(), pRead.getDateOfBirth());
+        assertArrayEquals(p.getPhotoHandle().getBytes(), pRead.getPhotoHandle().getBytes());
+    }
+
+    @Test
+    void testWritesReplaceRecords() throws Exception {
+        DAOOffHeap dao = new DAOOffHeap();
+        dao.insertAll(Arrays.asList(new Person("A", "00000001R", "1", "08001"),
+                new Person("B", "00000002W", "2", "08002"), new Person("C", "00000003A", "3", "08003")));
+        dao.update(new Person("B2", "00000002W", "2", "08002"));
+        dao.delete(new Person("00000001R"));
+        assertNull(dao.read(new Person("00000001R")));
+        assertEquals("B2", dao.read(new Person("00000002W")).getName());
+        assertEquals(2, dao.readAll().size());
+        dao.deleteAll();
+        assertEquals(0, dao.count());
+        assertEquals(0, dao.getAllocatedBytes());
+    }
+
+    @Test
+    void testSearchesSeeTheWritesBeforeAndAfterTheFirstSearch() throws Exception {
+        DAOOffHeap dao = new DAOOffHeap();
+        dao.insertAll(Arrays.asList(new Person("Anna", "00000001R", "1", "08001"),
+                new Person("Berta", "00000002W", "2", "08002"), new Person("Carla", "00000003A", "3", "08001")));
+        dao.delete(new Person("00000003A"));
+        assertEquals(1, dao.findByPostalCode("08001").size());
+        dao.update(new Person("Anna Maria", "00000001R", "1", "08002"));
+        dao.insert(new Person("Dolors", "00000004G", "4", "08001"));
+        assertEquals("Dolors", dao.findByPostalCode("08001").get(0).getName());
+        assertEquals(2, dao.findByPostalCode("08002").size());
+        assertEquals("Anna Maria", dao.findByNamePrefix("An").get(0).getName());
+        dao.deleteAll();
+        assertEquals(0, dao.findByPostalCode("08002").size());
+    }
+
+}
@@ -0,0 +1,137 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import model.entity.Person;
+
+/**
+ * Tests of the merge of the writes of DAOWriteBehind over a DAOArrayList
+ * that records the batch calls it receives.
+ */
+class DAOWriteBehindTest {
+
+    private RecordingStorage storage;
+    private DAOWriteBehind writeBehind;
+
+    /**
+     * DAOArrayList that records every batch call as "call:NIF,NIF".
+     */
+    private static class RecordingStorage extends DAOArrayList {
+
+        final ArrayList<String> calls = new ArrayList<>();
+
+        @Override
+        public void insertAll(Collection<Person> people) {
+            record("insertAll", people);
+            super.insertAll(people);
+        }
+
+        @Override
+        public void updateAll(Collection<Person> people) {
+            record("updateAll", people);
+            super.updateAll(people);
+        }
+
+        @Override
+        public void deleteAll(Collection<Person> people) {
+            record("deleteAll", people);
+            super.deleteAll(people);
+        }
+
+        private void record(String call, Collection<Person> people) {
+            StringBuilder sb = new StringBuilder(call).append(':');
+            for (Person p : people) {
+                sb.append(sb.charAt(sb.length() - 1) == ':' ? "" : ",").append(p.getNif());
+            }
+            calls.add(sb.toString());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        storage = new RecordingStorage();
+        //Only flush() writes
+        writeBehind = new DAOWriteBehind(storage, DAOWriteBehind.Durability.INTERVAL, 3600000, 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writeBehind.close();
+    }
+
+    @Test
+    void testWritesToTheSameNifAreMerged() throws Exception {
+        writeBehind.insert(new Person("Anna", "00000001R", "1", "08001"));
+        writeBehind.update(new Person("Anna Maria", "00000001R", "1", "08001"));
+        writeBehind.insert(new Person("Berta", "00000002W", "2", "08002"));
+        writeBehind.delete(new Person("00000002W"));
+        assertEquals("Anna Maria", writeBehind.read(new Person("00000001R")).getName());
+        assertNull(writeBehind.read(new Person("00000002W")));
+        assertEquals(1, writeBehind.getPending());
+        writeBehind.flush();
+        assertEquals("[insertAll:00000001R]", storage.calls.toString());
+        assertEquals("Anna Maria", storage.read(new Person("00000001R")).getName());
+    }
+
+    @Test
+    void testFlushDeletesThenUpdatesThenInserts() throws Exception {
+        storage.insertAll(Arrays.asList(new Person("Anna", "00000001R", "1", "08001"),
+                new Person("Berta", "00000002W", "2", "08002"), new Person("Carla", "00000003A", "3", "08003")));
+        storage.calls.clear();
+        //INSERTED
+        writeBehind.insert(new Person("Dolors", "00000004G", "4", "08004"));
+        //UPDATED
+        writeBehind.update(new Person("Anna Maria", "00000001R", "1", "08001"));
+        //DELETED
+        writeBehind.update(new Person("Berta Pons", "00000002W", "2", "08002"));
+        writeBehind.delete(new Person("00000002W"));
+        //REPLACED
+        writeBehind.delete(new Person("00000003A"));
+        writeBehind.insert(new Person("Carla Vidal", "00000003A", "3", "08003"));
+        assertNull(writeBehind.read(new Person("00000002W")));
+        assertEquals("Carla Vidal", writeBehind.read(new Person("00000003A")).getName());
+        writeBehind.flush();
+        assertEquals("[deleteAll:00000002W,00000003A, updateAll:00000001R, insertAll:00000004G,00000003A]",
+                storage.calls.toString());
+        assertEquals(3, storage.count());
+        assertEquals("Anna Maria", storage.read(new Person("00000001R")).getName());
+        assertNull(storage.read(new Person("00000002W")));
+        assertEquals("Carla Vidal", storage.read(new Person("00000003A")).getName());
+        assertEquals("Dolors", storage.read(new Person("00000004G")).getName());
+    }
+
+    @Test
+    void testUpdateOfAPersonNotRegisteredIsNotRead() throws Exception {
+        writeBehind.update(new Person("Anna", "00000001R", "1", "08001"));
+        assertNull(writeBehind.read(new Person("00000001R")));
+        writeBehind.delete(new Person("00000001R"));
+        writeBehind.flush();
+        assertEquals("[deleteAll:00000001R]", storage.calls.toString());
+        assertEquals(0, storage.count());
+    }
+
+    @Test
+    void testFailedFlushOfTheTimerGoesToTheListener() throws Exception {
+        CompletableFuture<Exception> reported = new CompletableFuture<>();
+        DAOWriteBehind failing = new DAOWriteBehind(new DAOArrayList() {
+            @Override
+            public void insertAll(Collection<Person> people) {
+                throw new IllegalStateException("disk full");
+            }
+        }, DAOWriteBehind.Durability.INTERVAL, 10, 1000);
+        failing.setFailureListener(reported::complete);
+        failing.insert(new Person("Anna", "00000001R", "1", "08001"));
+        assertEquals("disk full", reported.get(10, TimeUnit.SECONDS).getMessage());
+        //Not thrown again by an unrelated call
+        assertNull(failing.read(new Person("00000002W")));
+        assertThrows(IllegalStateException.class, failing::close);
+    }
+
+}
@@ -0,0 +1,62 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+
+/**
+ * Tests of NameSearchIndex.
+ */
+class NameSearchIndexTest {
+
+    @Test
+    void testNormalizeFoldsAccentsAndCase() {
+        assertEquals("jose maria nunez", NameSearchIndex.normalize("  José-María  NÚÑEZ "));
+        assertEquals("l aine", NameSearchIndex.normalize("L'Aïne"));
+    }
+
+    @Test
+    void testSearchIgnoresAccentsTyposAndIncompleteWords() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.put("00000001R", "María García");
+        index.put("00000002W", "Mario Gómez");
+        index.put("00000003A", "Begoña Etxeberria");
+        assertEquals("00000001R", first(index.search("maria garcia", 10)));
+        assertEquals("00000001R", first(index.search("Maria Garc", 10)));
+        assertEquals("00000003A", first(index.search("etxeberia", 10)));
+        assertEquals(1.0, index.search("maría", 10).get(0).getScore());
+        assertTrue(index.search("zubizarreta", 10).isEmpty());
+        assertTrue(index.search("m", 10).isEmpty());
+        assertEquals(1, index.search("mar", 1).size());
+    }
+
+    @Test
+    void testWritesAreSearchedAtOnce() {
+        NameSearchIndex index = new NameSearchIndex();
+        index.put("00000001R", "Anna Puig");
+        assertTrue(index.contains("00000001R"));
+        assertEquals(1, index.search("anna", 10).size());
+        index.put("00000001R", "Pau Serra");
+        assertTrue(index.search("anna", 10).isEmpty());
+        assertEquals("00000001R", first(index.search("serra", 10)));
+        index.remove("00000001R");
+        assertTrue(index.search("serra", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testCompactionKeepsTheLivePeople() {
+        NameSearchIndex index = new NameSearchIndex();
+        for (int i = 0; i < 5000; i++) {
+            index.put(DAONifIndex.nif(i % 1000), "Person " + i);
+        }
+        assertEquals(1000, index.size());
+        assertEquals(DAONifIndex.nif(999), first(index.search("person 4999", 1)));
+        assertTrue(index.search("person 3999", 10).stream().noneMatch(m -> m.getName().equals("Person 3999")));
+    }
+
+    private static String first(ArrayList<NameSearchIndex.Match> matches) {
+        return matches.isEmpty() ? null : matches.get(0).getNif();
+    }
+
+}
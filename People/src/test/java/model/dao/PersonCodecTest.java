@@ -0,0 +1,51 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import model.entity.Person;
+
+/**
+ * Tests of PersonCodec.
+ */
+class PersonCodecTest {
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Person p = new Person("Àngels Núñez", "00000001R", "600000000", "08001",
+                new GregorianCalendar(1950, 11, 31).getTime(), null);
+        byte[] bytes = PersonCodec.encode(p, "Photos/abc.png");
+        Person decoded = PersonCodec.decode(bytes);
+        assertEquals("Àngels Núñez", decoded.getName());
+        assertEquals("00000001R", decoded.getNif());
+        assertEquals("600000000", decoded.getPhoneNumber());
+        assertEquals("08001", decoded.getPostalCode());
+        assertEquals(new GregorianCalendar(1950, 11, 31).getTime(), decoded.getDateOfBirth());
+        assertEquals("Photos/abc.png", decoded.getPhotoHandle().getPath());
+        assertEquals("00000001R", PersonCodec.nif(bytes));
+        assertEquals("Photos/abc.png", PersonCodec.photo(bytes));
+    }
+
+    @Test
+    void testRoundTripWithoutOptionalFields() throws IOException {
+        byte[] bytes = PersonCodec.encode(new Person(null, "00000002W", "", null), null);
+        Person decoded = PersonCodec.decode(bytes);
+        assertNull(decoded.getName());
+        assertEquals("", decoded.getPhoneNumber());
+        assertNull(decoded.getPostalCode());
+        assertNull(decoded.getDateOfBirth());
+        assertFalse(decoded.hasPhoto());
+        assertNull(PersonCodec.photo(bytes));
+    }
+
+    @Test
+    void testInvalidBytesAreRejected() throws IOException {
+        byte[] bytes = PersonCodec.encode(new Person("Anna", "00000001R", "1", "08001"), null);
+        assertThrows(IOException.class, () -> PersonCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+        bytes[0]++;
+        assertThrows(IOException.class, () -> PersonCodec.decode(bytes));
+    }
+
+}
@@ -0,0 +1,43 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import model.entity.Person;
+
+/**
+ * Tests of SecondaryIndex.
+ */
+class SecondaryIndexTest {
+
+    @Test
+    void testFindsByEveryIndex() {
+        SecondaryIndex<String> index = new SecondaryIndex<>();
+        index.put("1", new Person("Anna", "00000001R", "1", "08001", new GregorianCalendar(1990, 0, 1).getTime(), null));
+        index.put("2", new Person("Andreu", "00000002W", "2", "08002", new GregorianCalendar(1980, 5, 15).getTime(), null));
+        index.put("3", new Person("Bernat", "00000003A", "3", "08001", null, null));
+        assertEquals(Arrays.asList("1", "3"), index.findByPostalCode("08001"));
+        assertEquals(Arrays.asList("2", "1"), index.findByNamePrefix("An"));
+        assertEquals(Collections.emptyList(), index.findByNamePrefix("an"));
+        assertEquals(Arrays.asList("2", "1"), index.findByBirthDateRange(new GregorianCalendar(1980, 5, 15).getTime(),
+                new GregorianCalendar(1990, 0, 1).getTime()));
+        assertEquals(Collections.emptyList(), index.findByBirthDateRange(new GregorianCalendar(1990, 0, 1).getTime(),
+                new GregorianCalendar(1980, 0, 1).getTime()));
+    }
+
+    @Test
+    void testPutReplacesAndRemoveForgets() {
+        SecondaryIndex<String> index = new SecondaryIndex<>();
+        index.put("1", new Person("Anna", "00000001R", "1", "08001"));
+        index.put("1", new Person("Berta", "00000001R", "1", "08002"));
+        assertEquals(Collections.emptyList(), index.findByPostalCode("08001"));
+        assertEquals(Collections.emptyList(), index.findByNamePrefix("Anna"));
+        assertEquals(Arrays.asList("1"), index.findByNamePrefix("B"));
+        index.remove("1");
+        assertEquals(Collections.emptyList(), index.findByPostalCode("08002"));
+        assertEquals(Collections.emptyList(), index.findByNamePrefix(""));
+    }
+
+}
@@ -0,0 +1,69 @@
+package model.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Tests of WriteAheadLog.
+ */
+class WriteAheadLogTest {
+
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("people", ".wal");
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void testRecordsAreReplayedInOrder() throws IOException {
+        try ( WriteAheadLog log = new WriteAheadLog(file.getPath())) {
+            log.commit(bytes("first"));
+            log.sync(log.append(bytes("second")));
+        }
+        try ( WriteAheadLog log = new WriteAheadLog(file.getPath())) {
+            ArrayList<byte[]> records = log.replay();
+            assertEquals(2, records.size());
+            assertEquals("first", new String(records.get(0), StandardCharsets.UTF_8));
+            assertEquals("second", new String(records.get(1), StandardCharsets.UTF_8));
+            log.reset();
+            assertTrue(log.replay().isEmpty());
+        }
+    }
+
+    @Test
+    void testCorruptedRecordIsDiscarded() throws IOException {
+        try ( WriteAheadLog log = new WriteAheadLog(file.getPath())) {
+            log.commit(bytes("kept"));
+            log.commit(bytes("corrupted"));
+        }
+        try ( RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write('X');
+        }
+        try ( WriteAheadLog log = new WriteAheadLog(file.getPath())) {
+            ArrayList<byte[]> records = log.replay();
+            assertEquals(1, records.size());
+            assertEquals("kept", new String(records.get(0), StandardCharsets.UTF_8));
+            log.commit(bytes("appended"));
+            assertEquals(2, log.replay().size());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+}